@@ -0,0 +1,85 @@
+package model.colortransform;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Applies a color matrix to as many pixels at once as the processor's vector registers hold,
+ * using the incubating JDK Vector API. The packed pixels are loaded a vector at a time and split
+ * into one float vector per channel, so the matrix is applied to whole channel planes held in
+ * registers. The multiplications and additions are done in the same order as in
+ * {@link ScalarColorKernel} without fusing, and rounding gives exactly what Math.round does for
+ * the values that survive capping, so both kernels give the same pixels. Conversions between
+ * int and float lanes are done by bit tricks rather than lane casts, which the JIT does not
+ * compile to vector instructions for every vector size.
+ *
+ * <p>This class needs the jdk.incubator.vector module, so it is kept apart from the other
+ * sources and only compiled by a build that adds the module, onto the classes compiled from
+ * them. It is only loaded by {@link AColorTransform} once it has checked that the module is
+ * present, and a build without it falls back to the scalar kernel.
+ */
+class VectorColorKernel implements ColorKernel {
+  private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+  // 2^23 as a float and its bits, the smallest float whose unit in the last place is one
+  private static final float MAGIC = 8388608f;
+  private static final int MAGIC_BITS = 0x4B000000;
+
+  private final ColorKernel tail = new ScalarColorKernel();
+
+  @Override
+  public void apply(float[][] matrix, int[] src, int[] dst, int from, int to) {
+    float m00 = matrix[0][0];
+    float m01 = matrix[0][1];
+    float m02 = matrix[0][2];
+    float m10 = matrix[1][0];
+    float m11 = matrix[1][1];
+    float m12 = matrix[1][2];
+    float m20 = matrix[2][0];
+    float m21 = matrix[2][1];
+    float m22 = matrix[2][2];
+
+    int i = from;
+    int bound = from + INTS.loopBound(to - from);
+    for (; i < bound; i += INTS.length()) {
+      IntVector rgb = IntVector.fromArray(INTS, src, i);
+      FloatVector r = toFloat(rgb.lanewise(VectorOperators.LSHR, 16).and(0xFF));
+      FloatVector g = toFloat(rgb.lanewise(VectorOperators.LSHR, 8).and(0xFF));
+      FloatVector b = toFloat(rgb.and(0xFF));
+
+      IntVector outR = round(r.mul(m00).add(g.mul(m01)).add(b.mul(m02)));
+      IntVector outG = round(r.mul(m10).add(g.mul(m11)).add(b.mul(m12)));
+      IntVector outB = round(r.mul(m20).add(g.mul(m21)).add(b.mul(m22)));
+
+      outR.lanewise(VectorOperators.LSHL, 16)
+          .or(outG.lanewise(VectorOperators.LSHL, 8))
+          .or(outB)
+          .intoArray(dst, i);
+    }
+    this.tail.apply(matrix, src, dst, i, to);
+  }
+
+  /**
+   * Converts channel values between 0 and 255 to float. Setting the bits of 2^23 turns the value
+   * into the float 2^23 + value, which avoids a lane conversion the JIT may not compile to
+   * vector instructions.
+   */
+  private static FloatVector toFloat(IntVector channel) {
+    return channel.or(MAGIC_BITS).reinterpretAsFloats().sub(MAGIC);
+  }
+
+  /**
+   * Rounds each lane half up and caps it between 0 and 255. Lanes are capped to [0, 256] first,
+   * which cannot change the result. Adding 2^23 rounds a lane to the nearest integer, which is
+   * stepped down to the floor of the lane when it rounded up, and the floor is then rounded up
+   * when the dropped fraction is at least one half. Every step is exact in float.
+   */
+  private static IntVector round(FloatVector x) {
+    FloatVector capped = x.max(0f).min(256f);
+    FloatVector nearest = capped.add(MAGIC).sub(MAGIC);
+    FloatVector floor = nearest.sub(1f, nearest.compare(VectorOperators.GT, capped));
+    FloatVector rounded = floor.add(1f, capped.sub(floor).compare(VectorOperators.GE, 0.5f));
+    return rounded.min(255f).add(MAGIC).reinterpretAsInts().sub(MAGIC_BITS);
+  }
+}
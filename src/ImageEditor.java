@@ -1,14 +1,27 @@
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 import java.util.Scanner;
 
 import controller.ImageEditorController;
 import controller.SimpleEditorController;
+import controller.StreamEditorController;
 import controller.gui.SimpleEditorGUIController;
+import controller.jobs.BatchRunner;
+import controller.jobs.JobResult;
+import controller.jobs.JobServer;
+import controller.jobs.ScriptJob;
+import controller.jobs.WatchFolder;
+import controller.script.ScriptScheduler;
 import model.ImageEditorModel;
 import model.SimpleEditorModel;
+import model.parallel.StageMetrics;
+import model.stream.StreamEditorModel;
 import view.ImageEditorView;
 import view.SimpleEditorView;
 import view.gui.ImageEditorGUIView;
@@ -19,9 +32,14 @@ import view.gui.SimpleEditorGUIView;
  * depending on certain command line arguments provided (or not provided) at runtime.
  */
 public class ImageEditor {
+  private static final String HEADLESS_PROPERTY = "java.awt.headless";
+  private static final List<String> TEXT_MODES = Arrays.asList("-text", "-file", "-parallel",
+      "-stream", "-batch", "-serve", "-watch");
+
   /**
    * The main method for the program: originating method. The starting point for interactions
-   * between the user and program.
+   * between the user and program. The text modes run headless and exit once their commands are
+   * done; only running with no arguments starts the graphical interface.
    * @param args the command line arguments provided.
    */
   public static void main(String[] args) {
@@ -31,15 +49,54 @@ public class ImageEditor {
     }
 
     for (int i = 0; i < args.length; i++) {
-      if (args[i].equalsIgnoreCase("-text")) {
-        runInteractive();
-        break;
+      String mode = args[i].toLowerCase(Locale.ROOT);
+      if (!TEXT_MODES.contains(mode)) {
+        continue;
+      }
+      // Nothing below opens a window, so AWT must not try to reach a display if it is loaded
+      if (System.getProperty(HEADLESS_PROPERTY) == null) {
+        System.setProperty(HEADLESS_PROPERTY, "true");
       }
-      if (args[i].equalsIgnoreCase("-file")) {
-        if (i + 1 < args.length) {
-          runScriptFile(args[i + 1]);
-        }
+      switch (mode) {
+        case "-text":
+          runInteractive();
+          break;
+        case "-batch":
+          if (i + 3 < args.length) {
+            runBatch(args[i + 1], args[i + 2], args[i + 3]);
+          } else {
+            new SimpleEditorView().renderMessage(
+                "Usage: -batch <script> <input-dir> <output-dir>\n");
+          }
+          break;
+        case "-watch":
+          if (i + 3 < args.length) {
+            runWatch(args[i + 1], args[i + 2], args[i + 3]);
+          } else {
+            new SimpleEditorView().renderMessage(
+                "Usage: -watch <dir> <script> <output-dir>\n");
+          }
+          break;
+        case "-serve":
+          if (i + 1 < args.length) {
+            runServer(args[i + 1]);
+          } else {
+            new SimpleEditorView().renderMessage("Usage: -serve <port>\n");
+          }
+          break;
+        default:
+          if (i + 1 >= args.length) {
+            new SimpleEditorView().renderMessage("Usage: " + mode + " <script>\n");
+          } else if (mode.equals("-file")) {
+            runScriptFile(args[i + 1]);
+          } else if (mode.equals("-parallel")) {
+            runParallelScript(args[i + 1]);
+          } else {
+            runStreamScript(args[i + 1]);
+          }
+          break;
       }
+      return;
     }
     runAsGUI();
   }
@@ -77,16 +134,12 @@ public class ImageEditor {
     ImageEditorView view = new SimpleEditorView();
     ImageEditorController cont;
 
-    Scanner sc;
-
     /*
-     * Attempts to initialize a Scanner using a FileInputStream with the given file name. If there
-     * is an error with the file name provided, the program will automatically revert to the
-     * interactive version of the program.
+     * If there is an error with the file name provided, the program will automatically revert to
+     * the interactive version of the program.
      */
-    try {
-      sc = new Scanner(new FileInputStream(fileName));
-    } catch (IOException e) {
+    String script = readScript(fileName);
+    if (script == null) {
       view.renderMessage("**********\n");
       view.renderMessage("File \"" + fileName + "\" not found. Reverting to interactive input.\n");
       view.renderMessage("**********\n\n");
@@ -94,6 +147,151 @@ public class ImageEditor {
       return;
     }
 
+    // Starts the program
+    cont = new SimpleEditorController(model, view, new StringReader(script));
+    cont.start();
+  }
+
+  /**
+   * Runs the script file with commands on unrelated images running at once, giving the same
+   * output and files as running it line by line.
+   * @param fileName the file name containing the script.
+   */
+  private static void runParallelScript(String fileName) {
+    ImageEditorView view = new SimpleEditorView();
+    String script = readScript(fileName);
+    if (script == null) {
+      view.renderMessage("File \"" + fileName + "\" not found.\n");
+      return;
+    }
+    new SimpleEditorController(new SimpleEditorModel(), view, new StringReader(script))
+        .start(new ScriptScheduler());
+  }
+
+  /**
+   * Runs the script file as a template on every image in the input directory, on a pool of
+   * workers, and prints the result and time of each image.
+   * @param fileName the file name containing the script template.
+   * @param inputDir the directory of the images to run the script on.
+   * @param outputDir the directory the script may save its results into.
+   */
+  private static void runBatch(String fileName, String inputDir, String outputDir) {
+    ImageEditorView view = new SimpleEditorView();
+    String template = readScript(fileName);
+    if (template == null) {
+      view.renderMessage("File \"" + fileName + "\" not found.\n");
+      return;
+    }
+    List<ScriptJob> jobs;
+    try {
+      jobs = ScriptJob.forDirectory(template, new File(inputDir), new File(outputDir));
+    } catch (IllegalStateException e) {
+      view.renderMessage(e.getMessage() + "\n");
+      return;
+    }
+
+    long start = System.nanoTime();
+    BatchRunner runner = new BatchRunner();
+    List<JobResult> results = runner.run(jobs);
+    int succeeded = 0;
+    for (JobResult result : results) {
+      view.renderMessage(result + "\n");
+      if (result.isSuccess()) {
+        succeeded++;
+      }
+    }
+    view.renderMessage(String.format(Locale.ROOT, "%d of %d images succeeded in %.1f ms.%n",
+        succeeded, results.size(), (System.nanoTime() - start) / 1e6));
+    for (StageMetrics stage : runner.getMetrics()) {
+      view.renderMessage(stage + "\n");
+    }
+    view.renderMessage(runner.getAdmission() + "\n");
+  }
+
+  /**
+   * Runs jobs sent to the given port of the loopback address until the program is stopped, on
+   * one pool of workers shared by every connection.
+   * @param port the port to listen on, or 0 for any free port.
+   */
+  private static void runServer(String port) {
+    ImageEditorView view = new SimpleEditorView();
+    JobServer server;
+    try {
+      server = new JobServer(Integer.parseInt(port), new BatchRunner());
+    } catch (NumberFormatException e) {
+      view.renderMessage("Port \"" + port + "\" is not a number.\n");
+      return;
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      view.renderMessage(e.getMessage() + "\n");
+      return;
+    }
+    view.renderMessage("Listening for jobs on port " + server.getPort() + ".\n");
+    server.serve();
+  }
+
+  /**
+   * Runs the script file as a template on every image dropped into the folder, as soon as it is
+   * fully written, until the program is stopped.
+   * @param inputDir the folder to watch.
+   * @param fileName the file name containing the script.
+   * @param outputDir the directory to write results into.
+   */
+  private static void runWatch(String inputDir, String fileName, String outputDir) {
+    ImageEditorView view = new SimpleEditorView();
+    String template = readScript(fileName);
+    if (template == null) {
+      view.renderMessage("File \"" + fileName + "\" not found.\n");
+      return;
+    }
+    WatchFolder watcher;
+    try {
+      watcher = new WatchFolder(new File(inputDir), template, new File(outputDir),
+          new BatchRunner(), Math.max(0, Long.getLong(WatchFolder.SETTLE_PROPERTY,
+              WatchFolder.DEFAULT_SETTLE_MILLIS)), result -> view.renderMessage(result + "\n"));
+    } catch (IllegalArgumentException | IllegalStateException e) {
+      view.renderMessage(e.getMessage() + "\n");
+      return;
+    }
+    view.renderMessage("Watching \"" + inputDir + "\" for images.\n");
+    try {
+      watcher.run();
+    } catch (IllegalStateException e) {
+      view.renderMessage(e.getMessage() + "\n");
+    }
+  }
+
+  /**
+   * Runs the script file on the streaming model, which computes the images a row at a time as
+   * they are saved rather than holding them in memory, so images larger than memory can be
+   * edited.
+   * @param fileName the file name containing the script.
+   */
+  private static void runStreamScript(String fileName) {
+    ImageEditorView view = new SimpleEditorView();
+    String script = readScript(fileName);
+    if (script == null) {
+      view.renderMessage("File \"" + fileName + "\" not found.\n");
+      return;
+    }
+    new StreamEditorController(new StreamEditorModel(), view, new StringReader(script)).start();
+  }
+
+  /**
+   * Reads the script file with the given name, adding a quit command at the end if it does not
+   * already have one.
+   * @param fileName the file name containing the script.
+   * @return the commands of the script, or null if the file cannot be read.
+   */
+  private static String readScript(String fileName) {
+    Scanner sc;
+
+    // Attempts to initialize a Scanner using a FileInputStream with the given file name
+    try {
+      sc = new Scanner(new FileInputStream(fileName));
+    } catch (IOException e) {
+      return null;
+    }
+
     StringBuilder sb = new StringBuilder();
 
     // Reads the data from the provided script file and appends to the StringBuilder
@@ -105,12 +303,9 @@ public class ImageEditor {
      * If the file did not already contain a quit command at the end, adds it in automatically
      * so the controller does not encounter errors with the Scanner not having enough inputs.
      */
-    if (!sb.substring(sb.length() - 1).equals("q")) {
+    if (sb.length() == 0 || !sb.substring(sb.length() - 1).equals("q")) {
       sb.append("q");
     }
-
-    // Starts the program
-    cont = new SimpleEditorController(model, view, new StringReader(sb.toString()));
-    cont.start();
+    return sb.toString();
   }
 }
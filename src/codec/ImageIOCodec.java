@@ -0,0 +1,102 @@
+package codec;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import model.PackedImage;
+
+/**
+ * Reads and writes the image formats handled by ImageIO (PNG, JPEG and BMP). The controllers
+ * only reach ImageIO and AWT through this class, which is only loaded once a file of one of these
+ * formats is read or written, so scripts that only touch PPM and PGM files never start either.
+ */
+public class ImageIOCodec {
+  private ImageIOCodec() {
+  }
+
+  /**
+   * Reads the image file at the given path.
+   * @param path the path of the file.
+   * @return the image.
+   * @throws IllegalArgumentException if the path is null.
+   * @throws IllegalStateException if the file cannot be read or is not an image ImageIO reads.
+   */
+  public static PackedImage read(String path)
+      throws IllegalArgumentException, IllegalStateException {
+    if (path == null) {
+      throw new IllegalArgumentException("Path must not be null.");
+    }
+    BufferedImage img;
+    try {
+      img = ImageIO.read(new File(path));
+    } catch (IOException e) {
+      throw new IllegalStateException("Program could not read JPG");
+    }
+
+    if (img == null) {
+      throw new IllegalStateException("Program could not read JPG");
+    }
+    return RasterConverter.toPackedImage(img);
+  }
+
+  /**
+   * Reads the width and height of the image file at the given path from its header, without
+   * decoding its pixels.
+   * @param path the path of the file.
+   * @return the width and the height of the image, in that order.
+   * @throws IllegalArgumentException if the path is null.
+   * @throws IllegalStateException if the file cannot be read or is not an image ImageIO reads.
+   */
+  public static int[] readSize(String path)
+      throws IllegalArgumentException, IllegalStateException {
+    if (path == null) {
+      throw new IllegalArgumentException("Path must not be null.");
+    }
+    try (ImageInputStream in = ImageIO.createImageInputStream(new File(path))) {
+      Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+      if (readers == null || !readers.hasNext()) {
+        throw new IllegalStateException("Program could not read the size of " + path);
+      }
+      ImageReader reader = readers.next();
+      try {
+        reader.setInput(in, true, true);
+        return new int[] {reader.getWidth(0), reader.getHeight(0)};
+      } finally {
+        reader.dispose();
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Program could not read the size of " + path);
+    }
+  }
+
+  /**
+   * Writes the image to the given path, in the format named by the path's extension, which must
+   * be jpg, png or bmp.
+   * @param image the image to write.
+   * @param path the path of the file.
+   * @throws IllegalArgumentException if either argument is null.
+   * @throws IllegalStateException if the extension is not recognized or the file cannot be
+   *         written.
+   */
+  public static void write(PackedImage image, String path)
+      throws IllegalArgumentException, IllegalStateException {
+    if (image == null || path == null) {
+      throw new IllegalArgumentException("Image and path must not be null.");
+    }
+    String ext = path.substring(Math.max(0, path.length() - 3));
+    if (!(ext.equals("jpg") || ext.equals("png") || ext.equals("bmp"))) {
+      throw new IllegalStateException("File extension not recognized");
+    }
+    try {
+      ImageIO.write(RasterConverter.toBufferedImage(image), ext, new File(path));
+    } catch (IOException e) {
+      throw new IllegalStateException("Couldn't properly save file");
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package codec;
+
+/**
+ * Represents the formats a PPM or PGM file can be written in.
+ */
+public enum PPMFormat {
+  PLAIN("P3"), BINARY("P6"), GREY("P5");
+
+  private final String magic;
+
+  PPMFormat(String magic) {
+    this.magic = magic;
+  }
+
+  /**
+   * Returns the magic number that starts files of this format.
+   * @return the magic number, such as P3.
+   */
+  public String getMagic() {
+    return this.magic;
+  }
+}
@@ -0,0 +1,37 @@
+package codec;
+
+import model.PackedImage;
+
+/**
+ * Reads whole PPM and PGM image files into packed images, one row at a time through a
+ * {@link PPMRowReader}, straight into the image's backing array.
+ */
+public class PPMReader {
+  private PPMReader() {
+  }
+
+  /**
+   * Reads the PPM or PGM file at the given path.
+   * @param path the path of the file.
+   * @return the image held by the file.
+   * @throws IllegalArgumentException if the path is null.
+   * @throws IllegalStateException if the file cannot be found or read, is not a valid PPM
+   *         file, or is too large to be held in memory.
+   */
+  public static PackedImage read(String path)
+      throws IllegalArgumentException, IllegalStateException {
+    try (PPMRowReader in = new PPMRowReader(path)) {
+      PackedImage image;
+      try {
+        image = new PackedImage(in.getWidth(), in.getHeight());
+      } catch (IllegalArgumentException e) {
+        throw new IllegalStateException("Invalid PPM file: " + e.getMessage());
+      }
+      int[] data = image.getData();
+      for (int row = 0; row < in.getHeight(); row++) {
+        in.readNext(data, row * in.getWidth());
+      }
+      return image;
+    }
+  }
+}
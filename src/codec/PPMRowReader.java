@@ -0,0 +1,220 @@
+package codec;
+
+import java.nio.MappedByteBuffer;
+
+import model.PackedImage;
+import model.stream.RowReader;
+
+/**
+ * Reads the rows of a PPM or PGM file one at a time, from the top row down, so that images of
+ * any size can be read while holding a single row. Plain (P3) rows are parsed by a
+ * {@link PPMTokenizer}. Binary color (P6) and binary grey (P5) files have their pixel data memory
+ * mapped in bands of rows, with one or two bytes per sample depending on the maximum value.
+ * Samples are scaled from the file's maximum value to the 0 to 255 range of the image, and
+ * samples above the maximum value are capped to it.
+ *
+ * <p>The rows of a plain file must be read from the top down. The rows of a binary file may be
+ * read in any order: a row outside of the mapped band maps a new band starting at it, or ending
+ * at it when reading upwards, so that reading the rows from the bottom up maps as few bands as
+ * reading them from the top down.
+ */
+public class PPMRowReader implements RowReader {
+  private static final int MAX_SAMPLE = 65535;
+  // Largest number of bytes mapped at once, so that images of any size can be mapped in pieces
+  private static final int MAX_MAPPED_BYTES = 1 << 26;
+
+  private final PPMTokenizer in;
+  private final int width;
+  private final int height;
+  private final int maxValue;
+  private final int[] scale;
+  // Samples per pixel, 1 for grey and 3 for color, or 0 for plain files
+  private final int channels;
+  private final int bytesPerSample;
+  private final int rowBytes;
+  private final int rowsPerMap;
+  private final byte[] row;
+  // The offset in the file of the first row of a binary file
+  private final long dataOffset;
+  private MappedByteBuffer mapped;
+  private int bandStart;
+  private int bandRows;
+  private int next;
+
+  /**
+   * Opens the file at the given path and reads its header.
+   * @param path the path of the file.
+   * @throws IllegalArgumentException if the path is null.
+   * @throws IllegalStateException if the file cannot be found or read, or does not start with a
+   *         valid PPM or PGM header.
+   */
+  public PPMRowReader(String path) throws IllegalArgumentException, IllegalStateException {
+    this.in = new PPMTokenizer(path);
+    try {
+      String magic = this.in.nextToken();
+      if (magic == null) {
+        throw new IllegalStateException("File is empty");
+      }
+      if (!magic.equals("P3") && !magic.equals("P5") && !magic.equals("P6")) {
+        throw new IllegalStateException("Invalid PPM file: file should begin with P3, P5, or P6");
+      }
+
+      this.width = this.in.nextInt();
+      this.height = this.in.nextInt();
+      this.maxValue = this.in.nextInt();
+      if (this.width <= 0 || this.height <= 0) {
+        throw new IllegalStateException("Invalid PPM file: Image dimensions must be positive.");
+      }
+      if (this.maxValue <= 0 || this.maxValue > MAX_SAMPLE) {
+        throw new IllegalStateException("Invalid PPM file: maximum value out of range.");
+      }
+      this.scale = scaleTable(this.maxValue);
+      this.channels = magic.equals("P3") ? 0 : magic.equals("P5") ? 1 : 3;
+      this.bytesPerSample = this.maxValue > 255 ? 2 : 1;
+      long rowLength = (long) this.width * this.channels * this.bytesPerSample;
+      if (rowLength > Integer.MAX_VALUE - 8) {
+        throw new IllegalStateException("Invalid PPM file: rows are too wide to be read.");
+      }
+      this.rowBytes = (int) rowLength;
+      this.rowsPerMap = this.rowBytes == 0 ? 0 : Math.max(1, MAX_MAPPED_BYTES / this.rowBytes);
+      this.row = new byte[this.rowBytes];
+      // The data of a binary file starts right after the whitespace byte ending the header
+      this.dataOffset = this.in.getOffset();
+    } catch (IllegalStateException e) {
+      this.in.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Reads the given row, which for a plain file must be the row following the last row read.
+   * @param row the row to read.
+   * @param dst the array to copy the row into, at least as long as the width.
+   * @throws IllegalStateException if the row is outside of the image, the file is plain and the
+   *         row is not the next row, or the file cannot be read or ends early.
+   */
+  @Override
+  public void readRow(int row, int[] dst) throws IllegalStateException {
+    if (row < 0 || row >= this.height) {
+      throw new IllegalStateException("Row " + row + " is outside of the PPM file.");
+    }
+    if (this.channels == 0 && row != this.next) {
+      throw new IllegalStateException("Rows of a plain PPM file must be read in order.");
+    }
+    this.read(row, dst, 0);
+  }
+
+  /**
+   * Checks whether the rows of this file may be read in any order, which they may in binary
+   * files.
+   * @return true if the file is binary.
+   */
+  @Override
+  public boolean isRandomAccess() {
+    return this.channels != 0;
+  }
+
+  /**
+   * Reads the next row into the given array.
+   * @param dst the array to copy the row into.
+   * @param index the index in the array of the first pixel of the row.
+   * @throws IllegalStateException if every row has been read, or the file cannot be read or ends
+   *         early.
+   */
+  void readNext(int[] dst, int index) throws IllegalStateException {
+    if (this.next >= this.height) {
+      throw new IllegalStateException("Every row of the PPM file has been read.");
+    }
+    this.read(this.next, dst, index);
+  }
+
+  private void read(int row, int[] dst, int index) {
+    if (this.channels == 0) {
+      this.readPlain(dst, index);
+    } else {
+      this.readBinary(row, dst, index);
+    }
+    this.next = row + 1;
+  }
+
+  private void readPlain(int[] dst, int index) {
+    for (int col = 0; col < this.width; col++) {
+      int r = this.scale[Math.min(this.in.nextInt(), this.maxValue)];
+      int g = this.scale[Math.min(this.in.nextInt(), this.maxValue)];
+      int b = this.scale[Math.min(this.in.nextInt(), this.maxValue)];
+      dst[index + col] = PackedImage.pack(r, g, b);
+    }
+  }
+
+  /**
+   * Reads the given row of a binary file, mapping a new band of rows if it is outside of the
+   * current band. The samples of a row are contiguous in the file, so each row is copied out of
+   * the mapping in one bulk get.
+   */
+  private void readBinary(int row, int[] dst, int index) {
+    if (this.mapped == null || row < this.bandStart || row >= this.bandStart + this.bandRows) {
+      int start = this.mapped != null && row < this.bandStart
+          ? Math.max(0, row - this.rowsPerMap + 1) : row;
+      int rows = Math.min(this.rowsPerMap, this.height - start);
+      this.mapped = this.in.map(this.dataOffset + (long) start * this.rowBytes,
+          (long) rows * this.rowBytes);
+      this.bandStart = start;
+      this.bandRows = rows;
+    }
+    this.mapped.position((row - this.bandStart) * this.rowBytes);
+    this.mapped.get(this.row);
+
+    int step = this.bytesPerSample;
+    for (int col = 0, s = 0; col < this.width; col++) {
+      if (this.channels == 1) {
+        int grey = this.sample(s);
+        dst[index + col] = PackedImage.pack(grey, grey, grey);
+        s += step;
+      } else {
+        dst[index + col] = PackedImage.pack(this.sample(s), this.sample(s + step),
+            this.sample(s + 2 * step));
+        s += 3 * step;
+      }
+    }
+  }
+
+  /**
+   * Returns the scaled sample at the given index of the current row, stored in one byte or two
+   * big endian bytes.
+   */
+  private int sample(int index) {
+    int value = this.bytesPerSample == 1
+        ? this.row[index] & 0xFF
+        : ((this.row[index] & 0xFF) << 8) | (this.row[index + 1] & 0xFF);
+    return this.scale[Math.min(value, this.maxValue)];
+  }
+
+  /**
+   * Creates the table scaling each sample from 0 to the maximum value into 0 to 255, rounding to
+   * the nearest value.
+   * @param maxValue the maximum value of a sample in the file.
+   * @return the scaled value of each sample, indexed by the sample.
+   */
+  private static int[] scaleTable(int maxValue) {
+    int[] table = new int[maxValue + 1];
+    for (int v = 0; v <= maxValue; v++) {
+      table[v] = (int) ((v * 255L * 2 + maxValue) / (2L * maxValue));
+    }
+    return table;
+  }
+
+  @Override
+  public void close() {
+    this.in.close();
+  }
+}
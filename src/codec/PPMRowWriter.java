@@ -0,0 +1,299 @@
+package codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+import model.PackedImage;
+import model.colortransform.AColorTransform;
+import model.colortransform.Greyscale;
+import model.stream.RowWriter;
+
+/**
+ * Writes the rows of an image to a PPM or PGM file one at a time, from the top row down, so that
+ * images of any size can be written while holding a single row. Plain (P3) rows are formatted
+ * into a reusable byte buffer from a table of the digits of every sample value, and the buffer
+ * is written to a file channel whenever it fills. Binary (P6 and P5) rows have one byte per
+ * sample and are gathered in the same buffer. Grey files hold the luma of each pixel, the same
+ * value the greyscale operation gives it.
+ *
+ * <p>The rows are written to a new file next to the file at the path, which is forced to the
+ * disk and moved over that file once every row has been written. The file is never mapped, so
+ * nothing keeps it open once its channel is closed and it can be moved on any platform. A file
+ * that is replaced is never left half written, and it can still be read while the image is being
+ * written, even if the image is read from it.
+ */
+public class PPMRowWriter implements RowWriter {
+  private static final String COMMENT = "# Created by SimpleImage program. OOD Assignment 4";
+  private static final int BUFFER_SIZE = 1 << 16;
+  // Keeps plain lines under the 70 characters the format allows
+  private static final int PIXELS_PER_LINE = 5;
+  // The digits of each sample value followed by its separator, and the number of them used
+  private static final byte[] DIGITS = new byte[256 * 4];
+  private static final byte[] DIGIT_COUNTS = new byte[256];
+
+  static {
+    for (int v = 0; v < 256; v++) {
+      byte[] text = Integer.toString(v).getBytes(StandardCharsets.US_ASCII);
+      System.arraycopy(text, 0, DIGITS, v * 4, text.length);
+      DIGITS[v * 4 + text.length] = ' ';
+      DIGIT_COUNTS[v] = (byte) (text.length + 1);
+    }
+  }
+
+  private final String path;
+  private final PPMFormat format;
+  private final Path target;
+  // The file the rows are written to until they are moved to the path
+  private final Path partial;
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private int width;
+  private int height;
+  private int written;
+  private int count;
+  private long pixels;
+  private byte[] row;
+  private int[] luma;
+
+  /**
+   * Starts a file to be written in the given format, which replaces the file at the given path,
+   * if there is one, once it is closed.
+   * @param path the path of the file.
+   * @param format the format to write the file in.
+   * @throws IllegalArgumentException if either argument is null.
+   * @throws IllegalStateException if the file cannot be created.
+   */
+  public PPMRowWriter(String path, PPMFormat format)
+      throws IllegalArgumentException, IllegalStateException {
+    if (path == null || format == null) {
+      throw new IllegalArgumentException("Path and format must both not be null.");
+    }
+    this.path = path;
+    this.format = format;
+    try {
+      this.target = Paths.get(path).toAbsolutePath();
+      Path partial;
+      FileChannel channel = null;
+      do {
+        // Named after the file, in its directory, so that it can be moved over it in one step
+        partial = this.target.resolveSibling("." + this.target.getFileName() + "."
+            + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".part");
+        try {
+          channel = FileChannel.open(partial, StandardOpenOption.CREATE_NEW,
+              StandardOpenOption.WRITE);
+        } catch (FileAlreadyExistsException e) {
+          // Another writer chose the same name, so another is tried
+        }
+      } while (channel == null);
+      this.partial = partial;
+      this.channel = channel;
+    } catch (IOException | InvalidPathException e) {
+      throw new IllegalStateException("Could not write PPM file " + path + ".");
+    }
+    this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    this.height = -1;
+  }
+
+  @Override
+  public void begin(int width, int height) throws IllegalStateException {
+    if (this.height >= 0) {
+      throw new IllegalStateException("The image has already been started.");
+    }
+    if (width <= 0 || height <= 0) {
+      throw new IllegalStateException("Image dimensions must be positive.");
+    }
+    long rowLength = (long) width * (this.format == PPMFormat.GREY ? 1 : 3);
+    if (rowLength > Integer.MAX_VALUE - 8) {
+      throw new IllegalStateException("Image rows are too wide to be written.");
+    }
+    this.width = width;
+    this.height = height;
+
+    byte[] header = (this.format.getMagic() + "\n" + COMMENT + "\n" + width + " " + height
+        + "\n255\n").getBytes(StandardCharsets.US_ASCII);
+    System.arraycopy(header, 0, this.buffer.array(), 0, header.length);
+    this.count = header.length;
+    if (this.format != PPMFormat.PLAIN) {
+      this.row = new byte[(int) rowLength];
+      this.luma = this.format == PPMFormat.GREY ? new int[width] : null;
+    }
+  }
+
+  @Override
+  public void writeRow(int[] row) throws IllegalStateException {
+    this.writeRow(row, 0);
+  }
+
+  /**
+   * Writes the next row of the image from the given array.
+   * @param src the array holding the row.
+   * @param index the index in the array of the first pixel of the row.
+   * @throws IllegalStateException if the image has not been started, every row has been
+   *         written, or the row cannot be written.
+   */
+  void writeRow(int[] src, int index) throws IllegalStateException {
+    if (this.height < 0) {
+      throw new IllegalStateException("The image has not been started.");
+    }
+    if (this.written >= this.height) {
+      throw new IllegalStateException("Every row of the image has been written.");
+    }
+    if (this.format == PPMFormat.PLAIN) {
+      this.writePlain(src, index);
+    } else {
+      this.writeBinary(src, index);
+    }
+    this.written++;
+  }
+
+  private void writePlain(int[] src, int index) {
+    byte[] bytes = this.buffer.array();
+    for (int col = 0; col < this.width; col++) {
+      // Leaves room for the longest pixel, three samples of three digits and a separator
+      if (this.count > BUFFER_SIZE - 12) {
+        this.flush();
+      }
+      int rgb = src[index + col];
+      this.count = put(bytes, this.count, PackedImage.red(rgb));
+      this.count = put(bytes, this.count, PackedImage.green(rgb));
+      this.count = put(bytes, this.count, PackedImage.blue(rgb));
+      this.pixels++;
+      if (this.pixels % PIXELS_PER_LINE == 0) {
+        // Replaces the separator following the last sample of the line
+        bytes[this.count - 1] = '\n';
+      }
+    }
+  }
+
+  /**
+   * Copies the digits of the sample and a separator into the array.
+   * @return the index following the separator.
+   */
+  private static int put(byte[] bytes, int index, int sample) {
+    int length = DIGIT_COUNTS[sample];
+    System.arraycopy(DIGITS, sample * 4, bytes, index, length);
+    return index + length;
+  }
+
+  /**
+   * Writes the next row of a binary file, adding it to the buffer, which is written out first if
+   * the row does not fit. Rows longer than the buffer are written out on their own.
+   */
+  private void writeBinary(int[] src, int index) {
+    byte[] bytes = this.row;
+    if (this.format == PPMFormat.GREY) {
+      System.arraycopy(src, index, this.luma, 0, this.width);
+      AColorTransform.applyMatrix(Greyscale.MATRIX, this.luma, this.luma, 0, this.width);
+      for (int col = 0; col < this.width; col++) {
+        bytes[col] = (byte) PackedImage.red(this.luma[col]);
+      }
+    } else {
+      for (int col = 0, s = 0; col < this.width; col++, s += 3) {
+        int rgb = src[index + col];
+        bytes[s] = (byte) PackedImage.red(rgb);
+        bytes[s + 1] = (byte) PackedImage.green(rgb);
+        bytes[s + 2] = (byte) PackedImage.blue(rgb);
+      }
+    }
+
+    if (this.count + bytes.length > BUFFER_SIZE) {
+      this.flush();
+    }
+    if (bytes.length > BUFFER_SIZE) {
+      this.write(ByteBuffer.wrap(bytes));
+    } else {
+      System.arraycopy(bytes, 0, this.buffer.array(), this.count, bytes.length);
+      this.count += bytes.length;
+    }
+  }
+
+  private void flush() {
+    this.buffer.position(0);
+    this.buffer.limit(this.count);
+    this.write(this.buffer);
+    this.buffer.clear();
+    this.count = 0;
+  }
+
+  private void write(ByteBuffer bytes) throws IllegalStateException {
+    try {
+      while (bytes.hasRemaining()) {
+        this.channel.write(bytes);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not write PPM file " + this.path + ".");
+    }
+  }
+
+  /**
+   * Writes out any buffered bytes, forces them to the disk, closes the file and moves it to the
+   * path, replacing the file there. A file that is not complete is deleted instead, leaving the
+   * file at the path as it was.
+   * @throws IllegalStateException if the buffered bytes cannot be written, the file cannot be
+   *         moved, or fewer rows than the height of the image were written.
+   */
+  @Override
+  public void close() throws IllegalStateException {
+    boolean moved = false;
+    try {
+      if (this.written != this.height) {
+        throw new IllegalStateException("Only " + this.written + " rows of PPM file "
+            + this.path + " were written.");
+      }
+      if (this.format == PPMFormat.PLAIN && this.pixels % PIXELS_PER_LINE != 0) {
+        this.buffer.array()[this.count - 1] = '\n';
+      }
+      this.flush();
+      try {
+        // The file must be on the disk before it replaces the one at the path
+        this.channel.force(true);
+      } catch (IOException e) {
+        throw new IllegalStateException("Could not write PPM file " + this.path + ".");
+      }
+      this.closeChannel();
+      this.move();
+      moved = true;
+    } finally {
+      this.closeChannel();
+      if (!moved) {
+        try {
+          Files.deleteIfExists(this.partial);
+        } catch (IOException e) {
+          // Only a stray partial file is left behind
+        }
+      }
+    }
+  }
+
+  private void closeChannel() {
+    try {
+      this.channel.close();
+    } catch (IOException e) {
+      // Nothing more can be done with a channel that cannot be closed
+    }
+  }
+
+  private void move() throws IllegalStateException {
+    try {
+      try {
+        Files.move(this.partial, this.target, StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(this.partial, this.target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not write PPM file " + this.path + ".");
+    }
+  }
+}
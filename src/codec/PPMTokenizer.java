@@ -0,0 +1,196 @@
+package codec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the whitespace separated tokens of a PPM file. Bytes are read through a file channel
+ * into one large buffer, comments (from a '#' to the end of its line) are skipped as they are
+ * met, and integers are parsed digit by digit straight from the buffer, so reading a sample
+ * allocates nothing. The binary data following the header of a binary file is mapped into
+ * memory instead of tokenized.
+ */
+public class PPMTokenizer implements Closeable {
+  private static final int BUFFER_SIZE = 1 << 16;
+  // Larger values are not valid samples or dimensions, and stop the parse before it overflows
+  private static final int MAX_VALUE = 1 << 28;
+
+  private final FileChannel channel;
+  private final ByteBuffer buffer;
+  private final byte[] bytes;
+  private int position;
+  private int limit;
+  private long consumed;
+
+  /**
+   * Opens the file at the given path for reading.
+   * @param path the path of the file.
+   * @throws IllegalArgumentException if the path is null.
+   * @throws IllegalStateException if the file cannot be opened.
+   */
+  public PPMTokenizer(String path) throws IllegalArgumentException, IllegalStateException {
+    if (path == null) {
+      throw new IllegalArgumentException("Path must not be null.");
+    }
+    try {
+      this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+    } catch (NoSuchFileException e) {
+      throw new IllegalStateException("File " + path + " not found!");
+    } catch (IOException | RuntimeException e) {
+      throw new IllegalStateException("File " + path + " could not be opened.");
+    }
+    this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    this.bytes = this.buffer.array();
+  }
+
+  /**
+   * Returns the next byte of the file, refilling the buffer when it runs out.
+   * @return the next byte, or -1 at the end of the file.
+   * @throws IllegalStateException if the file cannot be read.
+   */
+  private int read() throws IllegalStateException {
+    if (this.position == this.limit && !this.fill()) {
+      return -1;
+    }
+    this.consumed++;
+    return this.bytes[this.position++] & 0xFF;
+  }
+
+  private boolean fill() throws IllegalStateException {
+    try {
+      this.buffer.clear();
+      int count;
+      do {
+        count = this.channel.read(this.buffer);
+      } while (count == 0);
+      this.position = 0;
+      this.limit = Math.max(count, 0);
+      return count > 0;
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not read PPM file.");
+    }
+  }
+
+  private static boolean isWhitespace(int c) {
+    return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f' || c == 0x0B;
+  }
+
+  /**
+   * Skips whitespace and comments.
+   * @return the first byte of the next token, or -1 at the end of the file.
+   */
+  private int skipToToken() {
+    int c = this.read();
+    while (true) {
+      if (c == '#') {
+        while (c != '\n' && c != '\r' && c != -1) {
+          c = this.read();
+        }
+      } else if (isWhitespace(c)) {
+        c = this.read();
+      } else {
+        return c;
+      }
+    }
+  }
+
+  /**
+   * Reads the next token as a string.
+   * @return the token, or null at the end of the file.
+   * @throws IllegalStateException if the file cannot be read.
+   */
+  public String nextToken() throws IllegalStateException {
+    int c = this.skipToToken();
+    if (c == -1) {
+      return null;
+    }
+    StringBuilder token = new StringBuilder();
+    while (c != -1 && c != '#' && !isWhitespace(c)) {
+      token.append((char) c);
+      c = this.read();
+    }
+    this.skipComment(c);
+    return token.toString();
+  }
+
+  /**
+   * Reads the next token as a non-negative integer.
+   * @return the integer.
+   * @throws IllegalStateException if the file ends, cannot be read, or the token is not a
+   *         non-negative integer.
+   */
+  public int nextInt() throws IllegalStateException {
+    int c = this.skipToToken();
+    if (c == -1) {
+      throw new IllegalStateException("Invalid PPM file: file ended early.");
+    }
+    int value = 0;
+    do {
+      int digit = c - '0';
+      if (digit < 0 || digit > 9 || value > MAX_VALUE) {
+        throw new IllegalStateException("Invalid PPM file: expected a non-negative integer.");
+      }
+      value = value * 10 + digit;
+      c = this.read();
+    } while (c != -1 && c != '#' && !isWhitespace(c));
+    this.skipComment(c);
+    return value;
+  }
+
+  /**
+   * Skips the rest of a comment that directly follows a token, so that the next read starts
+   * after the end of the token's line.
+   * @param c the byte that ended the token.
+   */
+  private void skipComment(int c) {
+    if (c == '#') {
+      while (c != '\n' && c != '\r' && c != -1) {
+        c = this.read();
+      }
+    }
+  }
+
+  /**
+   * Returns the number of bytes of the file consumed so far, including the single whitespace
+   * byte that ended the last token.
+   * @return the offset in the file of the next unread byte.
+   */
+  public long getOffset() {
+    return this.consumed;
+  }
+
+  /**
+   * Maps the given number of bytes of the file into memory, starting at the given offset. The
+   * bytes are read straight from the operating system's page cache as they are used.
+   * @param offset the offset in the file of the first byte to map.
+   * @param length the number of bytes to map.
+   * @return a read only buffer holding the bytes.
+   * @throws IllegalStateException if the file is shorter than the mapped range, or cannot be
+   *         mapped.
+   */
+  public MappedByteBuffer map(long offset, long length) throws IllegalStateException {
+    try {
+      if (this.channel.size() < offset + length) {
+        throw new IllegalStateException("Invalid PPM file: file ended early.");
+      }
+      return this.channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not read PPM file.");
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      this.channel.close();
+    } catch (IOException e) {
+      // Nothing more can be done with a channel that cannot be closed
+    }
+  }
+}
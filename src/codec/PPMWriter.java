@@ -0,0 +1,71 @@
+package codec;
+
+import model.PackedImage;
+
+/**
+ * Writes whole packed images to plain PPM (P3), binary PPM (P6) and binary PGM (P5) files, one
+ * row at a time through a {@link PPMRowWriter}, straight from the image's backing array.
+ */
+public class PPMWriter {
+  private PPMWriter() {
+  }
+
+  /**
+   * Writes the image to the given path as a plain (P3) file, with several pixels per line.
+   * @param image the image to write.
+   * @param path the path of the file, which is replaced if it exists.
+   * @throws IllegalArgumentException if the image or path is null.
+   * @throws IllegalStateException if the file cannot be written.
+   */
+  public static void writePlain(PackedImage image, String path)
+      throws IllegalArgumentException, IllegalStateException {
+    write(image, path, PPMFormat.PLAIN);
+  }
+
+  /**
+   * Writes the image to the given path as a binary color (P6) file.
+   * @param image the image to write.
+   * @param path the path of the file, which is replaced if it exists.
+   * @throws IllegalArgumentException if the image or path is null.
+   * @throws IllegalStateException if the file cannot be written.
+   */
+  public static void writeBinary(PackedImage image, String path)
+      throws IllegalArgumentException, IllegalStateException {
+    write(image, path, PPMFormat.BINARY);
+  }
+
+  /**
+   * Writes the image to the given path as a binary grey (P5) file. Each pixel is written as its
+   * luma, the same value the greyscale operation gives it.
+   * @param image the image to write.
+   * @param path the path of the file, which is replaced if it exists.
+   * @throws IllegalArgumentException if the image or path is null.
+   * @throws IllegalStateException if the file cannot be written.
+   */
+  public static void writeGrey(PackedImage image, String path)
+      throws IllegalArgumentException, IllegalStateException {
+    write(image, path, PPMFormat.GREY);
+  }
+
+  /**
+   * Writes the image to the given path in the given format.
+   * @param image the image to write.
+   * @param path the path of the file, which is replaced if it exists.
+   * @param format the format to write the file in.
+   * @throws IllegalArgumentException if any argument is null.
+   * @throws IllegalStateException if the file cannot be written.
+   */
+  public static void write(PackedImage image, String path, PPMFormat format)
+      throws IllegalArgumentException, IllegalStateException {
+    if (image == null || path == null) {
+      throw new IllegalArgumentException("Image and path must both not be null.");
+    }
+    try (PPMRowWriter out = new PPMRowWriter(path, format)) {
+      out.begin(image.getWidth(), image.getHeight());
+      int[] data = image.getData();
+      for (int row = 0; row < image.getHeight(); row++) {
+        out.writeRow(data, row * image.getWidth());
+      }
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package codec;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+import model.PackedImage;
+
+/**
+ * Converts between packed images and buffered images. The common layouts that ImageIO reads
+ * images into (TYPE_INT_RGB, TYPE_INT_ARGB, TYPE_3BYTE_BGR and TYPE_4BYTE_ABGR) are converted
+ * by reading their data buffer arrays directly, rather than one pixel at a time through the
+ * color model. Any other layout is converted a row at a time by the buffered image itself, which
+ * gives the same pixels but more slowly.
+ */
+public class RasterConverter {
+  private RasterConverter() {
+  }
+
+  /**
+   * Converts the buffered image into a packed image, dropping any alpha channel.
+   * @param img the image to convert.
+   * @return a packed image with the same colors as the given image.
+   * @throws IllegalArgumentException if the image is null.
+   */
+  public static PackedImage toPackedImage(BufferedImage img) throws IllegalArgumentException {
+    if (img == null) {
+      throw new IllegalArgumentException("Image must not be null.");
+    }
+    int width = img.getWidth();
+    int height = img.getHeight();
+    PackedImage image = new PackedImage(width, height);
+    int[] data = image.getData();
+    Raster raster = img.getRaster();
+    // Child rasters of a larger image start partway into the data buffer
+    boolean untranslated = raster.getSampleModelTranslateX() == 0
+        && raster.getSampleModelTranslateY() == 0
+        && raster.getDataBuffer().getNumBanks() == 1;
+
+    switch (untranslated ? img.getType() : BufferedImage.TYPE_CUSTOM) {
+      case BufferedImage.TYPE_INT_RGB:
+      case BufferedImage.TYPE_INT_ARGB:
+        readInts(raster, data, width, height);
+        break;
+      case BufferedImage.TYPE_3BYTE_BGR:
+      case BufferedImage.TYPE_4BYTE_ABGR:
+        readBytes(raster, data, width, height);
+        break;
+      default:
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+          img.getRGB(0, y, width, 1, row, 0, width);
+          for (int x = 0; x < width; x++) {
+            data[y * width + x] = row[x] & 0xFFFFFF;
+          }
+        }
+        break;
+    }
+    return image;
+  }
+
+  private static void readInts(Raster raster, int[] data, int width, int height) {
+    SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) raster.getSampleModel();
+    DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+    int[] pixels = buffer.getData();
+    int stride = model.getScanlineStride();
+    for (int y = 0; y < height; y++) {
+      int src = buffer.getOffset() + y * stride;
+      int dst = y * width;
+      for (int x = 0; x < width; x++) {
+        data[dst + x] = pixels[src + x] & 0xFFFFFF;
+      }
+    }
+  }
+
+  private static void readBytes(Raster raster, int[] data, int width, int height) {
+    PixelInterleavedSampleModel model = (PixelInterleavedSampleModel) raster.getSampleModel();
+    DataBufferByte buffer = (DataBufferByte) raster.getDataBuffer();
+    byte[] bytes = buffer.getData();
+    int stride = model.getScanlineStride();
+    int pixelStride = model.getPixelStride();
+    // The bands are red, green, blue and then any alpha, wherever they sit within a pixel
+    int[] offsets = model.getBandOffsets();
+    int red = offsets[0];
+    int green = offsets[1];
+    int blue = offsets[2];
+    for (int y = 0; y < height; y++) {
+      int src = buffer.getOffset() + y * stride;
+      int dst = y * width;
+      for (int x = 0; x < width; x++, src += pixelStride) {
+        data[dst + x] = ((bytes[src + red] & 0xFF) << 16) | ((bytes[src + green] & 0xFF) << 8)
+            | (bytes[src + blue] & 0xFF);
+      }
+    }
+  }
+
+  /**
+   * Converts the packed image into a new buffered image of TYPE_INT_RGB, whose pixels are laid
+   * out the same way as the packed image's, so each row is a single array copy.
+   * @param image the image to convert.
+   * @return a buffered image with the same colors as the given image.
+   * @throws IllegalArgumentException if the image is null.
+   */
+  public static BufferedImage toBufferedImage(PackedImage image)
+      throws IllegalArgumentException {
+    if (image == null) {
+      throw new IllegalArgumentException("Image must not be null.");
+    }
+    BufferedImage img = new BufferedImage(image.getWidth(), image.getHeight(),
+        BufferedImage.TYPE_INT_RGB);
+    // Copies through the raster rather than taking its array, so the image can still be cached
+    // by the display when it is drawn
+    img.getRaster().setDataElements(0, 0, image.getWidth(), image.getHeight(), image.getData());
+    return img;
+  }
+}
@@ -1,22 +1,22 @@
 package controller;
 
-import java.awt.image.BufferedImage;
-import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
-import java.io.IOException;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
-
-import javax.imageio.ImageIO;
-
+import java.util.concurrent.atomic.AtomicInteger;
+
+import codec.ImageIOCodec;
+import codec.PPMFormat;
+import codec.PPMReader;
+import codec.PPMWriter;
+import controller.script.CommandOutput;
+import controller.script.ScriptCommand;
+import controller.script.ScriptScheduler;
 import model.Component;
 import model.Flip;
 import model.ImageEditorModel;
-import model.Pixel;
 import view.ImageEditorView;
 
 /**
@@ -24,9 +24,16 @@ import view.ImageEditorView;
  * of commands, and facilitation of the output for the user. Runs the program.
  */
 public class SimpleEditorController implements ImageEditorController {
+  /**
+   * The system property that, when true, saves PPM files in the binary (P6) format.
+   */
+  public static final String BINARY_PPM_PROPERTY = "imageeditor.ppm.binary";
+
   protected final ImageEditorModel model;
-  private final ImageEditorView view;
+  protected final ImageEditorView view;
+  private final CommandOutput output;
   private final Scanner scan;
+  private final AtomicInteger errors;
 
   /**
    * Constructs a SimpleEditor controller using the provided parameters: the model, the view for
@@ -44,8 +51,10 @@ public class SimpleEditorController implements ImageEditorController {
     }
 
     this.model = model;
-    this.view = view;
+    this.output = new CommandOutput(view);
+    this.view = this.output;
     this.scan = new Scanner(in); // Instantiates a Scanner with the Readable input provided
+    this.errors = new AtomicInteger();
   }
 
   public SimpleEditorController(ImageEditorModel model, ImageEditorView view) {
@@ -71,91 +80,189 @@ public class SimpleEditorController implements ImageEditorController {
         break;
       }
 
-      String[] args = input.split(" ");
-
-      switch (args[0]) {
-        case "load":
-          if (this.argsError(args, 2)) {
-            this.loadHelp(args[1], args[2]);
-          }
-          break;
-        case "save":
-          if (this.argsError(args, 2)) {
-            this.saveHelp(args[1], args[2]);
-          }
-          break;
-        case "brighten":
-          if (this.argsError(args, 3)) {
-            this.brighten(args[1], args[2], args[3]);
-          }
-          break;
-        case "vertical-flip":
-          if (this.argsError(args, 2)) {
-            this.flip(Flip.VERTICAL, args[1], args[2]);
-          }
-          break;
-        case "horizontal-flip":
-          if (this.argsError(args, 2)) {
-            this.flip(Flip.HORIZONTAL, args[1], args[2]);
-          }
-          break;
-        case "value-component":
-          if (this.argsError(args, 2)) {
-            this.component(Component.VALUE, args[1], args[2]);
-          }
-          break;
-        case "intensity-component":
-          if (this.argsError(args, 2)) {
-            this.component(Component.INTENSITY, args[1], args[2]);
-          }
-          break;
-        case "luma-component":
-          if (this.argsError(args, 2)) {
-            this.component(Component.LUMA, args[1], args[2]);
-          }
-          break;
-        case "red-component":
-          if (this.argsError(args, 2)) {
-            this.component(Component.RED, args[1], args[2]);
-          }
-          break;
-        case "green-component":
-          if (this.argsError(args, 2)) {
-            this.component(Component.GREEN, args[1], args[2]);
-          }
-          break;
-        case "blue-component":
-          if (this.argsError(args, 2)) {
-            this.component(Component.BLUE, args[1], args[2]);
-          }
-          break;
-        case "blur":
-          if (this.argsError(args, 2)) {
-            this.blur(args[1], args[2]);
-          }
-          break;
-        case "sharpen":
-          if (this.argsError(args, 2)) {
-            this.sharpen(args[1], args[2]);
-          }
-          break;
-        case "greyscale":
-          if (this.argsError(args, 2)) {
-            this.greyscale(args[1], args[2]);
-          }
-          break;
-        case "sepia":
-          if (this.argsError(args, 2)) {
-            this.sepia(args[1], args[2]);
-          }
-          break;
-        case "menu":
-          this.welcomeMessage();
-          break;
-        default:
-          this.view.renderMessage("Invalid command...please try again.\n");
+      this.runCommand(input.split(" "));
+    }
+  }
+
+  /**
+   * Runs the commands read from the input, up to the quit command, on the given scheduler,
+   * which runs commands on unrelated layers and files at once. The messages shown, and the
+   * layers and files left behind, are the same as {@link #start()} gives. Every command is read
+   * before any is run, so this is meant for scripts rather than interactive input.
+   * @param scheduler the scheduler to run the commands on.
+   * @throws IllegalArgumentException if the scheduler is null.
+   * @throws IllegalStateException if the input ends before the quit command.
+   */
+  public void start(ScriptScheduler scheduler)
+      throws IllegalArgumentException, IllegalStateException {
+    if (scheduler == null) {
+      throw new IllegalArgumentException("Scheduler must not be null.");
+    }
+    this.welcomeMessage();
+
+    List<ScriptCommand> commands = new ArrayList<>();
+    boolean quit = false;
+    while (this.scan.hasNextLine()) {
+      String input = this.scan.nextLine();
+      if (input.equals("q")) {
+        quit = true;
+        break;
       }
+      commands.add(ScriptCommand.parse(commands.size(), input));
+    }
+
+    scheduler.run(commands, command -> {
+      this.view.renderMessage("Enter a command: ");
+      this.runCommand(command.getArgs());
+    }, this::computeLayer, this.output);
+
+    this.view.renderMessage("Enter a command: ");
+    if (!quit) {
+      throw new IllegalStateException("Not enough inputs.");
     }
+    this.view.renderMessage("Goodbye.");
+  }
+
+  /**
+   * Computes the layer with the given name if the model has left any of its operations to run
+   * once it is read, so that a scheduler can have them run ahead of the commands reading it.
+   * @param name the name of the layer.
+   * @throws IllegalStateException if there is no layer with the name, or it cannot be computed.
+   */
+  protected void computeLayer(String name) throws IllegalStateException {
+    this.model.releasePackedImage(name);
+  }
+
+  /**
+   * Runs a single command, showing its messages on the view.
+   * @param args the arguments of the command, the first of which is the command itself.
+   */
+  protected void runCommand(String[] args) {
+    switch (args[0]) {
+      case "load":
+        if (this.argsError(args, 2)) {
+          this.loadHelp(args[1], args[2]);
+        }
+        break;
+      case "save":
+        if (this.argsError(args, 2)) {
+          this.saveHelp(args[1], args[2]);
+        }
+        break;
+      case "brighten":
+        if (this.argsError(args, 3)) {
+          this.brighten(args[1], args[2], args[3]);
+        }
+        break;
+      case "vertical-flip":
+        if (this.argsError(args, 2)) {
+          this.flip(Flip.VERTICAL, args[1], args[2]);
+        }
+        break;
+      case "horizontal-flip":
+        if (this.argsError(args, 2)) {
+          this.flip(Flip.HORIZONTAL, args[1], args[2]);
+        }
+        break;
+      case "value-component":
+        if (this.argsError(args, 2)) {
+          this.component(Component.VALUE, args[1], args[2]);
+        }
+        break;
+      case "intensity-component":
+        if (this.argsError(args, 2)) {
+          this.component(Component.INTENSITY, args[1], args[2]);
+        }
+        break;
+      case "luma-component":
+        if (this.argsError(args, 2)) {
+          this.component(Component.LUMA, args[1], args[2]);
+        }
+        break;
+      case "red-component":
+        if (this.argsError(args, 2)) {
+          this.component(Component.RED, args[1], args[2]);
+        }
+        break;
+      case "green-component":
+        if (this.argsError(args, 2)) {
+          this.component(Component.GREEN, args[1], args[2]);
+        }
+        break;
+      case "blue-component":
+        if (this.argsError(args, 2)) {
+          this.component(Component.BLUE, args[1], args[2]);
+        }
+        break;
+      case "blur":
+        if (this.argsError(args, 2)) {
+          this.blur(args[1], args[2]);
+        }
+        break;
+      case "sharpen":
+        if (this.argsError(args, 2)) {
+          this.sharpen(args[1], args[2]);
+        }
+        break;
+      case "greyscale":
+        if (this.argsError(args, 2)) {
+          this.greyscale(args[1], args[2]);
+        }
+        break;
+      case "sepia":
+        if (this.argsError(args, 2)) {
+          this.sepia(args[1], args[2]);
+        }
+        break;
+      case "gamma":
+        if (this.argsError(args, 3)) {
+          this.gamma(args[1], args[2], args[3]);
+        }
+        break;
+      case "levels":
+        if (this.argsError(args, 4)) {
+          this.levels(args[1], args[2], args[3], args[4]);
+        }
+        break;
+      case "contrast":
+        if (this.argsError(args, 3)) {
+          this.contrast(args[1], args[2], args[3]);
+        }
+        break;
+      case "invert":
+        if (this.argsError(args, 2)) {
+          this.invert(args[1], args[2]);
+        }
+        break;
+      case "threshold":
+        if (this.argsError(args, 3)) {
+          this.threshold(args[1], args[2], args[3]);
+        }
+        break;
+      case "menu":
+        this.welcomeMessage();
+        break;
+      default:
+        this.renderError("Invalid command...please try again.\n");
+    }
+  }
+
+  /**
+   * Renders a message about a command that could not be run, and counts it as an error.
+   * @param message the message to render.
+   */
+  protected void renderError(String message) {
+    this.errors.incrementAndGet();
+    this.view.renderMessage(message);
+  }
+
+  /**
+   * Returns the number of commands that could not be run so far, because they were invalid or
+   * failed.
+   * @return the number of errors.
+   */
+  public int getErrorCount() {
+    return this.errors.get();
   }
 
   /**
@@ -190,6 +297,16 @@ public class SimpleEditorController implements ImageEditorController {
         "image to sepia\n");
     this.view.renderMessage("- greyscale <image-name> <save-image> - Color transforms the " +
         "image to greyscale\n");
+    this.view.renderMessage("- gamma <value> <image-name> <save-name> - Gamma corrects the "
+        + "image (above 1 brightens, below 1 darkens)\n");
+    this.view.renderMessage("- levels <black> <white> <image-name> <save-name> - Stretches the "
+        + "values from black to white to the full range\n");
+    this.view.renderMessage("- contrast <factor> <image-name> <save-name> - Scales the "
+        + "contrast of the image by the factor\n");
+    this.view.renderMessage("- invert <image-name> <save-name> - Inverts the colors of the "
+        + "image\n");
+    this.view.renderMessage("- threshold <level> <image-name> <save-name> - Turns values at or "
+        + "above the level white and the rest black\n");
     this.view.renderMessage("- menu - Shows this screen again.\n");
     this.view.renderMessage("Type \"q\" if you would like to quit the program.\n");
   }
@@ -205,7 +322,7 @@ public class SimpleEditorController implements ImageEditorController {
     if (args.length == amt + 1) {
       return true;
     }
-    this.view.renderMessage("You have provided an incorrect amount of arguments. "
+    this.renderError("You have provided an incorrect amount of arguments. "
         + "Please try again.\n");
     return false;
   }
@@ -221,36 +338,46 @@ public class SimpleEditorController implements ImageEditorController {
       this.load(path, name);
       this.view.renderMessage("Loading image with name \"" + name + "\".\n");
     } catch (IllegalStateException e) {
-      this.view.renderMessage("The was an error loading the provided file path. Not found or "
+      this.renderError("The was an error loading the provided file path. Not found or "
           + "empty.\n");
     }
   }
 
   /**
-   * Checks to see if the file name ends with ppm or not and loads the image file accordingly
-   * whether it is a PPM file or another type.
+   * Checks to see if the file name ends with ppm or pgm or not and loads the image file
+   * accordingly whether it is a PPM file or another type.
    * @param path the path at which the file is loaded from.
    * @param name the name the file is being stored as in memory.
    * @throws IllegalArgumentException if the path or name is null.
    * @throws IllegalStateException if the program cannot read the file provided.
    */
-  private void load(String path, String name)
+  protected void load(String path, String name)
       throws IllegalArgumentException, IllegalStateException {
     if (path == null || name == null) {
       throw new IllegalArgumentException("Path and name must both not be null.");
     }
 
-    if (path.endsWith(".ppm")) {
+    if (isPPM(path)) {
       this.loadPPM(path, name);
     } else {
       this.loadNotPPM(path, name);
     }
   }
 
+  /**
+   * Checks if the path names a file read and written by the PPM codec, which handles plain and
+   * binary PPM files as well as binary PGM files.
+   * @param path the path of the file.
+   * @return true if the path ends with ppm or pgm.
+   */
+  protected static boolean isPPM(String path) {
+    return path.endsWith(".ppm") || path.endsWith(".pgm");
+  }
+
   /**
    * Loads an image of the type PPM differently than the other file types due to how it is
-   * read into the system. Then calls the accept method in the model which saves this specifc
-   * image in memory.
+   * read into the system, using the shared PPM reader. Then calls the accept method in the model
+   * which saves this specifc image in memory.
    * @param path the path of the image to load.
    * @param name the to save the image in memory as.
    * @throws IllegalArgumentException if either of the parameters are null.
@@ -261,56 +388,12 @@ public class SimpleEditorController implements ImageEditorController {
     if (path == null || name == null) {
       throw new IllegalArgumentException("Path and name must both not be null.");
     }
-    Scanner sc;
-    try {
-      sc = new Scanner(new FileInputStream(path));
-    } catch (FileNotFoundException e) {
-      throw new IllegalStateException("File is not found");
-    }
-
-    StringBuilder builder = new StringBuilder();
-
-    while (sc.hasNextLine()) {
-      String s = sc.nextLine();
-      if (s.charAt(0) != '#') {
-        builder.append(s).append(System.lineSeparator());
-      }
-    }
-
-    sc = new Scanner(builder.toString());
-    String token;
-
-    try {
-      token = sc.next();
-    } catch (NoSuchElementException e) {
-      throw new IllegalStateException("File is empty");
-    }
-
-    if (!token.equals("P3")) {
-      throw new IllegalStateException("Invalid PPM file: plain RAW file should begin with P3");
-    }
-
-    int width = sc.nextInt();
-    int height = sc.nextInt();
-    Pixel[][] loadedImage = new Pixel[height][width];
-
-    int maxValue = sc.nextInt(); // Not used, but needs to be scanned
-
-    for (int i = 0; i < height; i++) {
-      for (int j = 0; j < width; j++) {
-        int r = sc.nextInt();
-        int g = sc.nextInt();
-        int b = sc.nextInt();
-        Pixel p = new Pixel(r, g, b);
-        loadedImage[i][j] = p;
-      }
-    }
-    this.model.acceptNewImage(loadedImage, name);
+    this.model.acceptNewImage(PPMReader.read(path), name);
   }
 
   /**
-   * Loads all other supported file types than PPM through a BufferedImage, and inputs the array
-   * of Pixels into the HashMap with the given name.
+   * Loads all other supported file types than PPM through a BufferedImage, converts it in bulk
+   * into a packed image, and inputs the packed image into the model with the given name.
    * @param path the path of the file to be read.
    * @param name the name to store the array in memory with.
    * @throws IllegalArgumentException if either of the parameters are null.
@@ -321,25 +404,7 @@ public class SimpleEditorController implements ImageEditorController {
     if (path == null || name == null) {
       throw new IllegalArgumentException("Path and name must both not be null.");
     }
-    BufferedImage img;
-    try {
-      img = ImageIO.read(new File(path));
-    } catch (IOException e) {
-      throw new IllegalStateException("Program could not read JPG");
-    }
-
-    Pixel[][] loadedImage = new Pixel[img.getHeight()][img.getWidth()];
-    for (int i = 0; i < img.getHeight(); i++) {
-      for (int j = 0; j < img.getWidth(); j++) {
-        int color = img.getRGB(j, i);
-        int r = (color >> 16) & 0xFF;
-        int g = (color >> 8) & 0xFF;
-        int b = color & 0xFF;
-        Pixel p = new Pixel(r, g, b);
-        loadedImage[i][j] = p;
-      }
-    }
-    this.model.acceptNewImage(loadedImage, name);
+    this.model.acceptNewImage(ImageIOCodec.read(path), name);
   }
 
   /**
@@ -353,7 +418,7 @@ public class SimpleEditorController implements ImageEditorController {
       this.save(path, name);
       this.view.renderMessage("Successfully saved image to path \"" + path + "\".\n");
     } catch (IllegalStateException e) {
-      this.view.renderMessage("ERROR: Couldn't save the provided file. Please ensure the name and "
+      this.renderError("ERROR: Couldn't save the provided file. Please ensure the name and "
           + "path are correct and try again.\n");
     }
   }
@@ -365,12 +430,12 @@ public class SimpleEditorController implements ImageEditorController {
    * @throws IllegalArgumentException if the path or name is null.
    * @throws IllegalStateException if the program could not save the file properly.
    */
-  private void save(String path, String name)
+  protected void save(String path, String name)
       throws IllegalArgumentException, IllegalStateException {
     if (path == null || name == null) {
       throw new IllegalArgumentException("Path and name must both not be null.");
     }
-    if (path.endsWith(".ppm")) {
+    if (isPPM(path)) {
       this.savePPM(path,name);
     } else {
       this.saveNotPPM(path,name);
@@ -378,7 +443,8 @@ public class SimpleEditorController implements ImageEditorController {
   }
 
   /**
-   * Handles the saving of images that are of type PPM.
+   * Handles the saving of images that are of type PPM, in the format chosen by
+   * {@link #ppmFormat(String)}.
    * @param path the name of the path to save the file to.
    * @param name the image name to save from memory.
    * @throws IllegalArgumentException if either of the parameters are null.
@@ -389,29 +455,20 @@ public class SimpleEditorController implements ImageEditorController {
     if (path == null || name == null) {
       throw new IllegalArgumentException("Path and name must both not be null.");
     }
-    try {
-      BufferedWriter writer = new BufferedWriter(new FileWriter(path));
-      Pixel[][] image = this.model.releaseImage(name);
-
-      writer.write("P3" + System.lineSeparator());
-      writer.write("# Created by SimpleImage program. OOD Assignment 4"
-          + System.lineSeparator());
-      writer.write(image[0].length + " " + image.length + System.lineSeparator());
-      writer.write("255" + System.lineSeparator());
-
-      for (int i = 0; i < image.length; i++) {
-        for (int j = 0; j < image[i].length; j++) {
-          writer.write(image[i][j].getRed() + System.lineSeparator());
-          writer.write(image[i][j].getGreen() + System.lineSeparator());
-          writer.write(image[i][j].getBlue() + System.lineSeparator());
-        }
-      }
-
-      writer.close();
+    PPMWriter.write(this.model.releasePackedImage(name), path, ppmFormat(path));
+  }
 
-    } catch (IOException e) {
-      throw new IllegalStateException("Editor could not properly save file.");
+  /**
+   * Chooses the format to save a PPM or PGM file in: binary grey for PGM files, and plain for
+   * PPM files unless the {@value #BINARY_PPM_PROPERTY} system property is true.
+   * @param path the path of the file.
+   * @return the format to save the file in.
+   */
+  protected static PPMFormat ppmFormat(String path) {
+    if (path.endsWith(".pgm")) {
+      return PPMFormat.GREY;
     }
+    return Boolean.getBoolean(BINARY_PPM_PROPERTY) ? PPMFormat.BINARY : PPMFormat.PLAIN;
   }
 
   /**
@@ -426,27 +483,7 @@ public class SimpleEditorController implements ImageEditorController {
     if (path == null || name == null) {
       throw new IllegalArgumentException("Path and name must both not be null.");
     }
-    try {
-      Pixel[][] image = this.model.releaseImage(name);
-      BufferedImage img = new BufferedImage(image[0].length, image.length, 1);
-
-      for (int i = 0; i < image.length; i++) {
-        for (int j = 0; j < image[i].length; j++) {
-          Pixel p = image[i][j];
-          int color = (p.getRed() << 16) | (p.getGreen() << 8) | p.getBlue();
-          img.setRGB(j, i, color);
-        }
-      }
-
-      String ext = path.substring(path.length() - 3);
-      if (!(ext.equals("jpg") || ext.equals("png") || ext.equals("bmp"))) {
-        throw new IllegalStateException("File extension not recognized");
-      }
-
-      ImageIO.write(img, ext, new File(path));
-    } catch (IOException e) {
-      throw new IllegalStateException("Couldn't properly save file");
-    }
+    ImageIOCodec.write(this.model.releasePackedImage(name), path);
   }
 
   /**
@@ -461,7 +498,7 @@ public class SimpleEditorController implements ImageEditorController {
     try {
       value = Integer.parseInt(val);
     } catch (NumberFormatException e) {
-      this.view.renderMessage("You did not enter a valid integer for the first argument.\n");
+      this.renderError("You did not enter a valid integer for the first argument.\n");
       return;
     }
 
@@ -469,7 +506,7 @@ public class SimpleEditorController implements ImageEditorController {
       this.model.brighten(value, beforeImage, afterImage);
       this.view.renderMessage("Brightening image by " + val + ".\n");
     } catch (IllegalStateException e) {
-      this.view.renderMessage("ERROR: The provided image name was not found.\n");
+      this.renderError("ERROR: The provided image name was not found.\n");
     }
   }
 
@@ -485,7 +522,7 @@ public class SimpleEditorController implements ImageEditorController {
       this.model.flip(f, beforeImage, afterImage);
       this.view.renderMessage("Flipping the image. \n");
     } catch (IllegalStateException e) {
-      this.view.renderMessage("ERROR: The provided image name was not found.\n");
+      this.renderError("ERROR: The provided image name was not found.\n");
     }
   }
 
@@ -501,7 +538,7 @@ public class SimpleEditorController implements ImageEditorController {
       this.model.component(c, beforeImage, afterImage);
       this.view.renderMessage("Rendering the component " + c + " for the image.\n");
     } catch (IllegalStateException e) {
-      this.view.renderMessage("ERROR: The provided image name was not found.\n");
+      this.renderError("ERROR: The provided image name was not found.\n");
     }
   }
 
@@ -516,7 +553,7 @@ public class SimpleEditorController implements ImageEditorController {
       this.model.blur(beforeImage, afterImage);
       this.view.renderMessage("Blurring the image.\n");
     } catch (IllegalStateException e) {
-      this.view.renderMessage("ERROR: The provided image name was not found.\n");
+      this.renderError("ERROR: The provided image name was not found.\n");
     }
   }
 
@@ -531,7 +568,7 @@ public class SimpleEditorController implements ImageEditorController {
       this.model.sharpen(beforeImage, afterImage);
       this.view.renderMessage("Sharpening the image.\n");
     } catch (IllegalStateException e) {
-      this.view.renderMessage("ERROR: The provided image name was not found.\n");
+      this.renderError("ERROR: The provided image name was not found.\n");
     }
   }
 
@@ -546,7 +583,7 @@ public class SimpleEditorController implements ImageEditorController {
       this.model.greyscale(beforeImage, afterImage);
       this.view.renderMessage("Transforming the image.\n");
     } catch (IllegalStateException e) {
-      this.view.renderMessage("ERROR: The provided image name was not found.\n");
+      this.renderError("ERROR: The provided image name was not found.\n");
     }
   }
 
@@ -561,7 +598,129 @@ public class SimpleEditorController implements ImageEditorController {
       this.model.sepia(beforeImage, afterImage);
       this.view.renderMessage("Transforming the image.\n");
     } catch (IllegalStateException e) {
-      this.view.renderMessage("ERROR: The provided image name was not found.\n");
+      this.renderError("ERROR: The provided image name was not found.\n");
+    }
+  }
+
+  /**
+   * Handles the gamma correction of images for the controller. Adds the subsequent messages and
+   * then calls the model to handle the task internally.
+   * @param val the gamma to correct by, as a String from the Scanner.
+   * @param beforeImage the name of the image in memory to conduct the operation on.
+   * @param afterImage the name to save the resulting image in memory.
+   */
+  protected void gamma(String val, String beforeImage, String afterImage) {
+    double value;
+    try {
+      value = Double.parseDouble(val);
+    } catch (NumberFormatException e) {
+      this.renderError("You did not enter a valid number for the first argument.\n");
+      return;
+    }
+
+    try {
+      this.model.gamma(value, beforeImage, afterImage);
+      this.view.renderMessage("Gamma correcting image by " + val + ".\n");
+    } catch (IllegalArgumentException e) {
+      this.renderError("ERROR: " + e.getMessage() + ".\n");
+    } catch (IllegalStateException e) {
+      this.renderError("ERROR: The provided image name was not found.\n");
+    }
+  }
+
+  /**
+   * Handles the levels adjustment of images for the controller. Adds the subsequent messages and
+   * then calls the model to handle the task internally.
+   * @param black the value that becomes black, as a String from the Scanner.
+   * @param white the value that becomes white, as a String from the Scanner.
+   * @param beforeImage the name of the image in memory to conduct the operation on.
+   * @param afterImage the name to save the resulting image in memory.
+   */
+  protected void levels(String black, String white, String beforeImage, String afterImage) {
+    int blackValue;
+    int whiteValue;
+    try {
+      blackValue = Integer.parseInt(black);
+      whiteValue = Integer.parseInt(white);
+    } catch (NumberFormatException e) {
+      this.renderError("You did not enter valid integers for the first two arguments.\n");
+      return;
+    }
+
+    try {
+      this.model.levels(blackValue, whiteValue, beforeImage, afterImage);
+      this.view.renderMessage("Adjusting levels of image to " + black + "-" + white + ".\n");
+    } catch (IllegalArgumentException e) {
+      this.renderError("ERROR: " + e.getMessage() + ".\n");
+    } catch (IllegalStateException e) {
+      this.renderError("ERROR: The provided image name was not found.\n");
+    }
+  }
+
+  /**
+   * Handles the contrast adjustment of images for the controller. Adds the subsequent messages
+   * and then calls the model to handle the task internally.
+   * @param val the factor to scale contrast by, as a String from the Scanner.
+   * @param beforeImage the name of the image in memory to conduct the operation on.
+   * @param afterImage the name to save the resulting image in memory.
+   */
+  protected void contrast(String val, String beforeImage, String afterImage) {
+    double value;
+    try {
+      value = Double.parseDouble(val);
+    } catch (NumberFormatException e) {
+      this.renderError("You did not enter a valid number for the first argument.\n");
+      return;
+    }
+
+    try {
+      this.model.contrast(value, beforeImage, afterImage);
+      this.view.renderMessage("Scaling contrast of image by " + val + ".\n");
+    } catch (IllegalArgumentException e) {
+      this.renderError("ERROR: " + e.getMessage() + ".\n");
+    } catch (IllegalStateException e) {
+      this.renderError("ERROR: The provided image name was not found.\n");
+    }
+  }
+
+  /**
+   * Handles the inversion of images for the controller. Adds the subsequent messages and then
+   * calls the model to handle the task internally.
+   * @param beforeImage the name of the image in memory to conduct the operation on.
+   * @param afterImage the name to save the resulting image in memory.
+   */
+  protected void invert(String beforeImage, String afterImage) {
+    try {
+      this.model.invert(beforeImage, afterImage);
+      this.view.renderMessage("Inverting the image.\n");
+    } catch (IllegalStateException e) {
+      this.renderError("ERROR: The provided image name was not found.\n");
+    }
+  }
+
+  /**
+   * Handles the thresholding of images for the controller. Adds the subsequent messages and then
+   * calls the model to handle the task internally.
+   * @param val the lowest value that becomes white, as a String from the Scanner.
+   * @param beforeImage the name of the image in memory to conduct the operation on.
+   * @param afterImage the name to save the resulting image in memory.
+   */
+  protected void threshold(String val, String beforeImage, String afterImage) {
+    int value;
+    try {
+      value = Integer.parseInt(val);
+    } catch (NumberFormatException e) {
+      this.renderError("You did not enter a valid integer for the first argument.\n");
+      return;
+    }
+
+    try {
+      this.model.threshold(value, beforeImage, afterImage);
+      this.view.renderMessage("Thresholding image at " + val + ".\n");
+    } catch (IllegalArgumentException e) {
+      this.renderError("ERROR: " + e.getMessage() + ".\n");
+    } catch (IllegalStateException e) {
+      this.renderError("ERROR: The provided image name was not found.\n");
     }
   }
 }
@@ -0,0 +1,144 @@
+package controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+import codec.PPMRowReader;
+import codec.PPMRowWriter;
+import model.Flip;
+import model.stream.StreamEditorModel;
+import view.ImageEditorView;
+
+/**
+ * Implementation of the controller that runs scripts on a {@link StreamEditorModel}, so that
+ * images larger than memory can be edited. PPM and PGM files are loaded as streamed sources and
+ * saved a row at a time as their rows are computed. Other file types cannot be read or written
+ * a row at a time, so they are loaded into memory and must fit in it when they are saved.
+ *
+ * <p>A streamed layer reads its file again each time it is saved, so saving over a file that a
+ * layer is read from first copies that file aside, and the layers read from it read the copy
+ * from then on.
+ */
+public class StreamEditorController extends SimpleEditorController {
+  private final StreamEditorModel streamModel;
+
+  /**
+   * Constructs a controller running the commands read from the given input on the given model.
+   * @param model the streaming model to run the commands on.
+   * @param view the view providing output for the editor.
+   * @param in the means of input, as a Readable, for the program.
+   * @throws IllegalArgumentException if any of the provided parameters are null.
+   */
+  public StreamEditorController(StreamEditorModel model, ImageEditorView view, Readable in)
+      throws IllegalArgumentException {
+    super(model, view, in);
+    this.streamModel = model;
+  }
+
+  /**
+   * Loads the file at the given path as a streamed source if it is a PPM or PGM file. The
+   * header is read once here, so that a missing or invalid file is reported when it is loaded.
+   * @param path the path at which the file is loaded from.
+   * @param name the name the file is being stored as.
+   * @throws IllegalArgumentException if the path or name is null.
+   * @throws IllegalStateException if the program cannot read the file provided.
+   */
+  @Override
+  protected void load(String path, String name)
+      throws IllegalArgumentException, IllegalStateException {
+    if (path == null || name == null || !isPPM(path)) {
+      super.load(path, name);
+      return;
+    }
+    new PPMRowReader(path).close();
+    this.streamModel.acceptNewSource(() -> new PPMRowReader(path), source(path), name);
+  }
+
+  /**
+   * Saves the given layer to a PPM or PGM file a row at a time, as its rows are computed.
+   * @param path the path where the file is being saved.
+   * @param name the name of the layer to save.
+   * @throws IllegalArgumentException if the path or name is null.
+   * @throws IllegalStateException if the program could not save the file properly.
+   */
+  @Override
+  protected void save(String path, String name)
+      throws IllegalArgumentException, IllegalStateException {
+    if (path == null || name == null || !isPPM(path)) {
+      super.save(path, name);
+      return;
+    }
+    // Checked before the file is created, so a missing layer leaves no empty file behind
+    if (!Arrays.asList(this.streamModel.getListOfLayers()).contains(name)) {
+      throw new IllegalStateException("Image \"" + name + "\" not found in saved list.");
+    }
+    String target = source(path);
+    if (this.streamModel.isReadFrom(target)) {
+      this.snapshot(target);
+    }
+    try (PPMRowWriter out = new PPMRowWriter(path, ppmFormat(path))) {
+      this.streamModel.write(name, out);
+    }
+  }
+
+  /**
+   * Copies the file at the given source aside and has every layer read from it read the copy
+   * instead, so that the file can be replaced. The copy is deleted when the program exits.
+   * @throws IllegalStateException if the file cannot be copied.
+   */
+  private void snapshot(String source) throws IllegalStateException {
+    try {
+      File copy = Files.createTempFile("stream", ".snapshot").toFile();
+      copy.deleteOnExit();
+      Files.copy(Paths.get(source), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      String path = copy.getPath();
+      this.streamModel.replaceSource(source, () -> new PPMRowReader(path), path);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not copy " + source + " before replacing it.");
+    }
+  }
+
+  /**
+   * Names the file at the given path the same way for every path leading to it, so that a layer
+   * read from it is found whichever path it is saved to.
+   * @param path the path of the file.
+   * @return the real path of the file if it exists, or else its absolute path.
+   */
+  private static String source(String path) {
+    try {
+      Path file = Paths.get(path);
+      try {
+        return file.toRealPath().toString();
+      } catch (IOException e) {
+        return file.toAbsolutePath().normalize().toString();
+      }
+    } catch (InvalidPathException e) {
+      return path;
+    }
+  }
+
+  /**
+   * Computes nothing, as streamed layers are only ever computed a row at a time as they are
+   * written.
+   * @param name the name of the layer.
+   */
+  @Override
+  protected void computeLayer(String name) {
+    // Computing the whole layer would hold it in memory, which streaming avoids
+  }
+
+  @Override
+  protected void flip(Flip f, String beforeImage, String afterImage) {
+    try {
+      super.flip(f, beforeImage, afterImage);
+    } catch (UnsupportedOperationException e) {
+      this.renderError("ERROR: " + e.getMessage() + ".\n");
+    }
+  }
+}
@@ -49,7 +49,7 @@ public class SimpleEditorGUIController extends SimpleEditorController
 
   /**
    * This static inner class represents a FilenameFilter implementation that ensures the file
-   * types when saving and loading are one of the following: png, jpg, jpeg, ppm, or bmp.
+   * types when saving and loading are one of the following: png, jpg, jpeg, ppm, pgm, or bmp.
    */
   private static class EditorFilter implements FilenameFilter {
     @Override
@@ -58,6 +58,7 @@ public class SimpleEditorGUIController extends SimpleEditorController
           || name.endsWith(".jpg")
           || name.endsWith(".jpeg")
           || name.endsWith(".ppm")
+          || name.endsWith(".pgm")
           || name.endsWith(".bmp");
     }
   }
@@ -95,7 +96,8 @@ public class SimpleEditorGUIController extends SimpleEditorController
 
         String savePath = save.getDirectory() + save.getFile();
         if (!(savePath.endsWith(".png") || savePath.endsWith(".jpg") || savePath.endsWith(".ppm")
-            || savePath.endsWith(".jpeg") || savePath.endsWith(".bmp"))) {
+            || savePath.endsWith(".pgm") || savePath.endsWith(".jpeg")
+            || savePath.endsWith(".bmp"))) {
           savePath = savePath + ".png";
         }
         if (save.getFile() != null) {
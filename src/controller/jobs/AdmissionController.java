@@ -0,0 +1,205 @@
+package controller.jobs;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+
+import codec.ImageIOCodec;
+import codec.PPMRowReader;
+import controller.script.ScriptCommand;
+
+/**
+ * Lets jobs start only while the memory they are estimated to need fits in a budget along with
+ * the jobs already running, so that many large images do not run out of memory by being
+ * processed all at once. Jobs that do not fit wait in a queue and start in the order they came,
+ * and a job needing more than the whole budget starts once nothing else is running. The queue
+ * holds a limited number of jobs; a job arriving when it is full either waits for room or is
+ * rejected.
+ *
+ * <p>A job is estimated to need four bytes per pixel of its input image for every layer its
+ * script makes, plus one for the image being computed. The size of the image is read from the
+ * header of its file, and is guessed from the size of the file when the header cannot be read.
+ */
+public class AdmissionController {
+  private static final int BYTES_PER_PIXEL = 4;
+  // Bytes of decoded pixels assumed per byte of an image file whose header cannot be read
+  private static final int COMPRESSION_RATIO = 10;
+
+  private final long budget;
+  private final int maxQueued;
+  private final Queue<Object> queue;
+  private long admitted;
+  private long rejected;
+
+  /**
+   * Constructs a controller with the given budget and queue limit, with no jobs running.
+   * @param budget the number of bytes the running jobs may be estimated to need.
+   * @param maxQueued the number of jobs that may wait for memory at once.
+   * @throws IllegalArgumentException if the budget is not positive or the limit is negative.
+   */
+  public AdmissionController(long budget, int maxQueued) throws IllegalArgumentException {
+    if (budget < 1 || maxQueued < 0) {
+      throw new IllegalArgumentException("Budget must be positive and queue limit must not be "
+          + "negative.");
+    }
+    this.budget = budget;
+    this.maxQueued = maxQueued;
+    this.queue = new ArrayDeque<>();
+  }
+
+  /**
+   * Estimates how many bytes the given job needs at most at once, from the size of its input
+   * image and the number of layers its script makes.
+   * @param job the job.
+   * @return the estimated number of bytes.
+   * @throws IllegalArgumentException if the job is null.
+   */
+  public static long estimateBytes(ScriptJob job) throws IllegalArgumentException {
+    if (job == null) {
+      throw new IllegalArgumentException("Job must not be null.");
+    }
+    Set<String> layers = new HashSet<>();
+    String[] lines = job.getScript().split("\n");
+    for (int i = 0; i < lines.length; i++) {
+      for (String written : ScriptCommand.parse(i, lines[i]).getWrites()) {
+        if (written.startsWith(ScriptCommand.LAYER_PREFIX)) {
+          layers.add(written);
+        }
+      }
+    }
+    return imageBytes(job.getInput()) * (layers.size() + 1);
+  }
+
+  /**
+   * Estimates how many bytes the given image takes once loaded, from the dimensions in the
+   * header of its file, or from the size of the file if the header cannot be read.
+   * @param input the image file.
+   * @return the estimated number of bytes.
+   */
+  static long imageBytes(File input) {
+    String name = input.getName().toLowerCase(Locale.ROOT);
+    try {
+      if (name.endsWith(".ppm") || name.endsWith(".pgm")) {
+        try (PPMRowReader reader = new PPMRowReader(input.getPath())) {
+          return (long) BYTES_PER_PIXEL * reader.getWidth() * reader.getHeight();
+        }
+      }
+      if (input.isFile()) {
+        int[] size = ImageIOCodec.readSize(input.getPath());
+        return (long) BYTES_PER_PIXEL * size[0] * size[1];
+      }
+    } catch (IllegalStateException e) {
+      // Estimated from the file size below, and reported when the job loads it
+    }
+    return Math.max(1, input.length()) * COMPRESSION_RATIO;
+  }
+
+  /**
+   * Waits until the given number of bytes fits in the budget and every job that came before has
+   * started, then counts them as taken. If the queue is full, the call either waits for room in
+   * it or is rejected.
+   * @param bytes the number of bytes the job is estimated to need.
+   * @param waitForRoom whether to wait for room in a full queue rather than be rejected.
+   * @throws IllegalArgumentException if the number of bytes is negative.
+   * @throws IllegalStateException if the queue is full and the call does not wait for room.
+   * @throws InterruptedException if the thread is interrupted while waiting.
+   */
+  public synchronized void admit(long bytes, boolean waitForRoom)
+      throws IllegalArgumentException, IllegalStateException, InterruptedException {
+    if (bytes < 0) {
+      throw new IllegalArgumentException("Bytes must not be negative.");
+    }
+    while (!(this.queue.isEmpty() && this.fits(bytes)) && this.queue.size() >= this.maxQueued) {
+      if (!waitForRoom) {
+        this.rejected++;
+        throw new IllegalStateException(String.format(Locale.ROOT,
+            "Job rejected: %d jobs are already waiting for memory, and %.1f of %.1f MB are in "
+                + "use.", this.queue.size(), this.admitted / 1e6, this.budget / 1e6));
+      }
+      this.wait();
+    }
+
+    Object turn = new Object();
+    this.queue.add(turn);
+    try {
+      while (this.queue.peek() != turn || !this.fits(bytes)) {
+        this.wait();
+      }
+    } catch (InterruptedException e) {
+      this.queue.remove(turn);
+      this.notifyAll();
+      throw e;
+    }
+    this.queue.remove();
+    this.admitted += bytes;
+    // The next job in the queue may fit too, and there is room in the queue for another
+    this.notifyAll();
+  }
+
+  private boolean fits(long bytes) {
+    return this.admitted == 0 || this.admitted + bytes <= this.budget;
+  }
+
+  /**
+   * Returns bytes taken by a job that has finished to the budget.
+   * @param bytes the number of bytes the job was admitted with.
+   */
+  public synchronized void release(long bytes) {
+    this.admitted -= bytes;
+    this.notifyAll();
+  }
+
+  /**
+   * Returns the number of bytes the running jobs may be estimated to need.
+   * @return the budget in bytes.
+   */
+  public long getBudget() {
+    return this.budget;
+  }
+
+  /**
+   * Returns the number of jobs that may wait for memory at once.
+   * @return the queue limit.
+   */
+  public int getMaxQueued() {
+    return this.maxQueued;
+  }
+
+  /**
+   * Returns the number of bytes the running jobs are estimated to need.
+   * @return the admitted bytes.
+   */
+  public synchronized long getAdmittedBytes() {
+    return this.admitted;
+  }
+
+  /**
+   * Returns the number of jobs waiting for memory.
+   * @return the queue depth.
+   */
+  public synchronized int getQueueDepth() {
+    return this.queue.size();
+  }
+
+  /**
+   * Returns the number of jobs rejected because the queue was full.
+   * @return the number of rejected jobs.
+   */
+  public synchronized long getRejected() {
+    return this.rejected;
+  }
+
+  /**
+   * Returns a one line summary of the memory in use and the jobs waiting for it.
+   * @return the summary.
+   */
+  @Override
+  public synchronized String toString() {
+    return String.format(Locale.ROOT, "memory: %.1f of %.1f MB in use, %d of %d queued, %d "
+        + "rejected", this.admitted / 1e6, this.budget / 1e6, this.queue.size(), this.maxQueued,
+        this.rejected);
+  }
+}
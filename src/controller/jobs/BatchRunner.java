@@ -0,0 +1,255 @@
+package controller.jobs;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import controller.SimpleEditorController;
+import controller.script.StagedScheduler;
+import model.SimpleEditorModel;
+import model.parallel.RowExecutor;
+import model.parallel.StageMetrics;
+import model.store.LayerStore;
+import view.SimpleEditorView;
+
+/**
+ * Runs script jobs within one program, so that a script can be applied to many images without
+ * starting a program for each. Each job runs on its own model and controller, and the loaded
+ * layers of every job share one layer store.
+ *
+ * <p>Each job runs on its own virtual thread where the JDK has them, where it mostly waits for
+ * its files to be read and written, while the pixel work of every job runs on one pool with a
+ * fixed number of worker threads. Jobs waiting on files then do not hold a processor, and the
+ * processors are not shared by more threads than they have. Without virtual threads a few jobs
+ * per worker run at once on platform threads. The jobs and the pixel work are counted in
+ * {@link #getMetrics()}.
+ *
+ * <p>A job is only started once its {@link AdmissionController} lets it, while the memory it is
+ * estimated to need fits in the memory budget along with the jobs already running. Jobs given
+ * to {@link #run(List)} wait for room when the queue of jobs waiting for memory is full, while
+ * jobs sent to a server are rejected.
+ *
+ * <p>A runner may run the scripts of its jobs on a {@link StagedScheduler}, so that some jobs
+ * load their images while others process theirs and others save theirs, each on the threads of
+ * its own stage. Otherwise each job runs its script line by line on its own thread.
+ */
+public class BatchRunner {
+  /**
+   * The system property setting how many jobs may wait for memory at once in a runner made
+   * without arguments.
+   */
+  public static final String QUEUE_PROPERTY = "imageeditor.jobs.queue";
+  /**
+   * The number of jobs that may wait for memory at once when no other limit is given.
+   */
+  public static final int DEFAULT_MAX_QUEUED = 256;
+
+  // Jobs per worker run at once without virtual threads, so some use files while others compute
+  private static final int JOBS_PER_WORKER = 4;
+
+  private final int workers;
+  private final AdmissionController admission;
+  private final LayerStore store;
+  private final RowExecutor executor;
+  private final StageMetrics jobs;
+  private final StagedScheduler pipeline;
+
+  /**
+   * Constructs a runner with one worker per available processor, a budget of half of the
+   * maximum heap size, and room for as many jobs waiting for memory as the
+   * "imageeditor.jobs.queue" system property says, or {@link #DEFAULT_MAX_QUEUED}. Jobs run on a
+   * pipeline with the default numbers of threads.
+   */
+  public BatchRunner() {
+    this(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory() / 2,
+        Math.max(0, Integer.getInteger(QUEUE_PROPERTY, DEFAULT_MAX_QUEUED)),
+        new StagedScheduler());
+  }
+
+  /**
+   * Constructs a runner with the given number of workers and memory budget, and room for
+   * {@link #DEFAULT_MAX_QUEUED} jobs waiting for memory.
+   * @param workers the number of threads running the pixel work of the jobs.
+   * @param budget the number of bytes the running jobs may be estimated to need.
+   * @throws IllegalArgumentException if either argument is not positive.
+   */
+  public BatchRunner(int workers, long budget) throws IllegalArgumentException {
+    this(workers, budget, DEFAULT_MAX_QUEUED);
+  }
+
+  /**
+   * Constructs a runner with the given number of workers, memory budget and queue limit.
+   * @param workers the number of threads running the pixel work of the jobs.
+   * @param budget the number of bytes the running jobs may be estimated to need.
+   * @param maxQueued the number of jobs that may wait for memory at once.
+   * @throws IllegalArgumentException if the workers or budget are not positive, or the limit is
+   *         negative.
+   */
+  public BatchRunner(int workers, long budget, int maxQueued) throws IllegalArgumentException {
+    this(workers, budget, maxQueued, null);
+  }
+
+  /**
+   * Constructs a runner with the given number of workers, memory budget and queue limit, which
+   * runs the scripts of its jobs on the given pipeline.
+   * @param workers the number of threads running the pixel work of the jobs.
+   * @param budget the number of bytes the running jobs may be estimated to need.
+   * @param maxQueued the number of jobs that may wait for memory at once.
+   * @param pipeline the pipeline to run scripts on, or null to run them line by line.
+   * @throws IllegalArgumentException if the workers or budget are not positive, or the limit is
+   *         negative.
+   */
+  public BatchRunner(int workers, long budget, int maxQueued, StagedScheduler pipeline)
+      throws IllegalArgumentException {
+    if (workers < 1) {
+      throw new IllegalArgumentException("Workers must be positive.");
+    }
+    this.workers = workers;
+    this.admission = new AdmissionController(budget, maxQueued);
+    this.store = new LayerStore();
+    this.executor = new RowExecutor(workers, true);
+    this.jobs = new StageMetrics("jobs");
+    this.pipeline = pipeline;
+  }
+
+  /**
+   * Runs every job, creating their output directories as needed, and waits for all of them to
+   * finish.
+   * @param jobs the jobs to run.
+   * @return the result of each job, in the order of the jobs.
+   * @throws IllegalArgumentException if the jobs are null.
+   * @throws IllegalStateException if the running thread is interrupted.
+   */
+  public List<JobResult> run(List<ScriptJob> jobs)
+      throws IllegalArgumentException, IllegalStateException {
+    if (jobs == null) {
+      throw new IllegalArgumentException("Jobs must not be null.");
+    }
+    ExecutorService pool = this.newJobExecutor("batch-job");
+    try {
+      List<Future<JobResult>> futures = new ArrayList<>();
+      for (ScriptJob job : jobs) {
+        futures.add(pool.submit(() -> this.admitAndRun(job, true)));
+      }
+      List<JobResult> results = new ArrayList<>();
+      for (Future<JobResult> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Batch was interrupted.");
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Job could not be run: " + e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Returns the number of threads running the pixel work of the jobs.
+   * @return the number of workers.
+   */
+  public int getWorkers() {
+    return this.workers;
+  }
+
+  /**
+   * Returns the admission controller deciding when jobs start.
+   * @return the admission controller.
+   */
+  public AdmissionController getAdmission() {
+    return this.admission;
+  }
+
+  /**
+   * Returns the counts of the jobs, which wait in their queue until they fit in the memory
+   * budget, of the stages of the pipeline if there is one, and of the pixel work of the jobs,
+   * which waits in its queue for a worker.
+   * @return the metrics of the jobs, the stages of the pipeline and the pixel work, in that
+   *         order.
+   */
+  public List<StageMetrics> getMetrics() {
+    List<StageMetrics> metrics = new ArrayList<>();
+    metrics.add(this.jobs);
+    if (this.pipeline != null) {
+      metrics.addAll(this.pipeline.getMetrics());
+    }
+    metrics.add(this.executor.getMetrics());
+    return Collections.unmodifiableList(metrics);
+  }
+
+  /**
+   * Makes an executor running jobs as described in the class documentation.
+   * @param name the name of its threads when they are platform threads.
+   * @return the executor.
+   */
+  ExecutorService newJobExecutor(String name) {
+    return JobThreads.newExecutor(name, this.workers * JOBS_PER_WORKER);
+  }
+
+  /**
+   * Waits until the admission controller lets the job start, then runs it on the calling thread.
+   * A job that is rejected because the queue is full fails without running.
+   * @param job the job to run.
+   * @param waitForRoom whether to wait for room in a full queue rather than be rejected.
+   * @return the result of the job.
+   * @throws InterruptedException if the thread is interrupted while waiting.
+   */
+  JobResult admitAndRun(ScriptJob job, boolean waitForRoom) throws InterruptedException {
+    long bytes = AdmissionController.estimateBytes(job);
+    long enqueuedAt = this.jobs.enqueued();
+    try {
+      this.admission.admit(bytes, waitForRoom);
+    } catch (InterruptedException e) {
+      this.jobs.dequeued();
+      throw e;
+    } catch (IllegalStateException e) {
+      this.jobs.dequeued();
+      return new JobResult(job.getInput(), 0, 0, "", e.getMessage());
+    }
+    long startedAt = this.jobs.started(enqueuedAt);
+    try {
+      return this.runJob(job);
+    } finally {
+      this.jobs.finished(startedAt);
+      this.admission.release(bytes);
+    }
+  }
+
+  /**
+   * Runs a single job on the calling thread, on a new model and controller.
+   * @param job the job to run.
+   * @return the result of the job.
+   * @throws IllegalArgumentException if the job is null.
+   */
+  public JobResult runJob(ScriptJob job) throws IllegalArgumentException {
+    if (job == null) {
+      throw new IllegalArgumentException("Job must not be null.");
+    }
+    long start = System.nanoTime();
+    job.getOutputDir().mkdirs();
+    StringBuilder transcript = new StringBuilder();
+    SimpleEditorModel model = new SimpleEditorModel(this.executor, this.store);
+    SimpleEditorController controller = new SimpleEditorController(model,
+        new SimpleEditorView(transcript), new StringReader(job.getScript()));
+    String failure = null;
+    try {
+      if (this.pipeline == null) {
+        controller.start();
+      } else {
+        controller.start(this.pipeline);
+      }
+    } catch (RuntimeException e) {
+      failure = e.getMessage() == null ? e.toString() : e.getMessage();
+    } finally {
+      model.clear();
+    }
+    return new JobResult(job.getInput(), controller.getErrorCount(), System.nanoTime() - start,
+        transcript.toString(), failure);
+  }
+}
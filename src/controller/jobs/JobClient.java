@@ -0,0 +1,139 @@
+package controller.jobs;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends script jobs to a {@link JobServer} on the loopback address and waits for their results.
+ * The jobs sent on one client run one after the other; use several clients to run jobs at once.
+ */
+public class JobClient implements Closeable {
+  private final Socket socket;
+  private final BufferedReader in;
+  private final Writer out;
+
+  /**
+   * Constructs a client connected to the server on the given port of the loopback address.
+   * @param port the port of the server.
+   * @throws IllegalStateException if the server cannot be reached.
+   */
+  public JobClient(int port) throws IllegalStateException {
+    try {
+      this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+      this.in = new BufferedReader(new InputStreamReader(this.socket.getInputStream(),
+          StandardCharsets.UTF_8));
+      this.out = new OutputStreamWriter(this.socket.getOutputStream(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not connect to port " + port + ": "
+          + e.getMessage());
+    }
+  }
+
+  /**
+   * Runs the script template on the input image on the server, and waits for it to finish.
+   * @param template the script template, as described in {@link ScriptJob}.
+   * @param input the input image.
+   * @param outputDir the directory to write results into.
+   * @return the result of the job.
+   * @throws IllegalArgumentException if any argument is null, or the template has a line the
+   *         server would read as the end of the job.
+   * @throws IllegalStateException if the server cannot be reached or does not run the job.
+   */
+  public JobResult submit(String template, File input, File outputDir)
+      throws IllegalArgumentException, IllegalStateException {
+    if (template == null || input == null || outputDir == null) {
+      throw new IllegalArgumentException("Template, input and output directory must not be null.");
+    }
+    StringBuilder request = new StringBuilder(JobServer.JOB).append('\n')
+        .append(input.getPath()).append('\n').append(outputDir.getPath()).append('\n');
+    for (String line : template.split("\r?\n")) {
+      if (line.equals(JobServer.END)) {
+        throw new IllegalArgumentException("Template must not have a line with "
+            + JobServer.END + ".");
+      }
+      request.append(line).append('\n');
+    }
+    request.append(JobServer.END).append('\n');
+
+    try {
+      this.out.write(request.toString());
+      this.out.flush();
+      String header = this.in.readLine();
+      if (header == null) {
+        throw new IllegalStateException("Server closed the connection.");
+      }
+      String[] parts = header.split(" ", 5);
+      if (!parts[0].equals(JobServer.RESULT) || parts.length < 4) {
+        throw new IllegalStateException("Server did not run the job: " + header);
+      }
+      int lines = Integer.parseInt(parts[3]);
+      StringBuilder transcript = new StringBuilder();
+      for (int i = 0; i < lines; i++) {
+        String line = this.in.readLine();
+        if (line == null) {
+          throw new IllegalStateException("Server closed the connection.");
+        }
+        transcript.append(i == 0 ? "" : "\n").append(line);
+      }
+      return new JobResult(input, Integer.parseInt(parts[1]), Long.parseLong(parts[2]),
+          transcript.toString(), parts.length == 5 ? parts[4] : null);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not reach the server: " + e.getMessage());
+    } catch (NumberFormatException e) {
+      throw new IllegalStateException("Server sent a result that could not be read.");
+    }
+  }
+
+  /**
+   * Asks the server how many tasks are waiting and running in each of its stages, how long they
+   * waited and ran, and how much memory its running jobs are estimated to need.
+   * @return one line per stage, then one for the memory.
+   * @throws IllegalStateException if the server cannot be reached.
+   */
+  public List<String> stats() throws IllegalStateException {
+    try {
+      this.out.write(JobServer.STATS + "\n");
+      this.out.flush();
+      String header = this.in.readLine();
+      if (header == null || !header.startsWith(JobServer.STATS + " ")) {
+        throw new IllegalStateException("Server did not send its metrics: " + header);
+      }
+      int lines = Integer.parseInt(header.substring(JobServer.STATS.length() + 1));
+      List<String> stats = new ArrayList<>();
+      for (int i = 0; i < lines; i++) {
+        String line = this.in.readLine();
+        if (line == null) {
+          throw new IllegalStateException("Server closed the connection.");
+        }
+        stats.add(line);
+      }
+      return stats;
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not reach the server: " + e.getMessage());
+    } catch (NumberFormatException e) {
+      throw new IllegalStateException("Server sent metrics that could not be read.");
+    }
+  }
+
+  /**
+   * Closes the connection to the server.
+   */
+  @Override
+  public void close() {
+    try {
+      this.socket.close();
+    } catch (IOException e) {
+      // Nothing is left to release
+    }
+  }
+}
@@ -0,0 +1,106 @@
+package controller.jobs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Records which inputs have been started and finished in a file, so that a program watching a
+ * folder never runs the same input twice, even after it is stopped and started again. Each
+ * input is started by writing a line to the file before it runs, and each line is forced to the
+ * disk before the call returns, so an input that was running when the program stopped is known
+ * to have been started.
+ */
+class JobJournal {
+  private static final String STARTED = "started";
+  private static final String DONE = "done";
+
+  private final File file;
+  private final Set<String> started;
+  private final Set<String> done;
+
+  /**
+   * Constructs a journal kept in the given file, reading what it already records.
+   * @param file the file of the journal, which is created when first written.
+   * @throws IllegalStateException if the file exists and cannot be read.
+   */
+  JobJournal(File file) throws IllegalStateException {
+    this.file = file;
+    this.started = new HashSet<>();
+    this.done = new HashSet<>();
+    if (!file.exists()) {
+      return;
+    }
+    try {
+      for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+        String[] parts = line.split("\t", 2);
+        if (parts.length == 2 && parts[0].equals(STARTED)) {
+          this.started.add(parts[1]);
+        } else if (parts.length == 2 && parts[0].startsWith(DONE)) {
+          this.done.add(parts[1]);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not read journal \"" + file + "\".");
+    }
+  }
+
+  /**
+   * Names an input by its path, size and time of last change, so that a new file dropped with
+   * the name of one that was already run is seen as a new input.
+   * @param input the input file.
+   * @return the key of the input in the journal.
+   */
+  static String key(File input) {
+    return input.getName() + "\t" + input.length() + "\t" + input.lastModified();
+  }
+
+  /**
+   * Records that the input with the given key is starting, unless it was started before.
+   * @param key the key of the input.
+   * @return true if the input may run, or false if it was already started.
+   * @throws IllegalStateException if the journal cannot be written.
+   */
+  synchronized boolean start(String key) throws IllegalStateException {
+    if (this.started.contains(key)) {
+      return false;
+    }
+    this.append(STARTED + "\t" + key);
+    this.started.add(key);
+    return true;
+  }
+
+  /**
+   * Checks if the input with the given key was started but never finished, such as when the
+   * program stopped while it was running.
+   * @param key the key of the input.
+   * @return true if the input was started and not finished.
+   */
+  synchronized boolean isUnfinished(String key) {
+    return this.started.contains(key) && !this.done.contains(key);
+  }
+
+  /**
+   * Records that the input with the given key has finished.
+   * @param key the key of the input.
+   * @param success whether the input was run successfully.
+   * @throws IllegalStateException if the journal cannot be written.
+   */
+  synchronized void finish(String key, boolean success) throws IllegalStateException {
+    this.append(DONE + (success ? "" : "-failed") + "\t" + key);
+    this.done.add(key);
+  }
+
+  private void append(String line) throws IllegalStateException {
+    try {
+      Files.write(this.file.toPath(), (line + "\n").getBytes(StandardCharsets.UTF_8),
+          StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not write journal \"" + this.file + "\".");
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package controller.jobs;
+
+import java.io.File;
+import java.util.Locale;
+
+/**
+ * Represents the outcome of running a script job: how many of its commands failed, how long it
+ * took, and the messages it showed.
+ */
+public class JobResult {
+  private final File input;
+  private final int errors;
+  private final long nanos;
+  private final String transcript;
+  private final String failure;
+
+  /**
+   * Constructs a result of a job that ran to the end of its script.
+   * @param input the input image of the job.
+   * @param errors the number of commands that failed.
+   * @param nanos how long the job took, in nanoseconds.
+   * @param transcript the messages the job showed.
+   */
+  public JobResult(File input, int errors, long nanos, String transcript) {
+    this(input, errors, nanos, transcript, null);
+  }
+
+  /**
+   * Constructs a result of a job.
+   * @param input the input image of the job.
+   * @param errors the number of commands that failed.
+   * @param nanos how long the job took, in nanoseconds.
+   * @param transcript the messages the job showed.
+   * @param failure why the job stopped before the end of its script, or null if it did not.
+   */
+  public JobResult(File input, int errors, long nanos, String transcript, String failure) {
+    this.input = input;
+    this.errors = errors;
+    this.nanos = nanos;
+    this.transcript = transcript;
+    this.failure = failure;
+  }
+
+  /**
+   * Returns the input image of the job.
+   * @return the input file.
+   */
+  public File getInput() {
+    return this.input;
+  }
+
+  /**
+   * Returns whether the job ran to the end of its script without any command failing.
+   * @return true if the job succeeded.
+   */
+  public boolean isSuccess() {
+    return this.errors == 0 && this.failure == null;
+  }
+
+  /**
+   * Returns the number of commands of the job that failed.
+   * @return the number of errors.
+   */
+  public int getErrors() {
+    return this.errors;
+  }
+
+  /**
+   * Returns how long the job took.
+   * @return the time in nanoseconds.
+   */
+  public long getNanos() {
+    return this.nanos;
+  }
+
+  /**
+   * Returns the messages the job showed.
+   * @return the transcript of the job.
+   */
+  public String getTranscript() {
+    return this.transcript;
+  }
+
+  /**
+   * Returns why the job stopped before the end of its script.
+   * @return the reason, or null if the job ran to the end.
+   */
+  public String getFailure() {
+    return this.failure;
+  }
+
+  /**
+   * Returns a one line summary of the result, with the status, time and input of the job.
+   * @return the summary.
+   */
+  @Override
+  public String toString() {
+    String line = String.format(Locale.ROOT, "%-6s %8.1f ms  %s",
+        this.isSuccess() ? "OK" : "FAILED", this.nanos / 1e6, this.input.getName());
+    if (this.failure != null) {
+      line += "  (" + this.failure + ")";
+    } else if (this.errors > 0) {
+      line += "  (" + this.errors + (this.errors == 1 ? " error)" : " errors)");
+    }
+    return line;
+  }
+}
@@ -0,0 +1,236 @@
+package controller.jobs;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import model.parallel.StageMetrics;
+
+/**
+ * Runs script jobs sent over a socket on the loopback address, so that a program can have images
+ * processed without starting a new editor for each. Each connection is served on a thread of its
+ * own, however many clients stay connected, and runs its jobs on one batch runner, which runs
+ * the pixel work of every job on its workers and keeps the jobs within its memory budget.
+ *
+ * <p>A connection sends any number of jobs, one after the other. A job is a line with JOB, a line
+ * with the path of the input image, a line with the path of the output directory, the lines of a
+ * script template as described in {@link ScriptJob}, and a line with END. Once the job is done
+ * the server answers with a line of the form
+ * <pre>RESULT &lt;errors&gt; &lt;nanoseconds&gt; &lt;lines&gt; [failure]</pre>
+ * followed by that many lines of the messages the job showed. A request that does not follow
+ * this form is answered with a line starting with ERROR, and the connection is closed. A line
+ * with STATS instead of a job is answered with a line of the form
+ * <pre>STATS &lt;lines&gt;</pre>
+ * followed by that many lines: one per stage of the batch runner, with the number of tasks
+ * waiting and running in that stage and how long they waited and ran, and a last one with the
+ * memory the running jobs are estimated to need. A job arriving while the queue of jobs waiting
+ * for memory is full is rejected, and answered with a result whose failure says so.
+ * {@link JobClient} sends jobs this way.
+ */
+public class JobServer implements Closeable {
+  /**
+   * The line starting a job.
+   */
+  public static final String JOB = "JOB";
+  /**
+   * The line ending the script of a job.
+   */
+  public static final String END = "END";
+  /**
+   * The word starting the answer to a job.
+   */
+  public static final String RESULT = "RESULT";
+  /**
+   * The word starting the answer to a request that is not understood.
+   */
+  public static final String ERROR = "ERROR";
+  /**
+   * The line asking for the metrics of the server, and the word starting the answer to it.
+   */
+  public static final String STATS = "STATS";
+
+  private final BatchRunner runner;
+  private final ServerSocket socket;
+  private final ExecutorService connections;
+  // Connections still open, so that closing the server can close them
+  private final Set<Socket> open;
+
+  /**
+   * Constructs a server listening on the given port of the loopback address, which runs jobs on
+   * the given runner.
+   * @param port the port, or 0 to use any free port.
+   * @param runner the runner to run jobs on.
+   * @throws IllegalArgumentException if the runner is null or the port is out of range.
+   * @throws IllegalStateException if the port cannot be listened on.
+   */
+  public JobServer(int port, BatchRunner runner)
+      throws IllegalArgumentException, IllegalStateException {
+    if (runner == null || port < 0 || port > 65535) {
+      throw new IllegalArgumentException("Runner must not be null and port must be valid.");
+    }
+    this.runner = runner;
+    try {
+      this.socket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not listen on port " + port + ": "
+          + e.getMessage());
+    }
+    this.connections = JobThreads.newUnboundedExecutor("job-connection");
+    this.open = ConcurrentHashMap.newKeySet();
+  }
+
+  /**
+   * Returns the port this server listens on.
+   * @return the port.
+   */
+  public int getPort() {
+    return this.socket.getLocalPort();
+  }
+
+  /**
+   * Accepts connections on the calling thread until the server is closed.
+   */
+  public void serve() {
+    while (!this.socket.isClosed()) {
+      Socket connection;
+      try {
+        connection = this.socket.accept();
+      } catch (IOException e) {
+        // Thrown once the server is closed, which ends the loop
+        continue;
+      }
+      this.open.add(connection);
+      this.connections.execute(() -> this.handle(connection));
+    }
+  }
+
+  /**
+   * Accepts connections on a new thread until the server is closed.
+   */
+  public void start() {
+    Thread thread = new Thread(this::serve, "job-server");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Stops accepting connections and stops every job and connection still running.
+   */
+  @Override
+  public void close() {
+    try {
+      this.socket.close();
+    } catch (IOException e) {
+      // Nothing is left to release
+    }
+    this.connections.shutdownNow();
+    for (Socket connection : this.open) {
+      try {
+        connection.close();
+      } catch (IOException e) {
+        // Nothing is left to release
+      }
+    }
+  }
+
+  private void handle(Socket connection) {
+    try (Socket open = connection;
+         BufferedReader in = new BufferedReader(new InputStreamReader(open.getInputStream(),
+             StandardCharsets.UTF_8));
+         Writer out = new OutputStreamWriter(open.getOutputStream(), StandardCharsets.UTF_8)) {
+      for (String line = in.readLine(); line != null; line = in.readLine()) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        if (line.equals(STATS)) {
+          out.write(this.stats());
+          out.flush();
+          continue;
+        }
+        ScriptJob job;
+        try {
+          job = readJob(line, in);
+        } catch (IllegalArgumentException e) {
+          out.write(ERROR + " " + e.getMessage() + "\n");
+          return;
+        }
+        out.write(answer(this.run(job)));
+        out.flush();
+      }
+    } catch (IOException e) {
+      // The client went away, so there is no one to answer
+    } finally {
+      this.open.remove(connection);
+    }
+  }
+
+  private static ScriptJob readJob(String first, BufferedReader in) throws IOException {
+    if (!first.equals(JOB)) {
+      throw new IllegalArgumentException("Expected " + JOB + " but got \"" + first + "\".");
+    }
+    String input = in.readLine();
+    String outputDir = in.readLine();
+    StringBuilder template = new StringBuilder();
+    for (String line = in.readLine(); line != null; line = in.readLine()) {
+      if (line.equals(END)) {
+        if (input == null || outputDir == null || input.isEmpty() || outputDir.isEmpty()) {
+          throw new IllegalArgumentException("Input and output directory must not be empty.");
+        }
+        return new ScriptJob(template.toString(), new File(input), new File(outputDir));
+      }
+      template.append(line).append('\n');
+    }
+    throw new IllegalArgumentException("Job ended before " + END + ".");
+  }
+
+  private JobResult run(ScriptJob job) {
+    try {
+      return this.runner.admitAndRun(job, false);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return new JobResult(job.getInput(), 0, 0, "", "Server is shutting down.");
+    }
+  }
+
+  private String stats() {
+    List<StageMetrics> stages = this.runner.getMetrics();
+    StringBuilder answer = new StringBuilder(STATS).append(' ').append(stages.size() + 1)
+        .append('\n');
+    for (StageMetrics stage : stages) {
+      answer.append(stage).append('\n');
+    }
+    answer.append(this.runner.getAdmission()).append('\n');
+    return answer.toString();
+  }
+
+  /**
+   * Writes the result of a job in the form sent back to clients.
+   * @param result the result.
+   * @return the answer, ending with a line break.
+   */
+  static String answer(JobResult result) {
+    String[] lines = result.getTranscript().split("\n", -1);
+    StringBuilder answer = new StringBuilder(RESULT).append(' ').append(result.getErrors())
+        .append(' ').append(result.getNanos()).append(' ').append(lines.length);
+    if (result.getFailure() != null) {
+      answer.append(' ').append(result.getFailure().replaceAll("[\r\n]+", " "));
+    }
+    answer.append('\n');
+    for (String line : lines) {
+      answer.append(line).append('\n');
+    }
+    return answer.toString();
+  }
+}
@@ -0,0 +1,77 @@
+package controller.jobs;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Makes the executors that jobs run on. Jobs spend most of their time waiting on files, and do
+ * their pixel work on the pool of a row executor, so where the JDK has virtual threads each job
+ * gets its own virtual thread and any number of them may wait at once. On older JDKs jobs run on
+ * a fixed number of daemon platform threads instead. Tasks that must never wait for a thread,
+ * such as serving a connection, get a thread of their own on any JDK.
+ */
+final class JobThreads {
+  private static final Method VIRTUAL_EXECUTOR = findVirtualExecutor();
+
+  private JobThreads() {
+  }
+
+  private static Method findVirtualExecutor() {
+    try {
+      return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Checks whether jobs run on virtual threads in this JDK.
+   * @return true if virtual threads are available.
+   */
+  static boolean isVirtual() {
+    return VIRTUAL_EXECUTOR != null;
+  }
+
+  /**
+   * Makes an executor running each task on a new virtual thread, or on one of the given number
+   * of daemon platform threads if virtual threads are not available.
+   * @param name the name of the platform threads.
+   * @param platformThreads the number of platform threads to use without virtual threads.
+   * @return the executor.
+   */
+  static ExecutorService newExecutor(String name, int platformThreads) {
+    if (VIRTUAL_EXECUTOR != null) {
+      try {
+        return (ExecutorService) VIRTUAL_EXECUTOR.invoke(null);
+      } catch (ReflectiveOperationException e) {
+        // Falls back to platform threads below
+      }
+    }
+    return Executors.newFixedThreadPool(platformThreads, task -> daemon(task, name));
+  }
+
+  /**
+   * Makes an executor running each task on a thread of its own as soon as it is given: a new
+   * virtual thread, or a daemon platform thread kept for a while to be used again if virtual
+   * threads are not available.
+   * @param name the name of the platform threads.
+   * @return the executor.
+   */
+  static ExecutorService newUnboundedExecutor(String name) {
+    if (VIRTUAL_EXECUTOR != null) {
+      try {
+        return (ExecutorService) VIRTUAL_EXECUTOR.invoke(null);
+      } catch (ReflectiveOperationException e) {
+        // Falls back to platform threads below
+      }
+    }
+    return Executors.newCachedThreadPool(task -> daemon(task, name));
+  }
+
+  private static Thread daemon(Runnable task, String name) {
+    Thread thread = new Thread(task, name);
+    thread.setDaemon(true);
+    return thread;
+  }
+}
@@ -0,0 +1,127 @@
+package controller.jobs;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Represents a script run on one input image, made from a script template by replacing its
+ * placeholders with the paths and name of that image:
+ * <ul>
+ *   <li>{input} - the path of the input image</li>
+ *   <li>{output} - the path of a file with the input's file name in the output directory</li>
+ *   <li>{outdir} - the path of the output directory</li>
+ *   <li>{name} - the file name of the input without its extension</li>
+ *   <li>{ext} - the extension of the input, without the dot</li>
+ * </ul>
+ * A quit command is added to the end of the script if it does not already have one.
+ */
+public class ScriptJob {
+  /**
+   * The extensions of the image files a template is applied to in a directory.
+   */
+  public static final List<String> EXTENSIONS = Arrays.asList("ppm", "pgm", "png", "jpg",
+      "jpeg", "bmp");
+
+  private final String template;
+  private final File input;
+  private final File outputDir;
+
+  /**
+   * Constructs a job running the given template on the given input image, writing into the given
+   * output directory.
+   * @param template the script template.
+   * @param input the input image.
+   * @param outputDir the directory to write results into.
+   * @throws IllegalArgumentException if any argument is null.
+   */
+  public ScriptJob(String template, File input, File outputDir) throws IllegalArgumentException {
+    if (template == null || input == null || outputDir == null) {
+      throw new IllegalArgumentException("Template, input and output directory must not be null.");
+    }
+    this.template = template;
+    this.input = input;
+    this.outputDir = outputDir;
+  }
+
+  /**
+   * Makes a job for every image file directly inside the input directory whose extension is
+   * one of {@link #EXTENSIONS}, in order of file name.
+   * @param template the script template.
+   * @param inputDir the directory of input images.
+   * @param outputDir the directory to write results into.
+   * @return the jobs, one per input image.
+   * @throws IllegalArgumentException if any argument is null.
+   * @throws IllegalStateException if the input directory cannot be listed.
+   */
+  public static List<ScriptJob> forDirectory(String template, File inputDir, File outputDir)
+      throws IllegalArgumentException, IllegalStateException {
+    if (template == null || inputDir == null || outputDir == null) {
+      throw new IllegalArgumentException("Template and directories must not be null.");
+    }
+    File[] files = inputDir.listFiles(file -> file.isFile() && isImage(file.getName()));
+    if (files == null) {
+      throw new IllegalStateException("Could not list directory \"" + inputDir + "\".");
+    }
+    Arrays.sort(files);
+    List<ScriptJob> jobs = new ArrayList<>();
+    for (File file : files) {
+      jobs.add(new ScriptJob(template, file, outputDir));
+    }
+    return jobs;
+  }
+
+  /**
+   * Checks if the file name has one of the extensions of {@link #EXTENSIONS}, in any case.
+   * @param fileName the file name.
+   * @return true if the file is an image the editor can load.
+   */
+  public static boolean isImage(String fileName) {
+    return EXTENSIONS.contains(extension(fileName).toLowerCase(Locale.ROOT));
+  }
+
+  private static String extension(String fileName) {
+    int dot = fileName.lastIndexOf('.');
+    return dot < 0 ? "" : fileName.substring(dot + 1);
+  }
+
+  /**
+   * Returns the input image of this job.
+   * @return the input file.
+   */
+  public File getInput() {
+    return this.input;
+  }
+
+  /**
+   * Returns the directory this job writes its results into.
+   * @return the output directory.
+   */
+  public File getOutputDir() {
+    return this.outputDir;
+  }
+
+  /**
+   * Returns the script of this job, with every placeholder of the template replaced.
+   * @return the commands of the script, ending with a quit command.
+   */
+  public String getScript() {
+    String fileName = this.input.getName();
+    String ext = extension(fileName);
+    String name = ext.isEmpty() ? fileName : fileName.substring(0, fileName.length()
+        - ext.length() - 1);
+    String script = this.template
+        .replace("{input}", this.input.getPath())
+        .replace("{output}", new File(this.outputDir, fileName).getPath())
+        .replace("{outdir}", this.outputDir.getPath())
+        .replace("{name}", name)
+        .replace("{ext}", ext)
+        .trim();
+    if (!script.endsWith("\nq") && !script.equals("q")) {
+      script += "\nq";
+    }
+    return script + "\n";
+  }
+}
@@ -0,0 +1,253 @@
+package controller.jobs;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches a folder for images and runs a script job on each one as soon as it is fully written,
+ * on a batch runner, so that images dropped into a spool folder are processed within moments.
+ * The folder is watched with a {@link WatchService} rather than listed over and over, and an
+ * image is taken to be fully written once its size and time of last change have stayed the same
+ * for the settle time.
+ *
+ * <p>Once its job is done, an image is moved into the {@value #DONE_DIR} folder inside the
+ * watched folder, or into the {@value #FAILED_DIR} folder if any of its commands failed. Every
+ * image is recorded in a journal in the watched folder before it runs, so that no image is run
+ * twice, even if the watcher is stopped and started again. An image that was running when the
+ * watcher stopped is not run again, and is moved into the {@value #FAILED_DIR} folder when the
+ * watcher starts.
+ */
+public class WatchFolder implements Closeable {
+  /**
+   * The folder, inside the watched folder, that images whose jobs succeeded are moved into.
+   */
+  public static final String DONE_DIR = "done";
+  /**
+   * The folder, inside the watched folder, that images whose jobs failed are moved into.
+   */
+  public static final String FAILED_DIR = "failed";
+  /**
+   * The file, inside the watched folder, that records the images that were run.
+   */
+  public static final String JOURNAL_FILE = ".imageeditor-journal";
+  /**
+   * The system property giving the settle time in milliseconds of the watcher of the program.
+   */
+  public static final String SETTLE_PROPERTY = "imageeditor.watch.settle";
+  /**
+   * The settle time in milliseconds when no other is given.
+   */
+  public static final long DEFAULT_SETTLE_MILLIS = 500;
+
+  private final File dir;
+  private final String template;
+  private final File outputDir;
+  private final BatchRunner runner;
+  private final long settleMillis;
+  private final Consumer<JobResult> listener;
+  private final JobJournal journal;
+  // Images not yet settled, with their last size and time of change, and when either changed
+  private final Map<String, long[]> pending;
+  // Images whose jobs have started and that have not been moved yet
+  private final Set<String> running;
+  private volatile WatchService watcher;
+  private volatile boolean closed;
+
+  /**
+   * Constructs a watcher running the given template on every image dropped into the folder.
+   * @param dir the folder to watch.
+   * @param template the script template, as described in {@link ScriptJob}.
+   * @param outputDir the directory the jobs write their results into.
+   * @param runner the runner to run the jobs on.
+   * @param settleMillis how long an image must stay unchanged before it runs, in milliseconds.
+   * @param listener is given the result of each job once its image has been moved.
+   * @throws IllegalArgumentException if any object is null, the settle time is negative, or the
+   *         output directory is the watched folder, whose results would be run again.
+   * @throws IllegalStateException if the folder is not a directory, or its journal cannot be
+   *         read.
+   */
+  public WatchFolder(File dir, String template, File outputDir, BatchRunner runner,
+                     long settleMillis, Consumer<JobResult> listener)
+      throws IllegalArgumentException, IllegalStateException {
+    if (dir == null || template == null || outputDir == null || runner == null
+        || listener == null || settleMillis < 0) {
+      throw new IllegalArgumentException("Arguments must not be null and the settle time must "
+          + "not be negative.");
+    }
+    if (dir.getAbsoluteFile().toPath().normalize().equals(
+        outputDir.getAbsoluteFile().toPath().normalize())) {
+      throw new IllegalArgumentException("Output directory must not be the watched folder.");
+    }
+    if (!dir.isDirectory()) {
+      throw new IllegalStateException("\"" + dir + "\" is not a directory.");
+    }
+    this.dir = dir;
+    this.template = template;
+    this.outputDir = outputDir;
+    this.runner = runner;
+    this.settleMillis = settleMillis;
+    this.listener = listener;
+    this.journal = new JobJournal(new File(dir, JOURNAL_FILE));
+    this.pending = new HashMap<>();
+    this.running = ConcurrentHashMap.newKeySet();
+  }
+
+  /**
+   * Watches the folder on the calling thread until the watcher is closed, then waits for the
+   * jobs already started to finish. The images already in the folder are run first.
+   * @throws IllegalStateException if the folder cannot be watched.
+   */
+  public void run() throws IllegalStateException {
+    ExecutorService pool = this.runner.newJobExecutor("watch-job");
+    try (WatchService service = this.dir.toPath().getFileSystem().newWatchService()) {
+      this.watcher = service;
+      if (this.closed) {
+        return;
+      }
+      this.dir.toPath().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_MODIFY);
+      this.scan();
+      while (!this.closed) {
+        WatchKey key = service.poll(Math.max(10, this.settleMillis / 2), TimeUnit.MILLISECONDS);
+        if (key != null) {
+          for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+              this.scan();
+            } else {
+              this.seen(((Path) event.context()).toString());
+            }
+          }
+          // A key is also no longer valid once the watcher is closed
+          if (!key.reset() && !this.closed) {
+            throw new IllegalStateException("\"" + this.dir + "\" can no longer be watched.");
+          }
+        }
+        this.dispatchSettled(pool);
+      }
+    } catch (ClosedWatchServiceException e) {
+      // The watcher was closed, which ends the loop
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not watch \"" + this.dir + "\": " + e.getMessage());
+    } finally {
+      pool.shutdown();
+      try {
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Stops watching the folder. Jobs already started still finish.
+   */
+  @Override
+  public void close() {
+    this.closed = true;
+    WatchService service = this.watcher;
+    if (service != null) {
+      try {
+        service.close();
+      } catch (IOException e) {
+        // Nothing is left to release
+      }
+    }
+  }
+
+  private void scan() {
+    String[] names = this.dir.list();
+    if (names != null) {
+      for (String name : names) {
+        this.seen(name);
+      }
+    }
+  }
+
+  private void seen(String name) {
+    File file = new File(this.dir, name);
+    if (!this.pending.containsKey(name) && !this.running.contains(name) && file.isFile()
+        && ScriptJob.isImage(name)) {
+      this.pending.put(name, new long[] {-1, -1, System.currentTimeMillis()});
+    }
+  }
+
+  private void dispatchSettled(ExecutorService pool) {
+    long now = System.currentTimeMillis();
+    Iterator<Map.Entry<String, long[]>> entries = this.pending.entrySet().iterator();
+    while (entries.hasNext()) {
+      Map.Entry<String, long[]> entry = entries.next();
+      File file = new File(this.dir, entry.getKey());
+      long[] state = entry.getValue();
+      long size = file.length();
+      long modified = file.lastModified();
+      if (!file.isFile()) {
+        entries.remove();
+      } else if (size != state[0] || modified != state[1]) {
+        state[0] = size;
+        state[1] = modified;
+        state[2] = now;
+      } else if (now - state[2] >= this.settleMillis) {
+        entries.remove();
+        this.dispatch(file, pool);
+      }
+    }
+  }
+
+  private void dispatch(File file, ExecutorService pool) {
+    String key = JobJournal.key(file);
+    if (this.journal.isUnfinished(key)) {
+      this.finish(file, key, new JobResult(file, 0, 0, "",
+          "Was running when the watcher stopped, so it is not run again."));
+      return;
+    }
+    if (!this.journal.start(key)) {
+      // Already run, and left in the folder because it could not be moved
+      return;
+    }
+    ScriptJob job = new ScriptJob(this.template, file, this.outputDir);
+    this.running.add(file.getName());
+    pool.execute(() -> {
+      JobResult result;
+      try {
+        result = this.runner.admitAndRun(job, true);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        result = new JobResult(file, 0, 0, "", "Watcher was interrupted.");
+      }
+      this.finish(file, key, result);
+    });
+  }
+
+  private void finish(File file, String key, JobResult result) {
+    File target = new File(new File(this.dir, result.isSuccess() ? DONE_DIR : FAILED_DIR),
+        file.getName());
+    try {
+      Files.createDirectories(target.getParentFile().toPath());
+      Files.move(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      // The journal still keeps it from running again
+    }
+    this.journal.finish(key, result.isSuccess());
+    this.running.remove(file.getName());
+    this.listener.accept(result);
+  }
+}
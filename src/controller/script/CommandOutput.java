@@ -0,0 +1,64 @@
+package controller.script;
+
+import view.ImageEditorView;
+
+/**
+ * Passes the messages of an editor on to a view, except on threads that are running a script
+ * command, whose messages are kept in that command's buffer instead. The buffers are written to
+ * the view later, in the order of the commands, so commands can run at once without their
+ * messages being mixed together.
+ */
+public class CommandOutput implements ImageEditorView {
+  private final ImageEditorView view;
+  private final ThreadLocal<StringBuilder> buffer;
+
+  /**
+   * Constructs an output passing messages on to the given view.
+   * @param view the view to show messages on.
+   * @throws IllegalArgumentException if the view is null.
+   */
+  public CommandOutput(ImageEditorView view) throws IllegalArgumentException {
+    if (view == null) {
+      throw new IllegalArgumentException("View must not be null.");
+    }
+    this.view = view;
+    this.buffer = new ThreadLocal<>();
+  }
+
+  /**
+   * Keeps the messages rendered on the current thread in the given buffer, until
+   * {@link #release()} is called.
+   * @param buffer the buffer to keep messages in.
+   */
+  void capture(StringBuilder buffer) {
+    this.buffer.set(buffer);
+  }
+
+  /**
+   * Passes the messages rendered on the current thread on to the view again.
+   */
+  void release() {
+    this.buffer.remove();
+  }
+
+  /**
+   * Shows the messages kept in a buffer on the view.
+   * @param messages the messages to show.
+   * @throws IllegalStateException if the view cannot show them.
+   */
+  void flush(CharSequence messages) throws IllegalStateException {
+    if (messages.length() > 0) {
+      this.view.renderMessage(messages.toString());
+    }
+  }
+
+  @Override
+  public void renderMessage(String message) throws IllegalStateException {
+    StringBuilder buffer = this.buffer.get();
+    if (buffer == null) {
+      this.view.renderMessage(message);
+    } else {
+      buffer.append(message);
+    }
+  }
+}
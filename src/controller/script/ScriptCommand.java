@@ -0,0 +1,163 @@
+package controller.script;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Represents one line of a script, along with the layers and files the line reads and writes
+ * when it is run. Two commands depend on each other if one writes something the other reads or
+ * writes; commands that do not depend on each other can run in either order, or at once, with
+ * the same results.
+ *
+ * <p>Files are named by their absolute, normalized paths, so two spellings of the same path are
+ * seen as the same file. Lines that are not valid commands, or that have the wrong number of
+ * arguments, read and write nothing, as they only print a message.
+ */
+public class ScriptCommand {
+  /**
+   * The start of the names of layers in the reads and writes of a command.
+   */
+  public static final String LAYER_PREFIX = "layer:";
+  /**
+   * The start of the names of files in the reads and writes of a command.
+   */
+  public static final String FILE_PREFIX = "file:";
+
+  private final int index;
+  private final String line;
+  private final String[] args;
+  private final Set<String> reads;
+  private final Set<String> writes;
+
+  private ScriptCommand(int index, String line, String[] args, Set<String> reads,
+                        Set<String> writes) {
+    this.index = index;
+    this.line = line;
+    this.args = args;
+    this.reads = Collections.unmodifiableSet(reads);
+    this.writes = Collections.unmodifiableSet(writes);
+  }
+
+  /**
+   * Parses a line of a script into a command, splitting it into arguments the way the
+   * controller does.
+   * @param index the position of the line in the script, starting at zero.
+   * @param line the line to parse.
+   * @return the command of the line.
+   * @throws IllegalArgumentException if the line is null or the index is negative.
+   */
+  public static ScriptCommand parse(int index, String line) throws IllegalArgumentException {
+    if (line == null || index < 0) {
+      throw new IllegalArgumentException("Line must not be null and index must not be negative.");
+    }
+    String[] args = line.split(" ");
+    Set<String> reads = new LinkedHashSet<>();
+    Set<String> writes = new LinkedHashSet<>();
+
+    switch (args[0]) {
+      case "load":
+        if (args.length == 3) {
+          reads.add(file(args[1]));
+          writes.add(layer(args[2]));
+        }
+        break;
+      case "save":
+        if (args.length == 3) {
+          reads.add(layer(args[2]));
+          writes.add(file(args[1]));
+        }
+        break;
+      case "brighten":
+      case "gamma":
+      case "contrast":
+      case "threshold":
+        if (args.length == 4) {
+          reads.add(layer(args[2]));
+          writes.add(layer(args[3]));
+        }
+        break;
+      case "levels":
+        if (args.length == 5) {
+          reads.add(layer(args[3]));
+          writes.add(layer(args[4]));
+        }
+        break;
+      case "vertical-flip":
+      case "horizontal-flip":
+      case "value-component":
+      case "intensity-component":
+      case "luma-component":
+      case "red-component":
+      case "green-component":
+      case "blue-component":
+      case "blur":
+      case "sharpen":
+      case "greyscale":
+      case "sepia":
+      case "invert":
+        if (args.length == 3) {
+          reads.add(layer(args[1]));
+          writes.add(layer(args[2]));
+        }
+        break;
+      default:
+        break;
+    }
+    return new ScriptCommand(index, line, args, reads, writes);
+  }
+
+  private static String layer(String name) {
+    return LAYER_PREFIX + name;
+  }
+
+  private static String file(String path) {
+    try {
+      return FILE_PREFIX + Paths.get(path).toAbsolutePath().normalize();
+    } catch (InvalidPathException e) {
+      return FILE_PREFIX + path;
+    }
+  }
+
+  /**
+   * Returns the position of this command in its script.
+   * @return the index of the line, starting at zero.
+   */
+  public int getIndex() {
+    return this.index;
+  }
+
+  /**
+   * Returns the line this command was parsed from.
+   * @return the line.
+   */
+  public String getLine() {
+    return this.line;
+  }
+
+  /**
+   * Returns the arguments of this command, the first of which is the command itself.
+   * @return a copy of the arguments.
+   */
+  public String[] getArgs() {
+    return this.args.clone();
+  }
+
+  /**
+   * Returns the layers and files this command reads.
+   * @return an unmodifiable set of the names of what is read.
+   */
+  public Set<String> getReads() {
+    return this.reads;
+  }
+
+  /**
+   * Returns the layers and files this command writes.
+   * @return an unmodifiable set of the names of what is written.
+   */
+  public Set<String> getWrites() {
+    return this.writes;
+  }
+}
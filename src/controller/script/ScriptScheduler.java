@@ -0,0 +1,292 @@
+package controller.script;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Runs the commands of a script on a pool of threads, running commands at once whenever they do
+ * not depend on each other. A command waits for every earlier command that writes a layer or
+ * file it reads or writes, and for every earlier command that reads a layer or file it writes,
+ * so each command sees the same layers and files as it would if the script were run line by
+ * line. The messages of each command are shown in the order of the script, once every earlier
+ * command has finished.
+ *
+ * <p>If a command throws an exception, no later command is started, and the exception is thrown
+ * once the earlier commands have finished and their messages have been shown, as it would be
+ * when running line by line.
+ *
+ * <p>The default number of threads is read from the {@value #THREADS_PROPERTY} system property,
+ * and is otherwise the number of available processors.
+ */
+public class ScriptScheduler {
+  public static final String THREADS_PROPERTY = "imageeditor.script.threads";
+
+  private final int threads;
+
+  /**
+   * Constructs a scheduler with the number of threads given by the {@value #THREADS_PROPERTY}
+   * system property, or one per available processor if it is missing or not a positive number.
+   */
+  public ScriptScheduler() {
+    this(threadsFromProperty());
+  }
+
+  /**
+   * Constructs a scheduler running at most the given number of commands at once.
+   * @param threads the number of threads to run commands on.
+   * @throws IllegalArgumentException if the number of threads is not positive.
+   */
+  public ScriptScheduler(int threads) throws IllegalArgumentException {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Threads must be positive.");
+    }
+    this.threads = threads;
+  }
+
+  private static int threadsFromProperty() {
+    String value = System.getProperty(THREADS_PROPERTY);
+    if (value != null) {
+      try {
+        int parsed = Integer.parseInt(value.trim());
+        if (parsed > 0) {
+          return parsed;
+        }
+      } catch (NumberFormatException e) {
+        // Falls through to the number of processors
+      }
+    }
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Returns the number of commands this scheduler runs at once.
+   * @return the number of threads.
+   */
+  public int getThreads() {
+    return this.threads;
+  }
+
+  /**
+   * Finds, for each command, the commands after it that must wait for it to finish.
+   * @param commands the commands of the script, in order.
+   * @return the indexes of the commands waiting on each command.
+   */
+  static List<Set<Integer>> dependents(List<ScriptCommand> commands) {
+    List<Set<Integer>> dependents = new ArrayList<>();
+    Map<String, Integer> lastWriter = new HashMap<>();
+    Map<String, List<Integer>> readers = new HashMap<>();
+    for (int i = 0; i < commands.size(); i++) {
+      dependents.add(new LinkedHashSet<>());
+      ScriptCommand command = commands.get(i);
+      for (String read : command.getReads()) {
+        Integer writer = lastWriter.get(read);
+        if (writer != null) {
+          dependents.get(writer).add(i);
+        }
+      }
+      for (String write : command.getWrites()) {
+        Integer writer = lastWriter.get(write);
+        if (writer != null) {
+          dependents.get(writer).add(i);
+        }
+        List<Integer> earlier = readers.remove(write);
+        if (earlier != null) {
+          for (int reader : earlier) {
+            if (reader != i) {
+              dependents.get(reader).add(i);
+            }
+          }
+        }
+      }
+      for (String read : command.getReads()) {
+        readers.computeIfAbsent(read, r -> new ArrayList<>()).add(i);
+      }
+      for (String write : command.getWrites()) {
+        lastWriter.put(write, i);
+      }
+    }
+    return dependents;
+  }
+
+  /**
+   * Runs the given commands as {@link #run(List, Consumer, CommandOutput)} does, given a way to
+   * compute a layer ahead of the commands that read it. Commands here run as soon as what they
+   * depend on is done, so no layer is computed ahead of them.
+   * @param commands the commands of the script, in order.
+   * @param runner runs a single command.
+   * @param computer computes the layer with the given name, if it has not been computed yet.
+   * @param output the output the runner renders its messages to.
+   * @throws IllegalArgumentException if any argument is null.
+   * @throws IllegalStateException if the messages cannot be shown, or the running thread is
+   *         interrupted.
+   * @throws RuntimeException the first exception thrown by the runner.
+   */
+  public void run(List<ScriptCommand> commands, Consumer<ScriptCommand> runner,
+                  Consumer<String> computer, CommandOutput output)
+      throws IllegalArgumentException, IllegalStateException {
+    if (computer == null) {
+      throw new IllegalArgumentException("Computer must not be null.");
+    }
+    this.run(commands, runner, output);
+  }
+
+  /**
+   * Runs the given commands, calling the runner on each one on a thread of this scheduler while
+   * its messages are kept by the given output.
+   * @param commands the commands of the script, in order.
+   * @param runner runs a single command.
+   * @param output the output the runner renders its messages to.
+   * @throws IllegalArgumentException if any argument is null.
+   * @throws IllegalStateException if the messages cannot be shown, or the running thread is
+   *         interrupted.
+   * @throws RuntimeException the first exception thrown by the runner.
+   */
+  public void run(List<ScriptCommand> commands, Consumer<ScriptCommand> runner,
+                  CommandOutput output) throws IllegalArgumentException, IllegalStateException {
+    if (commands == null || runner == null || output == null) {
+      throw new IllegalArgumentException("Commands, runner and output must not be null.");
+    }
+    ExecutorService pool = Executors.newFixedThreadPool(this.threads, task -> {
+      Thread thread = new Thread(task, "script-command");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      new Run(commands, runner, output, pool).await();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Holds the progress of one run of a script.
+   */
+  private static class Run {
+    private final List<ScriptCommand> commands;
+    private final Consumer<ScriptCommand> runner;
+    private final CommandOutput output;
+    private final ExecutorService pool;
+    private final List<Set<Integer>> dependents;
+    private final int[] waiting;
+    private final boolean[] finished;
+    private final StringBuilder[] buffers;
+    private int running;
+    // Commands from this index on are not started
+    private int stopAt;
+    private Throwable failure;
+
+    private Run(List<ScriptCommand> commands, Consumer<ScriptCommand> runner,
+                CommandOutput output, ExecutorService pool) {
+      this.commands = commands;
+      this.runner = runner;
+      this.output = output;
+      this.pool = pool;
+      this.dependents = dependents(commands);
+      this.waiting = new int[commands.size()];
+      this.finished = new boolean[commands.size()];
+      this.buffers = new StringBuilder[commands.size()];
+      this.stopAt = commands.size();
+      for (Set<Integer> waiters : this.dependents) {
+        for (int waiter : waiters) {
+          this.waiting[waiter]++;
+        }
+      }
+    }
+
+    /**
+     * Starts the given command on the pool. Must be called holding the lock of this run.
+     */
+    private void start(int index) {
+      this.running++;
+      this.buffers[index] = new StringBuilder();
+      this.pool.execute(() -> this.runCommand(index));
+    }
+
+    private void runCommand(int index) {
+      Throwable error = null;
+      this.output.capture(this.buffers[index]);
+      try {
+        this.runner.accept(this.commands.get(index));
+      } catch (RuntimeException | Error e) {
+        error = e;
+      } finally {
+        this.output.release();
+      }
+
+      synchronized (this) {
+        this.finished[index] = true;
+        this.running--;
+        if (error != null && index < this.stopAt) {
+          this.failure = error;
+          this.stopAt = index + 1;
+        }
+        for (int waiter : this.dependents.get(index)) {
+          if (--this.waiting[waiter] == 0 && waiter < this.stopAt) {
+            this.start(waiter);
+          }
+        }
+        this.notifyAll();
+      }
+    }
+
+    /**
+     * Starts the commands that wait on nothing, then shows the messages of each command in turn
+     * as it finishes, and returns once no command is running.
+     */
+    private void await() throws IllegalStateException {
+      synchronized (this) {
+        for (int i = 0; i < this.commands.size(); i++) {
+          if (this.waiting[i] == 0) {
+            this.start(i);
+          }
+        }
+      }
+
+      int next = 0;
+      Throwable error;
+      try {
+        while (true) {
+          StringBuilder messages;
+          synchronized (this) {
+            while (this.running > 0 && (next >= this.stopAt || !this.finished[next])) {
+              this.wait();
+            }
+            if (next >= this.stopAt || !this.finished[next]) {
+              error = this.failure;
+              break;
+            }
+            messages = this.buffers[next++];
+          }
+          this.output.flush(messages);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        this.stop();
+        throw new IllegalStateException("Script was interrupted.");
+      } catch (RuntimeException e) {
+        this.stop();
+        throw e;
+      }
+
+      if (error instanceof Error) {
+        throw (Error) error;
+      } else if (error != null) {
+        throw (RuntimeException) error;
+      }
+    }
+
+    /**
+     * Starts no more commands.
+     */
+    private synchronized void stop() {
+      this.stopAt = 0;
+    }
+  }
+}
@@ -0,0 +1,325 @@
+package controller.script;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import model.parallel.StageMetrics;
+
+/**
+ * Runs the commands of many scripts at once as a pipeline of three stages, each with its own
+ * threads: loading images, processing them, and saving them. While one script is processing its
+ * images, the next can be loading its own and the one before saving its own, so the disks and
+ * the processors are used at the same time. The stages are shared by every script run on this
+ * scheduler, and each has a bounded queue: a script whose commands find the queue of their stage
+ * full waits for room, holding back the scripts behind it.
+ *
+ * <p>Each load command belongs to the load stage, each save command to the save stage, and every
+ * other command to the processing stage, except that a command is moved to a later stage if it
+ * depends on a command of that stage, as described in {@link ScriptScheduler}. The commands of
+ * one script then run stage by stage, in the order of the script within each stage, which only
+ * ever reorders commands that do not depend on each other. The messages of each command are
+ * still shown in the order of the script, and a command that throws an exception stops the
+ * commands after it as it would when run line by line.
+ *
+ * <p>A model may leave operations to be run once their layers are read, which for most scripts
+ * is by a save. Given a way to compute layers, the processing stage computes every layer the
+ * save stage reads once its own commands are done, so that the work of the operations is done
+ * on the threads of the processing stage rather than those of the save stage.
+ */
+public class StagedScheduler extends ScriptScheduler {
+  /**
+   * The system property giving the number of threads of the load, processing and save stages,
+   * separated by commas, for a scheduler made without arguments.
+   */
+  public static final String STAGE_THREADS_PROPERTY = "imageeditor.pipeline.threads";
+
+  // Scripts that may wait in the queue of a stage, per thread of the stage
+  private static final int QUEUED_PER_THREAD = 2;
+  private static final String[] STAGE_NAMES = {"load", "process", "save"};
+  private static final int LOAD = 0;
+  private static final int PROCESS = 1;
+  private static final int SAVE = 2;
+
+  private final Stage[] stages;
+
+  /**
+   * Constructs a scheduler with the numbers of threads given by the
+   * {@value #STAGE_THREADS_PROPERTY} system property, or otherwise with one processing thread per
+   * available processor and half as many loading and saving threads.
+   */
+  public StagedScheduler() {
+    this(threadsFromProperty());
+  }
+
+  private StagedScheduler(int[] threads) {
+    this(threads[LOAD], threads[PROCESS], threads[SAVE]);
+  }
+
+  /**
+   * Constructs a scheduler with the given number of threads in each stage, each with a queue
+   * holding twice as many scripts as it has threads.
+   * @param loaders the number of threads loading images.
+   * @param processors the number of threads processing images.
+   * @param savers the number of threads saving images.
+   * @throws IllegalArgumentException if any number is not positive.
+   */
+  public StagedScheduler(int loaders, int processors, int savers)
+      throws IllegalArgumentException {
+    super(processors);
+    if (loaders < 1 || savers < 1) {
+      throw new IllegalArgumentException("Threads must be positive.");
+    }
+    int[] threads = {loaders, processors, savers};
+    this.stages = new Stage[threads.length];
+    for (int i = 0; i < threads.length; i++) {
+      this.stages[i] = new Stage(STAGE_NAMES[i], threads[i], threads[i] * QUEUED_PER_THREAD);
+    }
+  }
+
+  private static int[] threadsFromProperty() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    int[] threads = {Math.max(1, processors / 2), processors, Math.max(1, processors / 2)};
+    String value = System.getProperty(STAGE_THREADS_PROPERTY);
+    if (value != null) {
+      String[] parts = value.split(",");
+      try {
+        int[] parsed = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+          parsed[i] = Integer.parseInt(parts[i].trim());
+        }
+        if (parsed.length == threads.length && Arrays.stream(parsed).allMatch(t -> t > 0)) {
+          return parsed;
+        }
+      } catch (NumberFormatException e) {
+        // Falls through to the threads from the number of processors
+      }
+    }
+    return threads;
+  }
+
+  /**
+   * Returns the counts of the scripts passing through each stage, each script being one task in
+   * each stage it has commands in.
+   * @return the metrics of the load, processing and save stages, in that order.
+   */
+  public List<StageMetrics> getMetrics() {
+    return Collections.unmodifiableList(Arrays.asList(this.stages[LOAD].metrics,
+        this.stages[PROCESS].metrics, this.stages[SAVE].metrics));
+  }
+
+  /**
+   * Finds the stage each command runs in.
+   * @param commands the commands of the script, in order.
+   * @return the stage of each command: 0 to load, 1 to process and 2 to save.
+   */
+  static int[] stages(List<ScriptCommand> commands) {
+    int[] stages = new int[commands.size()];
+    for (int i = 0; i < stages.length; i++) {
+      switch (commands.get(i).getArgs()[0]) {
+        case "load":
+          stages[i] = LOAD;
+          break;
+        case "save":
+          stages[i] = SAVE;
+          break;
+        default:
+          stages[i] = PROCESS;
+          break;
+      }
+    }
+    // Every command waited on comes earlier, so its stage is final when it is reached
+    List<Set<Integer>> dependents = dependents(commands);
+    for (int i = 0; i < stages.length; i++) {
+      for (int waiter : dependents.get(i)) {
+        stages[waiter] = Math.max(stages[waiter], stages[i]);
+      }
+    }
+    return stages;
+  }
+
+  /**
+   * Finds the layers the commands of the save stage read as they were left by the earlier
+   * stages, which are the layers the processing stage computes.
+   * @param commands the commands of the script, in order.
+   * @param stageOf the stage of each command.
+   * @return the names of the layers, in the order they are first read.
+   */
+  static Set<String> computedLayers(List<ScriptCommand> commands, int[] stageOf) {
+    Set<String> layers = new LinkedHashSet<>();
+    Set<String> written = new HashSet<>();
+    for (int i = 0; i < stageOf.length; i++) {
+      if (stageOf[i] != SAVE) {
+        continue;
+      }
+      for (String read : commands.get(i).getReads()) {
+        if (read.startsWith(ScriptCommand.LAYER_PREFIX) && !written.contains(read)) {
+          layers.add(read.substring(ScriptCommand.LAYER_PREFIX.length()));
+        }
+      }
+      written.addAll(commands.get(i).getWrites());
+    }
+    return layers;
+  }
+
+  /**
+   * Runs the given commands stage by stage on the threads of this scheduler, calling the runner
+   * on each one while its messages are kept by the given output. No layer is computed ahead of
+   * the commands reading it.
+   * @param commands the commands of the script, in order.
+   * @param runner runs a single command.
+   * @param output the output the runner renders its messages to.
+   * @throws IllegalArgumentException if any argument is null.
+   * @throws IllegalStateException if the messages cannot be shown, or the running thread is
+   *         interrupted.
+   * @throws RuntimeException the first exception thrown by the runner.
+   */
+  @Override
+  public void run(List<ScriptCommand> commands, Consumer<ScriptCommand> runner,
+                  CommandOutput output) throws IllegalArgumentException, IllegalStateException {
+    this.run(commands, runner, name -> { }, output);
+  }
+
+  /**
+   * Runs the given commands stage by stage on the threads of this scheduler, calling the runner
+   * on each one while its messages are kept by the given output. Once the commands of the
+   * processing stage are done, it computes the layers the save stage reads.
+   * @param commands the commands of the script, in order.
+   * @param runner runs a single command.
+   * @param computer computes the layer with the given name, if it has not been computed yet.
+   * @param output the output the runner renders its messages to.
+   * @throws IllegalArgumentException if any argument is null.
+   * @throws IllegalStateException if the messages cannot be shown, or the running thread is
+   *         interrupted.
+   * @throws RuntimeException the first exception thrown by the runner.
+   */
+  @Override
+  public void run(List<ScriptCommand> commands, Consumer<ScriptCommand> runner,
+                  Consumer<String> computer, CommandOutput output)
+      throws IllegalArgumentException, IllegalStateException {
+    if (commands == null || runner == null || computer == null || output == null) {
+      throw new IllegalArgumentException("Commands, runner, computer and output must not be "
+          + "null.");
+    }
+    int[] stageOf = stages(commands);
+    Set<String> computed = computedLayers(commands, stageOf);
+    StringBuilder[] buffers = new StringBuilder[commands.size()];
+    // Commands from this index on are not started
+    int[] stopAt = {commands.size()};
+    Throwable[] failure = new Throwable[1];
+
+    for (int stage = 0; stage < this.stages.length; stage++) {
+      int current = stage;
+      boolean any = false;
+      for (int i = 0; i < stopAt[0] && !any; i++) {
+        any = stageOf[i] == current;
+      }
+      if (!any) {
+        continue;
+      }
+      this.stages[stage].run(() -> {
+        for (int i = 0; i < stopAt[0]; i++) {
+          if (stageOf[i] != current) {
+            continue;
+          }
+          buffers[i] = new StringBuilder();
+          output.capture(buffers[i]);
+          try {
+            runner.accept(commands.get(i));
+          } catch (RuntimeException | Error e) {
+            failure[0] = e;
+            stopAt[0] = i + 1;
+          } finally {
+            output.release();
+          }
+        }
+        if (current == PROCESS && failure[0] == null) {
+          for (String name : computed) {
+            try {
+              computer.accept(name);
+            } catch (RuntimeException e) {
+              // The command reading the layer reports what is wrong with it
+            }
+          }
+        }
+      });
+    }
+
+    for (int i = 0; i < stopAt[0]; i++) {
+      if (buffers[i] != null) {
+        output.flush(buffers[i]);
+      }
+    }
+    if (failure[0] instanceof Error) {
+      throw (Error) failure[0];
+    } else if (failure[0] != null) {
+      throw (RuntimeException) failure[0];
+    }
+  }
+
+  /**
+   * Holds the threads of one stage, and the room in its queue.
+   */
+  private static class Stage {
+    private final StageMetrics metrics;
+    private final ThreadPoolExecutor pool;
+    private final Semaphore room;
+
+    private Stage(String name, int threads, int queued) {
+      this.metrics = new StageMetrics(name);
+      this.pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "pipeline-" + name);
+            thread.setDaemon(true);
+            return thread;
+          });
+      // Threads of a scheduler that is no longer used end, so it does not hold them forever
+      this.pool.allowCoreThreadTimeOut(true);
+      this.room = new Semaphore(threads + queued, true);
+    }
+
+    /**
+     * Runs the task on a thread of this stage once there is room in its queue, and waits for it
+     * to finish.
+     */
+    private void run(Runnable task) throws IllegalStateException {
+      long enqueuedAt = this.metrics.enqueued();
+      try {
+        this.room.acquire();
+      } catch (InterruptedException e) {
+        this.metrics.dequeued();
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Script was interrupted.");
+      }
+      Future<?> future = this.pool.submit(() -> {
+        long startedAt = this.metrics.started(enqueuedAt);
+        try {
+          task.run();
+        } finally {
+          this.metrics.finished(startedAt);
+          this.room.release();
+        }
+      });
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        // The task is left to finish, so that it gives back its room in the queue
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Script was interrupted.");
+      } catch (ExecutionException e) {
+        // The task keeps what its commands throw, so only an unexpected failure gets here
+        throw new IllegalStateException("Script could not be run: " + e.getCause());
+      }
+    }
+  }
+}
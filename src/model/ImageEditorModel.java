@@ -9,11 +9,11 @@ public interface ImageEditorModel extends ImageEditorState {
   /**
    * Accepts a loaded image from the given path. Obtains the internal information about the file,
    * such as the pixels, and stores this in memory as the given name.
-   * @param image the 2D array of Pixels for the newly loaded image to accept into the model.
+   * @param image the packed image for the newly loaded image to accept into the model.
    * @param name the name the file is being stored as in memory.
    * @throws IllegalArgumentException if either of the parameters are null.
    */
-  void acceptNewImage(Pixel[][] image, String name)
+  void acceptNewImage(PackedImage image, String name)
       throws IllegalArgumentException;
 
   /**
@@ -69,4 +69,67 @@ public interface ImageEditorModel extends ImageEditorState {
   void greyscale(String fromImageName, String toImageName);
 
   void sepia(String fromImageName, String toImageName);
+
+  /**
+   * Applies gamma correction to every channel of the image, and saves the resulting image to the
+   * new name in memory. A value v becomes 255 * (v / 255)^(1 / gamma), so a gamma above one
+   * brightens the image and a gamma below one darkens it.
+   * @param gamma the gamma to correct by, which must be positive.
+   * @param fromImageName the image to conduct this operation on, stored in memory.
+   * @param toImageName the new image name to save the resulting image to in memory.
+   * @throws IllegalArgumentException if the gamma is not positive, or either name is null.
+   * @throws IllegalStateException if the given image name cannot be found in memory.
+   */
+  void gamma(double gamma, String fromImageName, String toImageName)
+      throws IllegalArgumentException, IllegalStateException;
+
+  /**
+   * Stretches the given range of values to the full range of every channel, and saves the
+   * resulting image to the new name in memory. Values at or below black become 0 and values at
+   * or above white become 255.
+   * @param black the value that becomes 0.
+   * @param white the value that becomes 255.
+   * @param fromImageName the image to conduct this operation on, stored in memory.
+   * @param toImageName the new image name to save the resulting image to in memory.
+   * @throws IllegalArgumentException if black is not below white, either is outside of 0 to 255,
+   *         or either name is null.
+   * @throws IllegalStateException if the given image name cannot be found in memory.
+   */
+  void levels(int black, int white, String fromImageName, String toImageName)
+      throws IllegalArgumentException, IllegalStateException;
+
+  /**
+   * Scales the distance of every channel from the middle value 128 by the given factor, and
+   * saves the resulting image to the new name in memory.
+   * @param factor the factor to scale by, above one to increase contrast.
+   * @param fromImageName the image to conduct this operation on, stored in memory.
+   * @param toImageName the new image name to save the resulting image to in memory.
+   * @throws IllegalArgumentException if the factor is negative, or either name is null.
+   * @throws IllegalStateException if the given image name cannot be found in memory.
+   */
+  void contrast(double factor, String fromImageName, String toImageName)
+      throws IllegalArgumentException, IllegalStateException;
+
+  /**
+   * Inverts every channel of the image, and saves the resulting image to the new name in memory.
+   * @param fromImageName the image to conduct this operation on, stored in memory.
+   * @param toImageName the new image name to save the resulting image to in memory.
+   * @throws IllegalArgumentException if either name is null.
+   * @throws IllegalStateException if the given image name cannot be found in memory.
+   */
+  void invert(String fromImageName, String toImageName)
+      throws IllegalArgumentException, IllegalStateException;
+
+  /**
+   * Turns every channel value at or above the given level into 255 and every other value into
+   * 0, and saves the resulting image to the new name in memory.
+   * @param level the lowest value that becomes 255.
+   * @param fromImageName the image to conduct this operation on, stored in memory.
+   * @param toImageName the new image name to save the resulting image to in memory.
+   * @throws IllegalArgumentException if the level is outside of 0 to 255, or either name is
+   *         null.
+   * @throws IllegalStateException if the given image name cannot be found in memory.
+   */
+  void threshold(int level, String fromImageName, String toImageName)
+      throws IllegalArgumentException, IllegalStateException;
 }
@@ -9,8 +9,18 @@ public interface ImageEditorState {
   String[] getListOfLayers();
 
   /**
-   * Given a name of an image in memory, returns the image 2D array of Pixels representing that
-   * specific image. If it is not found, throws an error.
+   * Given a name of an image in memory, returns the packed image representing that specific
+   * image. If it is not found, throws an error.
+   * @param name the name of the image that has been saved in memory.
+   * @return the packed image stored with that name.
+   * @throws IllegalStateException if the image cannot be found by its name in memory.
+   */
+  PackedImage releasePackedImage(String name) throws IllegalStateException;
+
+  /**
+   * Given a name of an image in memory, returns a 2D array of Pixels representing that specific
+   * image. This is a compatibility adapter over {@link #releasePackedImage(String)}, and the
+   * returned array is a copy. If it is not found, throws an error.
    * @param name the name of the image that has been saved in memory.
    * @return the 2D array of Pixels representing the image.
    * @throws IllegalStateException if the image cannot be found by its name in memory.
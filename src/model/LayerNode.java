@@ -0,0 +1,202 @@
+package model;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+import model.parallel.RowExecutor;
+import model.pointop.PointOp;
+import model.pointop.PointOpChain;
+import model.store.LayerStore;
+
+/**
+ * Represents one layer of the model as the operation that produced it and the layer it was
+ * produced from. Loaded layers are the roots of this lineage: their images are kept in a
+ * {@link LayerStore}, as they cannot be produced again. Every other layer only holds its image
+ * through a soft reference, which the garbage collector clears when memory runs low, and is
+ * computed again from its lineage when it is next read.
+ *
+ * <p>A layer produced by a point operation is not computed on its own. When it is read, the
+ * point operations leading to it from the nearest layer that is still held are combined into
+ * one chain and applied in a single pass, and only the layer that was read is kept.
+ *
+ * <p>Nodes count the names and later nodes that refer to them, and a node that nothing refers to
+ * any more drops its image and the reference to the node it was produced from. The counts are
+ * only changed under the lock of the model holding the nodes, while images may be computed by
+ * several threads at once.
+ */
+class LayerNode {
+  /**
+   * Represents an operation that produces a whole image from another image.
+   */
+  interface Operation {
+    /**
+     * Produces an image from the given image, which is not modified.
+     * @param image the image to produce the result from.
+     * @param executor the executor to run the rows of the operation on.
+     * @return the new image.
+     */
+    PackedImage apply(PackedImage image, RowExecutor executor);
+  }
+
+  private static long nextKey;
+
+  private final String description;
+  private final LayerStore store;
+  private final String key;
+  private LayerNode input;
+  private final PointOp pointOp;
+  private final Operation operation;
+  private volatile SoftReference<PackedImage> cached;
+  private int references;
+
+  private LayerNode(String description, LayerStore store, String key, LayerNode input,
+                    PointOp pointOp, Operation operation) {
+    this.description = description;
+    this.store = store;
+    this.key = key;
+    this.input = input;
+    this.pointOp = pointOp;
+    this.operation = operation;
+    if (input != null) {
+      input.retain();
+    }
+  }
+
+  /**
+   * Creates a root node whose image is kept in the given store.
+   * @param image the image of the layer.
+   * @param store the store to keep the image in.
+   * @return the new node.
+   */
+  static LayerNode root(PackedImage image, LayerStore store) {
+    String key;
+    synchronized (LayerNode.class) {
+      key = "#" + nextKey++;
+    }
+    store.put(key, image);
+    return new LayerNode("load", store, key, null, null, null);
+  }
+
+  /**
+   * Creates a node produced from this node by the given point operation.
+   * @param description a short description of the operation.
+   * @param op the point operation.
+   * @return the new node.
+   */
+  LayerNode then(String description, PointOp op) {
+    return new LayerNode(description, null, null, this, op, null);
+  }
+
+  /**
+   * Creates a node produced from this node by the given operation.
+   * @param description a short description of the operation.
+   * @param op the operation.
+   * @return the new node.
+   */
+  LayerNode then(String description, Operation op) {
+    return new LayerNode(description, null, null, this, null, op);
+  }
+
+  /**
+   * Records one more name or node referring to this node.
+   */
+  void retain() {
+    this.references++;
+  }
+
+  /**
+   * Records that a name or node no longer refers to this node, dropping its image and lineage
+   * once nothing refers to it.
+   */
+  void release() {
+    LayerNode node = this;
+    while (node != null && --node.references <= 0) {
+      if (node.key != null) {
+        node.store.remove(node.key);
+      }
+      node.cached = null;
+      LayerNode input = node.input;
+      node.input = null;
+      node = input;
+    }
+  }
+
+  /**
+   * Drops the images of this layer and every layer it was produced from, other than loaded
+   * layers, so that they are computed again when next read.
+   */
+  void drop() {
+    for (LayerNode node = this; node != null; node = node.input) {
+      node.cached = null;
+    }
+  }
+
+  /**
+   * Returns the image of this layer if it is held, without computing it.
+   * @return the image, or null if it would have to be computed.
+   */
+  private PackedImage held() {
+    if (this.key != null) {
+      return this.store.get(this.key);
+    }
+    return this.cached == null ? null : this.cached.get();
+  }
+
+  /**
+   * Returns the image of this layer, computing it from its lineage if it is not held. Layers it
+   * was made from that are needed to compute it and are not held are computed too.
+   * @param executor the executor to run the rows of any operations on.
+   * @return the image.
+   * @throws IllegalStateException if the image of a root layer has been lost.
+   */
+  PackedImage image(RowExecutor executor) throws IllegalStateException {
+    // Walks back to the nearest layer that is held, then computes forward from it, so that
+    // long lineages do not take a deep stack
+    Deque<LayerNode> path = new ArrayDeque<>();
+    LayerNode node = this;
+    PackedImage image = node.held();
+    while (image == null) {
+      if (node.key != null) {
+        throw new IllegalStateException("Image of layer was lost.");
+      }
+      path.push(node);
+      node = node.input;
+      image = node.held();
+    }
+
+    PointOpChain chain = null;
+    while (!path.isEmpty()) {
+      node = path.pop();
+      if (node.pointOp == null) {
+        image = node.operation.apply(image, executor);
+      } else {
+        chain = chain == null ? PointOpChain.of(node.pointOp) : chain.then(node.pointOp);
+        // Only the last of a run of point operations is computed, in one fused pass
+        if (!path.isEmpty() && path.peek().pointOp != null) {
+          continue;
+        }
+        image = chain.apply(image, executor);
+        chain = null;
+      }
+      node.cached = new SoftReference<>(image);
+    }
+    return image;
+  }
+
+  /**
+   * Returns the descriptions of the operations producing this layer, from its root layer on.
+   * @return the descriptions in the order they were applied.
+   */
+  List<String> lineage() {
+    List<String> lineage = new ArrayList<>();
+    for (LayerNode node = this; node != null; node = node.input) {
+      lineage.add(node.description);
+    }
+    Collections.reverse(lineage);
+    return lineage;
+  }
+}
@@ -0,0 +1,204 @@
+package model;
+
+/**
+ * Represents an image as a single packed array of 0xRRGGBB integers stored row by row. This is
+ * the representation the model, filters, color transforms, loaders, and savers operate on, as it
+ * stores a whole image in one primitive array instead of one object per pixel. Each channel is
+ * stored in eight bits, so every value is between 0 and 255 inclusive.
+ */
+public class PackedImage implements RowSource {
+  private final int width;
+  private final int height;
+  private final int[] data;
+
+  /**
+   * Constructs a new black image of the given size.
+   * @param width the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @throws IllegalArgumentException if either dimension is not positive.
+   */
+  public PackedImage(int width, int height) throws IllegalArgumentException {
+    this(width, height, new int[checkSize(width, height)]);
+  }
+
+  /**
+   * Constructs a new image of the given size backed by the given array. The array is used
+   * directly, not copied, so later changes to it are visible in this image.
+   * @param width the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @param data the packed 0xRRGGBB values of the image, stored row by row.
+   * @throws IllegalArgumentException if the data is null, either dimension is not positive, or
+   *         the data does not hold exactly width * height values.
+   */
+  public PackedImage(int width, int height, int[] data) throws IllegalArgumentException {
+    if (data == null) {
+      throw new IllegalArgumentException("Image data may not be null.");
+    }
+    if (data.length != checkSize(width, height)) {
+      throw new IllegalArgumentException("Image data does not match the given dimensions.");
+    }
+    this.width = width;
+    this.height = height;
+    this.data = data;
+  }
+
+  private static int checkSize(int width, int height) {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("Image dimensions must be positive.");
+    }
+    long size = (long) width * height;
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Image is too large to be stored in memory.");
+    }
+    return (int) size;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public void readRow(int row, int[] dst) {
+    System.arraycopy(this.data, row * this.width, dst, 0, this.width);
+  }
+
+  /**
+   * Returns the backing array of this image. Pixel (row, col) is stored at index
+   * row * width + col as a packed 0xRRGGBB value.
+   * @return the backing array, not a copy.
+   */
+  public int[] getData() {
+    return this.data;
+  }
+
+  /**
+   * Returns the packed 0xRRGGBB value of the pixel at the given location.
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @return the packed color of the pixel.
+   */
+  public int getRGB(int row, int col) {
+    return this.data[row * this.width + col];
+  }
+
+  /**
+   * Sets the packed 0xRRGGBB value of the pixel at the given location.
+   * @param row the row of the pixel.
+   * @param col the column of the pixel.
+   * @param rgb the packed color of the pixel.
+   */
+  public void setRGB(int row, int col, int rgb) {
+    this.data[row * this.width + col] = rgb;
+  }
+
+  /**
+   * Returns the number of bytes of pixel data held by this image.
+   * @return the size of the backing array in bytes.
+   */
+  public long sizeInBytes() {
+    return (long) this.data.length * Integer.BYTES;
+  }
+
+  /**
+   * Creates a deep copy of this image.
+   * @return a new image with its own copy of the pixel data.
+   */
+  public PackedImage copy() {
+    return new PackedImage(this.width, this.height, this.data.clone());
+  }
+
+  /**
+   * Packs the given channel values into a single 0xRRGGBB value. The values are expected to be
+   * between 0 and 255 inclusive.
+   * @param r the red value.
+   * @param g the green value.
+   * @param b the blue value.
+   * @return the packed color.
+   */
+  public static int pack(int r, int g, int b) {
+    return (r << 16) | (g << 8) | b;
+  }
+
+  /**
+   * Returns the red value of a packed color.
+   * @param rgb the packed color.
+   * @return the red value.
+   */
+  public static int red(int rgb) {
+    return (rgb >> 16) & 0xFF;
+  }
+
+  /**
+   * Returns the green value of a packed color.
+   * @param rgb the packed color.
+   * @return the green value.
+   */
+  public static int green(int rgb) {
+    return (rgb >> 8) & 0xFF;
+  }
+
+  /**
+   * Returns the blue value of a packed color.
+   * @param rgb the packed color.
+   * @return the blue value.
+   */
+  public static int blue(int rgb) {
+    return rgb & 0xFF;
+  }
+
+  /**
+   * Caps the given value between 0 and 255 inclusive.
+   * @param val the value to cap.
+   * @return the capped value.
+   */
+  public static int clamp(int val) {
+    if (val < 0) {
+      return 0;
+    }
+    return Math.min(val, 255);
+  }
+
+  /**
+   * Creates a packed image from the given 2D array of Pixels. Channel values above 255 are capped
+   * to 255, as each channel is stored in eight bits.
+   * @param pixels the 2D array of Pixels to convert.
+   * @return the packed image holding the same colors.
+   * @throws IllegalArgumentException if the array is null or empty.
+   */
+  public static PackedImage fromPixels(Pixel[][] pixels) throws IllegalArgumentException {
+    if (pixels == null || pixels.length == 0 || pixels[0] == null) {
+      throw new IllegalArgumentException("Pixels may not be null or empty.");
+    }
+    PackedImage image = new PackedImage(pixels[0].length, pixels.length);
+    for (int row = 0; row < image.height; row++) {
+      for (int col = 0; col < image.width; col++) {
+        Pixel p = pixels[row][col];
+        image.data[row * image.width + col] =
+            pack(clamp(p.getRed()), clamp(p.getGreen()), clamp(p.getBlue()));
+      }
+    }
+    return image;
+  }
+
+  /**
+   * Creates a 2D array of Pixels holding the colors of this image. The array is a new copy, so
+   * changes to it do not affect this image.
+   * @return the 2D array of Pixels for this image.
+   */
+  public Pixel[][] toPixels() {
+    Pixel[][] pixels = new Pixel[this.height][this.width];
+    for (int row = 0; row < this.height; row++) {
+      for (int col = 0; col < this.width; col++) {
+        int rgb = this.data[row * this.width + col];
+        pixels[row][col] = new Pixel(red(rgb), green(rgb), blue(rgb));
+      }
+    }
+    return pixels;
+  }
+}
@@ -0,0 +1,28 @@
+package model;
+
+/**
+ * Represents a read-only source of image rows. Operations that work a few rows at a time, such
+ * as convolutions, read their input through this interface so that they never need to hold or
+ * modify a whole image of input.
+ */
+public interface RowSource {
+  /**
+   * Returns the width of the rows of this source in pixels.
+   * @return the width of each row.
+   */
+  int getWidth();
+
+  /**
+   * Returns the number of rows of this source.
+   * @return the height of the source.
+   */
+  int getHeight();
+
+  /**
+   * Copies the packed 0xRRGGBB values of the given row into the start of the given array.
+   * @param row the row to read, between 0 inclusive and the height exclusive.
+   * @param dst the array to copy the row into, at least as long as the width.
+   * @throws IllegalStateException if the row could not be read.
+   */
+  void readRow(int row, int[] dst) throws IllegalStateException;
+}
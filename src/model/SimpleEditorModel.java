@@ -1,49 +1,249 @@
 package model;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
-import model.colortransform.ColorTransform;
 import model.colortransform.Greyscale;
-import model.colortransform.Luma;
 import model.colortransform.Sepia;
 import model.filters.Blur;
-import model.filters.Filter;
 import model.filters.Sharpen;
+import model.parallel.RowExecutor;
+import model.pointop.ChannelLut;
+import model.pointop.ComponentOp;
+import model.pointop.MatrixOp;
+import model.pointop.PointOp;
+import model.store.LayerStore;
 
 /**
  * Represents a SimpleImageEditor. Can load, conduct operations on, and save images. This editor
  * can also store multiple images within its memory on a single concurrent run. Then, allowing
  * the user to save any of these representations of the images to a given path.
+ *
+ * <p>Every layer remembers the operation that produced it and the layer it was produced from.
+ * Loaded layers are kept in a {@link LayerStore}, which spills the least recently used ones to
+ * disk once they take more memory than its budget, and reads them back when they are used. Layers
+ * produced by operations are only held through soft references, so the garbage collector may
+ * drop them when memory runs low, and a dropped layer is computed again from its lineage the
+ * next time it is read.
+ *
+ * <p>Point operations (brighten, components, greyscale, sepia, gamma, levels, contrast, invert,
+ * and threshold) are not run when they are asked for. A layer made by point operations is only
+ * computed, in a single fused pass over the nearest layer it was made from that is still held,
+ * once it is actually read: when it is released, or when a filter or flip uses it. Layers in the
+ * middle of a chain that are never read are never computed.
+ *
+ * <p>Filters and flips are run when they are asked for, unless the model is lazy. A lazy model
+ * runs no operation until a layer is read, by a save, a display, or a release, and then only
+ * runs the operations that layer was made from. Layers that are never read, and every layer
+ * only they were made from, are never computed. Models are lazy when the {@value #LAZY_PROPERTY}
+ * system property is true.
+ *
+ * <p>Operations may be called from several threads at once, as long as no two of them run at
+ * once where one writes a layer the other reads or writes. Layers are computed outside of the
+ * model's lock, so operations on unrelated layers run at the same time.
  */
 public class SimpleEditorModel implements ImageEditorModel {
-  protected final Map<String, Pixel[][]> images;
+  public static final String LAZY_PROPERTY = "imageeditor.lazy";
+
+  protected final LayerStore images;
+  protected final RowExecutor executor;
+  private final Map<String, LayerNode> layers;
+  private final boolean lazy;
 
   /**
    * Constructs an instance of the model to represent the image at the given file name for the
    * parameter. After checking to ensure the file name is not null, the fileName field will be
-   * instantiated and the image 2D array will be instantiated as well.
+   * instantiated and the image 2D array will be instantiated as well. Operations run on the
+   * default row executor.
    */
   public SimpleEditorModel() {
-    this.images = new HashMap<>();
+    this(RowExecutor.getDefault());
+  }
+
+  /**
+   * Constructs an instance of the model whose operations run their rows on the given executor.
+   * Layers are kept in a store with the default budget.
+   * @param executor the executor to run the rows of each operation on.
+   * @throws IllegalArgumentException if the executor is null.
+   */
+  public SimpleEditorModel(RowExecutor executor) throws IllegalArgumentException {
+    this(executor, new LayerStore());
+  }
+
+  /**
+   * Constructs an instance of the model whose operations run their rows on the given executor
+   * and whose loaded layers are kept in the given store.
+   * @param executor the executor to run the rows of each operation on.
+   * @param store the store to keep the loaded layers in.
+   * @throws IllegalArgumentException if either argument is null.
+   */
+  public SimpleEditorModel(RowExecutor executor, LayerStore store)
+      throws IllegalArgumentException {
+    this(executor, store, Boolean.getBoolean(LAZY_PROPERTY));
+  }
+
+  /**
+   * Constructs an instance of the model whose operations run their rows on the given executor
+   * and whose loaded layers are kept in the given store.
+   * @param executor the executor to run the rows of each operation on.
+   * @param store the store to keep the loaded layers in.
+   * @param lazy whether filters and flips wait until their layers are read to run.
+   * @throws IllegalArgumentException if the executor or store is null.
+   */
+  public SimpleEditorModel(RowExecutor executor, LayerStore store, boolean lazy)
+      throws IllegalArgumentException {
+    if (executor == null || store == null) {
+      throw new IllegalArgumentException("Executor and store may not be null");
+    }
+    this.images = store;
+    this.layers = new HashMap<>();
+    this.executor = executor;
+    this.lazy = lazy;
+  }
+
+  /**
+   * Stores the given node under the given name, replacing any layer already stored under it.
+   * @param name the name to store the layer under.
+   * @param node the node of the layer.
+   */
+  private void store(String name, LayerNode node) {
+    synchronized (this.layers) {
+      node.retain();
+      LayerNode old = this.layers.put(name, node);
+      if (old != null) {
+        old.release();
+      }
+    }
+  }
+
+  /**
+   * Returns the node of the layer stored under the given name.
+   * @param name the name of the layer.
+   * @return the node of the layer.
+   * @throws IllegalStateException if there is no layer with the name.
+   */
+  private LayerNode node(String name) throws IllegalStateException {
+    LayerNode node;
+    synchronized (this.layers) {
+      node = this.layers.get(name);
+    }
+    if (node == null) {
+      throw new IllegalStateException("Image \"" + name + "\" not found in saved list.");
+    }
+    return node;
+  }
+
+  /**
+   * Stores a layer under the to name that applies the given point operation to the layer stored
+   * under the from name. The new layer is not computed until it is read.
+   * @param description a short description of the operation.
+   * @param op the point operation to apply.
+   * @param fromImageName the layer to apply the operation to.
+   * @param toImageName the name to store the new layer under.
+   * @throws IllegalStateException if there is no layer with the from name.
+   */
+  private void deferPointOp(String description, PointOp op, String fromImageName,
+                            String toImageName) throws IllegalStateException {
+    LayerNode node;
+    synchronized (this.layers) {
+      node = this.node(fromImageName).then(description, op);
+    }
+    this.store(toImageName, node);
+  }
+
+  /**
+   * Stores a layer under the to name that applies the given operation to the layer stored under
+   * the from name, and computes it straight away unless this model is lazy.
+   * @param description a short description of the operation.
+   * @param op the operation to apply.
+   * @param fromImageName the layer to apply the operation to.
+   * @param toImageName the name to store the new layer under.
+   * @throws IllegalStateException if there is no layer with the from name.
+   */
+  private void apply(String description, LayerNode.Operation op, String fromImageName,
+                     String toImageName) throws IllegalStateException {
+    LayerNode node;
+    synchronized (this.layers) {
+      node = this.node(fromImageName).then(description, op);
+    }
+    if (!this.lazy) {
+      try {
+        node.image(this.executor);
+      } catch (RuntimeException e) {
+        synchronized (this.layers) {
+          node.release();
+        }
+        throw e;
+      }
+    }
+    this.store(toImageName, node);
   }
 
   @Override
-  public void acceptNewImage(Pixel[][] image, String name)
+  public void acceptNewImage(PackedImage image, String name)
       throws IllegalArgumentException {
     if (image == null || name == null) {
       throw new IllegalArgumentException("Image or name accepted may not be null");
     }
-    this.images.put(name, image);
+    this.store(name, LayerNode.root(image, this.images));
   }
 
   @Override
-  public Pixel[][] releaseImage(String name) throws IllegalStateException {
-    Pixel[][] value = this.images.get(name);
-    if (value == null) {
-      throw new IllegalStateException("Image \"" + name + "\" not found in saved list.");
+  public PackedImage releasePackedImage(String name) throws IllegalStateException {
+    return this.node(name).image(this.executor);
+  }
+
+  /**
+   * Returns the operations that produced the layer stored under the given name, starting with
+   * the loading of the layer it was first made from.
+   * @param name the name of the layer.
+   * @return short descriptions of the operations, in the order they were applied.
+   * @throws IllegalStateException if there is no layer with the name.
+   */
+  public List<String> getLineage(String name) throws IllegalStateException {
+    synchronized (this.layers) {
+      return this.node(name).lineage();
+    }
+  }
+
+  /**
+   * Returns whether this model waits until layers are read to run filters and flips.
+   * @return true if this model is lazy.
+   */
+  public boolean isLazy() {
+    return this.lazy;
+  }
+
+  /**
+   * Drops the images of every layer produced by an operation, leaving only their lineage, so
+   * that their memory can be used before the garbage collector would reclaim it. The layers are
+   * computed again when they are next read.
+   */
+  public void dropComputedLayers() {
+    synchronized (this.layers) {
+      for (LayerNode node : this.layers.values()) {
+        node.drop();
+      }
+    }
+  }
+
+  /**
+   * Removes every layer, releasing the memory and spill space they take in the layer store. The
+   * store itself may still be used by other models.
+   */
+  public void clear() {
+    synchronized (this.layers) {
+      for (LayerNode node : this.layers.values()) {
+        node.release();
+      }
+      this.layers.clear();
     }
-    return value;
+  }
+
+  @Override
+  public Pixel[][] releaseImage(String name) throws IllegalStateException {
+    return this.releasePackedImage(name).toPixels();
   }
 
   @Override
@@ -53,56 +253,7 @@ public class SimpleEditorModel implements ImageEditorModel {
       throw new IllegalArgumentException("Component type and image names must not be null");
     }
 
-    if (type == Component.LUMA) {
-      ColorTransform luma = new Luma(this.releaseImage(fromImageName));
-      this.images.put(toImageName, luma.transform());
-      return;
-    }
-
-    Pixel[][] image = this.releaseImage(fromImageName);
-    Pixel[][] result = new Pixel[image.length][image[0].length];
-
-    for (int i = 0; i < result.length; i++) {
-      for (int j = 0; j < result[i].length; j++) {
-        Pixel p = image[i][j].clone();
-        int component;
-        switch (type) {
-          case RED:
-            component = p.getRed();
-            p.setGreen(component);
-            p.setBlue(component);
-            break;
-          case GREEN:
-            component = p.getGreen();
-            p.setRed(component);
-            p.setBlue(component);
-            break;
-          case BLUE:
-            component = p.getBlue();
-            p.setRed(component);
-            p.setGreen(component);
-            break;
-          case VALUE:
-            int maxVal = Math.max(Math.max(p.getRed(), p.getGreen()), p.getBlue());
-            p.setRGB(maxVal, maxVal, maxVal);
-            break;
-          case INTENSITY:
-            double avg = (p.getRed() + p.getGreen() + p.getBlue()) / 3.0;
-            int newAvg = (int) Math.round(avg);
-            p.setRGB(newAvg, newAvg, newAvg);
-            break;
-          default:
-            /*
-             * No action is intended when no other case applies. The switch statement switches on
-             * the model.Component ENUM, and all the options are specified above, so the program
-             * will never hit the default case.
-             */
-            break;
-        }
-        result[i][j] = p;
-      }
-    }
-    this.images.put(toImageName, result);
+    this.deferPointOp("component " + type, new ComponentOp(type), fromImageName, toImageName);
   }
 
   @Override
@@ -111,25 +262,38 @@ public class SimpleEditorModel implements ImageEditorModel {
       throw new IllegalArgumentException("The image from and destination names must not be null.");
     }
 
-    Pixel[][] image = this.releaseImage(fromImageName);
-    Pixel[][] result = new Pixel[image.length][image[0].length];
+    this.apply("flip " + type, (image, executor) -> flip(type, image, executor),
+        fromImageName, toImageName);
+  }
+
+  /**
+   * Flips the image in the given direction.
+   * @param type the direction of the flip.
+   * @param image the image to flip, which is not modified.
+   * @param executor the executor to run the rows of the flip on.
+   * @return the flipped image.
+   */
+  private static PackedImage flip(Flip type, PackedImage image, RowExecutor executor) {
+    int width = image.getWidth();
+    int height = image.getHeight();
+    int[] src = image.getData();
+    int[] result = new int[src.length];
 
-    for (int i = 0; i < result.length; i++) {
-      for (int j = 0; j < result[i].length; j++) {
-        Pixel temp = image[i][j].clone();
+    executor.forEachBand(height, width, (fromRow, toRow) -> {
+      for (int i = fromRow; i < toRow; i++) {
         if (type == Flip.HORIZONTAL) {
-          result[i][j] = image[i][result[i].length - j - 1].clone();
-          result[i][result[i].length - j - 1] = temp;
+          int rowStart = i * width;
+          for (int j = 0; j < width; j++) {
+            result[rowStart + j] = src[rowStart + width - j - 1];
+          }
         } else if (type == Flip.VERTICAL) {
-          result[i][j] = image[result.length - i - 1][j].clone();
-          result[result.length - i - 1][j] = temp;
+          System.arraycopy(src, (height - i - 1) * width, result, i * width, width);
         }
       }
-    }
-    this.images.put(toImageName, result);
+    });
+    return new PackedImage(width, height, result);
   }
 
-
   @Override
   public void brighten(int value, String fromImageName, String toImageName)
       throws IllegalArgumentException, IllegalStateException {
@@ -137,41 +301,8 @@ public class SimpleEditorModel implements ImageEditorModel {
       throw new IllegalArgumentException("The image from and destination names must not be null.");
     }
 
-    Pixel[][] image = this.releaseImage(fromImageName);
-    Pixel[][] result = new Pixel[image.length][image[0].length];
-
-    for (int i = 0; i < result.length; i++) {
-      for (int j = 0; j < result[i].length; j++) {
-        Pixel p = image[i][j].clone();
-
-        p.setRGB(this.brightenCalc(p.getRed(), value),
-                 this.brightenCalc(p.getGreen(), value),
-                 this.brightenCalc(p.getBlue(), value));
-
-        result[i][j] = p;
-      }
-    }
-    this.images.put(toImageName, result);
-  }
-
-  /**
-   * Supporting method for the this.brighten() method. Given the current value and the change,
-   * will cap the value at either 0 or 255 depending on whether the change is negative or
-   * positive. Will then return the result.
-   * @param before the value before the brighten is added/subtracted.
-   * @param change the value to either add or subtract to brighten/darken the image.
-   * @return the new value after adding/subtracting, capped between 0 and 255 inclusive.
-   */
-  private int brightenCalc(int before, int change) {
-    int result = before + change;
-
-    if (result < 0) {
-      return 0;
-    }
-    if (result > 255) {
-      return 255;
-    }
-    return result;
+    this.deferPointOp("brighten " + value, ChannelLut.brighten(value), fromImageName,
+        toImageName);
   }
 
   /**
@@ -182,8 +313,8 @@ public class SimpleEditorModel implements ImageEditorModel {
    */
   @Override
   public void blur(String fromImageName, String toImageName) throws IllegalStateException {
-    Filter blur = new Blur(this.releaseImage(fromImageName));
-    this.images.put(toImageName, blur.filter());
+    this.apply("blur", (image, executor) -> new Blur(image).filter(executor), fromImageName,
+        toImageName);
   }
 
   /**
@@ -194,8 +325,8 @@ public class SimpleEditorModel implements ImageEditorModel {
    */
   @Override
   public void sharpen(String fromImageName, String toImageName) throws IllegalStateException {
-    Filter sharpen = new Sharpen(this.releaseImage(fromImageName));
-    this.images.put(toImageName, sharpen.filter());
+    this.apply("sharpen", (image, executor) -> new Sharpen(image).filter(executor),
+        fromImageName, toImageName);
   }
 
   /**
@@ -206,8 +337,7 @@ public class SimpleEditorModel implements ImageEditorModel {
    */
   @Override
   public void greyscale(String fromImageName, String toImageName) throws IllegalStateException {
-    ColorTransform greyscale = new Greyscale(this.releaseImage(fromImageName));
-    this.images.put(toImageName, greyscale.transform());
+    this.deferPointOp("greyscale", new MatrixOp(Greyscale.MATRIX), fromImageName, toImageName);
   }
 
   /**
@@ -218,12 +348,70 @@ public class SimpleEditorModel implements ImageEditorModel {
    */
   @Override
   public void sepia(String fromImageName, String toImageName) throws IllegalStateException {
-    ColorTransform sepia = new Sepia(this.releaseImage(fromImageName));
-    this.images.put(toImageName, sepia.transform());
+    this.deferPointOp("sepia", new MatrixOp(Sepia.MATRIX), fromImageName, toImageName);
+  }
+
+  @Override
+  public void gamma(double gamma, String fromImageName, String toImageName)
+      throws IllegalArgumentException, IllegalStateException {
+    if (fromImageName == null || toImageName == null) {
+      throw new IllegalArgumentException("The image from and destination names must not be null.");
+    }
+    this.deferPointOp("gamma " + gamma, ChannelLut.gamma(gamma), fromImageName, toImageName);
+  }
+
+  @Override
+  public void levels(int black, int white, String fromImageName, String toImageName)
+      throws IllegalArgumentException, IllegalStateException {
+    if (fromImageName == null || toImageName == null) {
+      throw new IllegalArgumentException("The image from and destination names must not be null.");
+    }
+    this.deferPointOp("levels " + black + " " + white, ChannelLut.levels(black, white),
+        fromImageName, toImageName);
+  }
+
+  @Override
+  public void contrast(double factor, String fromImageName, String toImageName)
+      throws IllegalArgumentException, IllegalStateException {
+    if (fromImageName == null || toImageName == null) {
+      throw new IllegalArgumentException("The image from and destination names must not be null.");
+    }
+    this.deferPointOp("contrast " + factor, ChannelLut.contrast(factor), fromImageName,
+        toImageName);
+  }
+
+  @Override
+  public void invert(String fromImageName, String toImageName)
+      throws IllegalArgumentException, IllegalStateException {
+    if (fromImageName == null || toImageName == null) {
+      throw new IllegalArgumentException("The image from and destination names must not be null.");
+    }
+    this.deferPointOp("invert", ChannelLut.invert(), fromImageName, toImageName);
+  }
+
+  @Override
+  public void threshold(int level, String fromImageName, String toImageName)
+      throws IllegalArgumentException, IllegalStateException {
+    if (fromImageName == null || toImageName == null) {
+      throw new IllegalArgumentException("The image from and destination names must not be null.");
+    }
+    this.deferPointOp("threshold " + level, ChannelLut.threshold(level), fromImageName,
+        toImageName);
+  }
+
+  /**
+   * Returns the store the loaded layers of this model are kept in, so that its counters can
+   * be read.
+   * @return the layer store.
+   */
+  public LayerStore getLayerStore() {
+    return this.images;
   }
 
   @Override
   public String[] getListOfLayers() {
-    return this.images.keySet().toArray(new String[0]);
+    synchronized (this.layers) {
+      return this.layers.keySet().toArray(new String[0]);
+    }
   }
 }
@@ -1,51 +1,98 @@
 package model.colortransform;
 
-import model.Pixel;
+import model.PackedImage;
+import model.parallel.RowExecutor;
 
 /**
  * Represents an abstract color transformation function object to transform an image's color.
+ * The matrix is applied by a {@link ColorKernel} chosen once per run: when the JDK Vector API
+ * module (jdk.incubator.vector) is available and the vector kernel was built, many pixels are
+ * transformed per instruction, otherwise one pixel at a time. Both give exactly the same pixels.
+ * The vector kernel is compiled apart from these sources, from the src-vector folder, so that
+ * they build without the module. It can be turned off by setting the system property
+ * {@value #VECTOR_PROPERTY} to false.
  */
 public abstract class AColorTransform implements ColorTransform {
+  public static final String VECTOR_PROPERTY = "imageeditor.vector";
+
+  private static final String VECTOR_MODULE = "jdk.incubator.vector";
+  private static final String VECTOR_KERNEL = "model.colortransform.VectorColorKernel";
+  private static final ColorKernel KERNEL = loadKernel();
+
   float[][] matrix;
-  Pixel[][] image;
+  PackedImage image;
 
   /**
    * Constructs a new abstract color transformation function object.
    * @param matrix the specific matrix values for this color transformation.
-   * @param image the array of Pixels to be operated on.
+   * @param image the image to be operated on.
    */
-  protected AColorTransform(float[][] matrix, Pixel[][] image) {
+  protected AColorTransform(float[][] matrix, PackedImage image) {
     this.matrix = matrix;
-    this.image = image.clone();
+    this.image = image;
   }
 
   /**
-   * Transforms the image using the given coloring filter values.
-   * @return the new array of Pixels representing the image.
+   * Chooses the vector kernel if the Vector API module is present, the kernel was built and it
+   * is not turned off, and the scalar kernel otherwise. The vector kernel is loaded by name so
+   * that nothing refers to it or to the module's classes when either is missing.
+   * @return the kernel to apply color matrices with.
    */
-  public Pixel[][] transform() {
-    for (int row = 0; row < this.image.length; row++) {
-      for (int col = 0; col < this.image[row].length; col++) {
-        float rX = this.image[row][col].getRed();
-        float gX = this.image[row][col].getGreen();
-        float bX = this.image[row][col].getBlue();
-
-        float r = (this.matrix[0][0] * rX) + (this.matrix[0][1] * gX) + (this.matrix[0][2] * bX);
-        float g = (this.matrix[1][0] * rX) + (this.matrix[1][1] * gX) + (this.matrix[1][2] * bX);
-        float b = (this.matrix[2][0] * rX) + (this.matrix[2][1] * gX) + (this.matrix[2][2] * bX);
-
-        this.image[row][col] = new Pixel(this.colorCap(Math.round(r)),
-            this.colorCap(Math.round(g)),
-            this.colorCap(Math.round(b)));
+  private static ColorKernel loadKernel() {
+    if (!"false".equalsIgnoreCase(System.getProperty(VECTOR_PROPERTY))
+        && ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+      try {
+        return (ColorKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+      } catch (ReflectiveOperationException | LinkageError e) {
+        // Falls through to the scalar kernel
       }
     }
-    return this.image;
+    return new ScalarColorKernel();
   }
 
-  private int colorCap(int val) {
-    if (val < 0) {
-      return 0;
+  /**
+   * Returns whether color transforms are applied with the JDK Vector API in this run.
+   * @return true if the vector kernel was loaded.
+   */
+  public static boolean isVectorized() {
+    return !(KERNEL instanceof ScalarColorKernel);
+  }
+
+  /**
+   * Transforms the pixels in the given range of the source array by the given matrix, writing
+   * the results into the same range of the destination array. The two arrays may be the same.
+   * @param matrix the 3x3 matrix to transform colors by.
+   * @param src the packed pixels to read.
+   * @param dst the packed pixels to write.
+   * @param from the first index to transform, inclusive.
+   * @param to the last index to transform, exclusive.
+   */
+  public static void applyMatrix(float[][] matrix, int[] src, int[] dst, int from, int to) {
+    KERNEL.apply(matrix, src, dst, from, to);
+  }
+
+  @Override
+  public PackedImage transform() {
+    return this.transform(RowExecutor.getDefault());
+  }
+
+  /**
+   * Transforms the image using the given coloring filter values.
+   * @param executor the executor to run the rows of the image on.
+   * @return the new image with its colors transformed.
+   * @throws IllegalArgumentException if the executor is null.
+   */
+  @Override
+  public PackedImage transform(RowExecutor executor) throws IllegalArgumentException {
+    if (executor == null) {
+      throw new IllegalArgumentException("Executor must not be null");
     }
-    return Math.min(val, 255);
+    int width = this.image.getWidth();
+    int[] src = this.image.getData();
+    int[] dst = new int[src.length];
+
+    executor.forEachBand(this.image.getHeight(), width,
+        (fromRow, toRow) -> KERNEL.apply(this.matrix, src, dst, fromRow * width, toRow * width));
+    return new PackedImage(width, this.image.getHeight(), dst);
   }
 }
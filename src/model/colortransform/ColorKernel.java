@@ -0,0 +1,19 @@
+package model.colortransform;
+
+/**
+ * Applies a 3x3 color matrix to a range of packed pixels. Implementations must give exactly the
+ * pixels of {@link ScalarColorKernel}, so the one chosen at runtime never changes an image.
+ */
+interface ColorKernel {
+  /**
+   * Transforms the pixels in the given range of the source array into the destination array.
+   * Each channel is the matrix row times the source channels, summed left to right in float,
+   * rounded half up and capped between 0 and 255.
+   * @param matrix the 3x3 color matrix to apply.
+   * @param src the packed pixels to read.
+   * @param dst the packed pixels to write.
+   * @param from the first index to transform, inclusive.
+   * @param to the last index to transform, exclusive.
+   */
+  void apply(float[][] matrix, int[] src, int[] dst, int from, int to);
+}
@@ -1,16 +1,25 @@
 package model.colortransform;
 
-import model.Pixel;
+import model.PackedImage;
+import model.parallel.RowExecutor;
 
 /**
- * Represents a color transformation given an array of Pixels.
+ * Represents a color transformation given an image.
  */
 
 public interface ColorTransform {
   /**
-   * Performs a color transformation given an array of Pixels and returns a new arry
-   * of pixels that have been transformed.
-   * @return an array of Pixels
+   * Performs a color transformation on the given image and returns a new image that has been
+   * transformed, using the default row executor.
+   * @return a new transformed image
    */
-  Pixel[][] transform();
+  PackedImage transform();
+
+  /**
+   * Performs a color transformation on the given image and returns a new image that has been
+   * transformed, running the work on the given row executor.
+   * @param executor the executor to run the rows of the image on.
+   * @return a new transformed image
+   */
+  PackedImage transform(RowExecutor executor);
 }
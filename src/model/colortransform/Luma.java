@@ -1,6 +1,6 @@
 package model.colortransform;
 
-import model.Pixel;
+import model.PackedImage;
 
 /**
  * Represents an image color transformation to luma. Extends the Greyscale class as it uses the
@@ -9,9 +9,9 @@ import model.Pixel;
 public class Luma extends Greyscale {
   /**
    * Constructs a new Luma color transformation function object.
-   * @param image  the array of Pixels to be operated on.
+   * @param image  the image to be operated on.
    */
-  public Luma(Pixel[][] image) {
+  public Luma(PackedImage image) {
     super(image);
   }
 }
@@ -0,0 +1,34 @@
+package model.colortransform;
+
+import model.PackedImage;
+
+/**
+ * Represents a color transformation by any 3x3 matrix. Each new channel is the matching row of
+ * the matrix times the red, green, and blue values of the pixel.
+ */
+public class MatrixTransform extends AColorTransform {
+
+  /**
+   * Constructs a new color transformation function object for the given matrix.
+   * @param matrix the 3x3 matrix to transform colors by, indexed by row then column.
+   * @param image the image to be operated on.
+   * @throws IllegalArgumentException if the matrix is null or not 3x3.
+   */
+  public MatrixTransform(float[][] matrix, PackedImage image) throws IllegalArgumentException {
+    super(checkMatrix(matrix), image);
+  }
+
+  private static float[][] checkMatrix(float[][] matrix) {
+    if (matrix == null || matrix.length != 3) {
+      throw new IllegalArgumentException("Matrix must be 3x3");
+    }
+    float[][] copy = new float[3][];
+    for (int i = 0; i < 3; i++) {
+      if (matrix[i] == null || matrix[i].length != 3) {
+        throw new IllegalArgumentException("Matrix must be 3x3");
+      }
+      copy[i] = matrix[i].clone();
+    }
+    return copy;
+  }
+}
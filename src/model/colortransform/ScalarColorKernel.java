@@ -0,0 +1,26 @@
+package model.colortransform;
+
+import model.PackedImage;
+
+/**
+ * Applies a color matrix one pixel at a time in plain Java. This kernel is always available, and
+ * also finishes the ranges that are too short for a vector kernel.
+ */
+class ScalarColorKernel implements ColorKernel {
+  @Override
+  public void apply(float[][] matrix, int[] src, int[] dst, int from, int to) {
+    for (int i = from; i < to; i++) {
+      float rX = PackedImage.red(src[i]);
+      float gX = PackedImage.green(src[i]);
+      float bX = PackedImage.blue(src[i]);
+
+      float r = (matrix[0][0] * rX) + (matrix[0][1] * gX) + (matrix[0][2] * bX);
+      float g = (matrix[1][0] * rX) + (matrix[1][1] * gX) + (matrix[1][2] * bX);
+      float b = (matrix[2][0] * rX) + (matrix[2][1] * gX) + (matrix[2][2] * bX);
+
+      dst[i] = PackedImage.pack(PackedImage.clamp(Math.round(r)),
+          PackedImage.clamp(Math.round(g)),
+          PackedImage.clamp(Math.round(b)));
+    }
+  }
+}
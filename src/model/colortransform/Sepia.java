@@ -1,6 +1,6 @@
 package model.colortransform;
 
-import model.Pixel;
+import model.PackedImage;
 
 /**
  * Represents an image color transformation to sepia. Provides the superclass with the given
@@ -15,9 +15,9 @@ public class Sepia extends AColorTransform {
 
   /**
    * Constructs a new Sepia color transformation function object.
-   * @param image the array of Pixels to be operated on.
+   * @param image the image to be operated on.
    */
-  public Sepia(Pixel[][] image) {
+  public Sepia(PackedImage image) {
     super(MATRIX, image);
   }
 }
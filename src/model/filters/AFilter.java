@@ -1,74 +1,68 @@
 package model.filters;
 
-import model.Pixel;
+import model.PackedImage;
+import model.parallel.RowExecutor;
 
 /**
  * Represents an abstract filter object to convert the RGB values of an image using the given
- * kernel.
+ * kernel. The work is done by a {@link ConvolutionEngine}, which reads only from the source image
+ * and writes into a new image, so the source is never modified and the rows of the result are
+ * computed in parallel on the given row executor. Kernels that are the outer product of a column
+ * and a row vector (separable kernels, such as the blur kernel) are detected when the filter is
+ * constructed and applied as a horizontal pass followed by a vertical pass, which takes
+ * kWidth + kHeight multiplications per pixel instead of kWidth * kHeight. Kernel taps outside of
+ * the image follow the filter's {@link BorderMode}, which is {@link BorderMode#ZERO} unless
+ * another mode is given.
  */
 public abstract class AFilter implements Filter {
   float[][] kernel;
   int kWidth;
   int kHeight;
-  Pixel[][] image;
+  PackedImage image;
+  private final ConvolutionEngine engine;
 
-  protected AFilter(float[][] kernel, Pixel[][] image) throws IllegalArgumentException {
-    if (kernel == null || image == null) {
+  protected AFilter(float[][] kernel, PackedImage image) throws IllegalArgumentException {
+    this(kernel, image, BorderMode.ZERO);
+  }
+
+  protected AFilter(float[][] kernel, PackedImage image, BorderMode border)
+      throws IllegalArgumentException {
+    if (kernel == null || image == null || border == null) {
       throw new IllegalArgumentException("Arguments of filter must not be null");
     }
 
     this.kernel = kernel;
     kWidth = kernel[0].length;
     kHeight = kernel.length;
-    this.image = image.clone();
+    this.image = image;
+    this.engine = new ConvolutionEngine(kernel, border);
   }
 
   /**
-   * Goes through each Pixel of an image and applies a given filter to change the RGB value.
-   *
-   * @return a new image with converted pixels
+   * Returns whether this filter's kernel is applied as two one dimensional passes.
+   * @return true if the kernel was detected as separable.
    */
-  public Pixel[][] filter() {
-    // Goes through each Pixel from the image
-    for (int row = 0; row < this.image.length; row++) {
-      for (int col = 0; col < this.image[row].length; col++) {
-        double r = 0;
-        double g = 0;
-        double b = 0;
-
-        for (int i = 0; i < this.kHeight; i++) {
-          for (int j = 0; j < this.kWidth; j++) {
-            int newRow = row + i - (kHeight / 2);
-            int newCol = col + j - (kWidth / 2);
-
-            if (this.outOfBounds(newRow, newCol)) {
-              continue;
-            }
-
-            r += this.kernel[i][j] * this.image[newRow][newCol].getRed();
-            g += this.kernel[i][j] * this.image[newRow][newCol].getGreen();
-            b += this.kernel[i][j] * this.image[newRow][newCol].getBlue();
-          }
-
-        }
-        this.image[row][col] = new Pixel(this.colorCap((int) Math.round(r)),
-            this.colorCap((int) Math.round(g)), this.colorCap((int) Math.round(b)));
-      }
-    }
-    return this.image;
+  public boolean isSeparable() {
+    return this.engine.isSeparable();
   }
 
-  private boolean outOfBounds(int row, int col) {
-    if (row > image.length - 1 || row < 0) {
-      return true;
-    }
-    return col > this.image[row].length - 1 || col < 0;
+  @Override
+  public PackedImage filter() {
+    return this.filter(RowExecutor.getDefault());
   }
 
-  private int colorCap(int val) {
-    if (val < 0) {
-      return 0;
+  /**
+   * Goes through each pixel of an image and applies a given filter to change the RGB value.
+   *
+   * @param executor the executor to run the rows of the image on.
+   * @return a new image with converted pixels
+   * @throws IllegalArgumentException if the executor is null.
+   */
+  @Override
+  public PackedImage filter(RowExecutor executor) throws IllegalArgumentException {
+    if (executor == null) {
+      throw new IllegalArgumentException("Executor must not be null");
     }
-    return Math.min(val, 255);
+    return this.engine.apply(this.image, executor);
   }
-}
\ No newline at end of file
+}
@@ -1,6 +1,6 @@
 package model.filters;
 
-import model.Pixel;
+import model.PackedImage;
 
 /**
  * Represents an image filter to blur an image which has this operation conducted upon it. Uses
@@ -12,11 +12,30 @@ public class Blur extends AFilter {
       {1f / 16f, 1f / 8f, 1f / 16f}};
 
   /**
-   * Constructs the Blur filter and passes the constant kernel and image array of Pixels to the
+   * Returns a copy of the kernel of this filter, so that other ways of applying it, such as a
+   * stream of rows, use the same weights.
+   * @return a new array holding the kernel.
+   */
+  public static float[][] getKernel() {
+    return ConvolutionEngine.copy(KERNEL);
+  }
+
+  /**
+   * Constructs the Blur filter and passes the constant kernel and image to the
    * super class to filter upon.
-   * @param image the image array of Pixels to be operated on.
+   * @param image the image to be operated on.
    */
-  public Blur(Pixel[][] image) {
+  public Blur(PackedImage image) {
     super(KERNEL, image);
   }
+
+  /**
+   * Constructs the Blur filter with the given border mode for the pixels along the edges of the
+   * image.
+   * @param image the image to be operated on.
+   * @param border how to treat kernel taps that fall outside of the image.
+   */
+  public Blur(PackedImage image, BorderMode border) {
+    super(KERNEL, image, border);
+  }
 }
@@ -0,0 +1,50 @@
+package model.filters;
+
+/**
+ * Represents the ways a convolution can treat kernel taps that fall outside of the image.
+ */
+public enum BorderMode {
+  /**
+   * Pixels outside of the image are black, so taps outside of it add nothing.
+   */
+  ZERO,
+  /**
+   * Pixels outside of the image repeat the nearest edge pixel.
+   */
+  CLAMP,
+  /**
+   * Pixels outside of the image reflect the image around its edge pixel, without repeating it.
+   */
+  MIRROR,
+  /**
+   * Pixels outside of the image repeat the image from its opposite edge.
+   */
+  WRAP;
+
+  /**
+   * Maps an index along one axis of an image to the index of the pixel whose value it takes.
+   * @param index the index to map, which may be outside of the image.
+   * @param size the size of the image along this axis.
+   * @return the index inside of the image, or -1 if the pixel is black under this mode.
+   */
+  public int map(int index, int size) {
+    if (index >= 0 && index < size) {
+      return index;
+    }
+    switch (this) {
+      case CLAMP:
+        return index < 0 ? 0 : size - 1;
+      case MIRROR:
+        if (size == 1) {
+          return 0;
+        }
+        int period = 2 * (size - 1);
+        int folded = Math.floorMod(index, period);
+        return folded < size ? folded : period - folded;
+      case WRAP:
+        return Math.floorMod(index, size);
+      default:
+        return -1;
+    }
+  }
+}
@@ -0,0 +1,720 @@
+package model.filters;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import model.PackedImage;
+import model.RowSource;
+import model.parallel.RowExecutor;
+
+/**
+ * Applies a convolution kernel to images. The engine only ever reads from its source and writes
+ * into a separate destination, so no output pixel depends on another output pixel and the rows
+ * of an image can be computed in any order or in parallel.
+ *
+ * <p>Rows are produced through a {@link Cursor}, which keeps a ring buffer of the kHeight input
+ * rows the current output row needs. Moving to the next output row reads one new input row into
+ * the ring, replacing the row that is no longer needed, so at most kHeight rows of scratch are
+ * live per cursor no matter how large the image is. For separable kernels the ring holds rows
+ * that have already been through the horizontal pass. Ring buffers are pooled per thread and
+ * reused by later cursors on the same thread.
+ *
+ * <p>Input rows are unpacked into channel planes padded by kWidth - 1 columns, and the padding is
+ * filled once per row according to the engine's {@link BorderMode}. The per-pixel loops then
+ * read every tap straight from the padded planes with no bounds checks, and only whole rows
+ * above or below the image go through the border mode, once per row rather than once per tap.
+ *
+ * <p>When every weight of the kernel (or of both of its factors, for separable kernels) is a
+ * dyadic fraction, such as the 1/16, 1/8 and 1/4 weights of the blur and sharpen kernels, the
+ * engine scales the weights to integers, accumulates each channel in an int, and rounds once by
+ * adding half and shifting. Every product and sum of the floating point path is exact for such
+ * kernels, so this gives the same pixels as the floating point path while keeping the inner
+ * loops in integer arithmetic. It can be turned off by setting the system property
+ * {@value #FIXED_POINT_PROPERTY} to false.
+ */
+public class ConvolutionEngine {
+  public static final String FIXED_POINT_PROPERTY = "imageeditor.fixedpoint";
+
+  private static final double SEPARABLE_TOLERANCE = 1e-6;
+  // Integer weights are kept below 2^16 so that a weight times a channel value is exact in float
+  private static final int MAX_FIXED_SHIFT = 16;
+  private static final int MAX_FIXED_WEIGHT = 1 << 16;
+  private static final ThreadLocal<ArrayDeque<Scratch>> SCRATCH_POOL =
+      ThreadLocal.withInitial(ArrayDeque::new);
+
+  private final float[][] kernel;
+  private final int kWidth;
+  private final int kHeight;
+  private final float[] rowKernel;
+  private final float[] colKernel;
+  private final BorderMode border;
+  private final int[][] fixedKernel;
+  private final int[] fixedRowKernel;
+  private final int[] fixedColKernel;
+  private final int fixedShift;
+
+  /**
+   * Constructs a new engine for the given kernel that treats pixels outside of the image as
+   * black, detecting whether the kernel is separable.
+   * @param kernel the kernel to convolve images with.
+   * @throws IllegalArgumentException if the kernel is null, empty, or not rectangular.
+   */
+  public ConvolutionEngine(float[][] kernel) throws IllegalArgumentException {
+    this(kernel, BorderMode.ZERO);
+  }
+
+  /**
+   * Constructs a new engine for the given kernel and border mode, detecting whether the kernel
+   * is separable.
+   * @param kernel the kernel to convolve images with.
+   * @param border how to treat kernel taps that fall outside of the image.
+   * @throws IllegalArgumentException if either argument is null, or the kernel is empty or not
+   *         rectangular.
+   */
+  public ConvolutionEngine(float[][] kernel, BorderMode border) throws IllegalArgumentException {
+    this(kernel, border, !"false".equalsIgnoreCase(System.getProperty(FIXED_POINT_PROPERTY)));
+  }
+
+  /**
+   * Constructs a new engine for the given kernel and border mode, detecting whether the kernel
+   * is separable and, if allowed, whether it can be applied in fixed point arithmetic.
+   * @param kernel the kernel to convolve images with.
+   * @param border how to treat kernel taps that fall outside of the image.
+   * @param allowFixedPoint whether to use fixed point arithmetic for dyadic kernels.
+   * @throws IllegalArgumentException if either object argument is null, or the kernel is empty
+   *         or not rectangular.
+   */
+  public ConvolutionEngine(float[][] kernel, BorderMode border, boolean allowFixedPoint)
+      throws IllegalArgumentException {
+    if (border == null) {
+      throw new IllegalArgumentException("Border mode must not be null");
+    }
+    if (kernel == null || kernel.length == 0 || kernel[0] == null || kernel[0].length == 0) {
+      throw new IllegalArgumentException("Kernel must not be null or empty");
+    }
+    for (float[] row : kernel) {
+      if (row == null || row.length != kernel[0].length) {
+        throw new IllegalArgumentException("Kernel must be rectangular");
+      }
+    }
+
+    // Copied, so that the weights cannot change after the fixed point weights are worked out
+    this.kernel = copy(kernel);
+    this.kWidth = kernel[0].length;
+    this.kHeight = kernel.length;
+    this.border = border;
+
+    float[][] factors = separate(this.kernel);
+    this.colKernel = factors == null ? null : factors[0];
+    this.rowKernel = factors == null ? null : factors[1];
+
+    int[][] fixed = allowFixedPoint
+        ? toFixedPoint(this.kernel, this.colKernel, this.rowKernel) : null;
+    if (fixed == null) {
+      this.fixedKernel = null;
+      this.fixedRowKernel = null;
+      this.fixedColKernel = null;
+      this.fixedShift = 0;
+    } else if (factors != null) {
+      this.fixedKernel = null;
+      this.fixedColKernel = fixed[0];
+      this.fixedRowKernel = fixed[1];
+      this.fixedShift = fixed[2][0];
+    } else {
+      this.fixedKernel = Arrays.copyOf(fixed, kHeight);
+      this.fixedRowKernel = null;
+      this.fixedColKernel = null;
+      this.fixedShift = fixed[kHeight][0];
+    }
+  }
+
+  /**
+   * Scales the weights of a kernel to integers. Separable kernels scale their column and row
+   * vectors, other kernels scale every row of the kernel.
+   * @param kernel the kernel.
+   * @param colKernel the column vector of the kernel, or null if it is not separable.
+   * @param rowKernel the row vector of the kernel, or null if it is not separable.
+   * @return the scaled vectors followed by a single element array holding the total shift, or
+   *         null if some weight is not dyadic or an accumulator could overflow.
+   */
+  private static int[][] toFixedPoint(float[][] kernel, float[] colKernel, float[] rowKernel) {
+    boolean separable = rowKernel != null;
+    float[][] vectors = separable ? new float[][] {colKernel, rowKernel} : kernel;
+    int[][] scaled = new int[vectors.length + 1][];
+    int totalShift = 0;
+    long maxSum = 255;
+    int from = 0;
+    // The factors of a separable kernel are scaled separately and multiply together
+    int[] groups = separable ? new int[] {1, 2} : new int[] {vectors.length};
+    for (int to : groups) {
+      int shift = dyadicShift(vectors, from, to);
+      if (shift < 0) {
+        return null;
+      }
+      long groupSum = 0;
+      for (int v = from; v < to; v++) {
+        scaled[v] = new int[vectors[v].length];
+        for (int j = 0; j < vectors[v].length; j++) {
+          scaled[v][j] = (int) Math.scalb((double) vectors[v][j], shift);
+          groupSum += Math.abs(scaled[v][j]);
+        }
+      }
+      maxSum *= groupSum;
+      totalShift += shift;
+      from = to;
+    }
+    if (maxSum >= Integer.MAX_VALUE / 2) {
+      return null;
+    }
+    scaled[vectors.length] = new int[] {totalShift};
+    return scaled;
+  }
+
+  /**
+   * Copies every row of the given kernel into a new array.
+   * @param kernel the kernel to copy.
+   * @return the copy.
+   */
+  static float[][] copy(float[][] kernel) {
+    float[][] copy = new float[kernel.length][];
+    for (int i = 0; i < kernel.length; i++) {
+      copy[i] = kernel[i].clone();
+    }
+    return copy;
+  }
+
+  /**
+   * Finds the smallest power of two that turns every given weight into a small integer.
+   * @param vectors the weights to scale.
+   * @param from the first vector to scale, inclusive.
+   * @param to the last vector to scale, exclusive.
+   * @return the exponent of the power of two, or -1 if there is none.
+   */
+  private static int dyadicShift(float[][] vectors, int from, int to) {
+    for (int shift = 0; shift <= MAX_FIXED_SHIFT; shift++) {
+      boolean exact = true;
+      for (int v = from; v < to && exact; v++) {
+        for (float weight : vectors[v]) {
+          double scaled = Math.scalb((double) weight, shift);
+          if (scaled != Math.rint(scaled) || Math.abs(scaled) >= MAX_FIXED_WEIGHT) {
+            exact = false;
+            break;
+          }
+        }
+      }
+      if (exact) {
+        return shift;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Attempts to split the given kernel into a column vector and a row vector whose outer product
+   * is the kernel. The kernel is split around its largest entry: the row vector is the row
+   * holding that entry, and the column vector is the column holding it scaled so that the entry
+   * becomes one.
+   * @param kernel the kernel to split.
+   * @return an array holding the column vector followed by the row vector, or null if the kernel
+   *         is not separable.
+   */
+  static float[][] separate(float[][] kernel) {
+    int pivotRow = 0;
+    int pivotCol = 0;
+    for (int i = 0; i < kernel.length; i++) {
+      for (int j = 0; j < kernel[i].length; j++) {
+        if (Math.abs(kernel[i][j]) > Math.abs(kernel[pivotRow][pivotCol])) {
+          pivotRow = i;
+          pivotCol = j;
+        }
+      }
+    }
+    double pivot = kernel[pivotRow][pivotCol];
+    if (pivot == 0) {
+      return null;
+    }
+
+    // A kernel has rank one exactly when every 2x2 minor through the pivot is zero
+    double tolerance = SEPARABLE_TOLERANCE * pivot * pivot;
+    for (int i = 0; i < kernel.length; i++) {
+      for (int j = 0; j < kernel[i].length; j++) {
+        double minor = kernel[i][j] * pivot - (double) kernel[i][pivotCol] * kernel[pivotRow][j];
+        if (Math.abs(minor) > tolerance) {
+          return null;
+        }
+      }
+    }
+
+    float[] col = new float[kernel.length];
+    for (int i = 0; i < kernel.length; i++) {
+      col[i] = (float) (kernel[i][pivotCol] / pivot);
+    }
+    return new float[][] {col, kernel[pivotRow].clone()};
+  }
+
+  /**
+   * Returns whether this engine applies its kernel as two one dimensional passes.
+   * @return true if the kernel was detected as separable.
+   */
+  public boolean isSeparable() {
+    return this.rowKernel != null;
+  }
+
+  /**
+   * Returns whether this engine accumulates in fixed point integer arithmetic.
+   * @return true if the kernel's weights were scaled to integers.
+   */
+  public boolean isFixedPoint() {
+    return this.fixedKernel != null || this.fixedRowKernel != null;
+  }
+
+  /**
+   * Returns how this engine treats kernel taps that fall outside of the image.
+   * @return the border mode.
+   */
+  public BorderMode getBorderMode() {
+    return this.border;
+  }
+
+  /**
+   * Returns the height of the kernel, which is the number of input rows each output row needs.
+   * @return the kernel height.
+   */
+  public int getKernelHeight() {
+    return this.kHeight;
+  }
+
+  /**
+   * Creates an engine with this engine's kernel turned upside down and the same border mode, so
+   * that convolving an image turned upside down gives this engine's result turned upside down.
+   * The kernel is anchored at its middle row, so it must have an odd number of rows.
+   * @return the upside down engine.
+   * @throws IllegalStateException if the kernel has an even number of rows.
+   */
+  public ConvolutionEngine flipped() throws IllegalStateException {
+    if (this.kHeight % 2 == 0) {
+      throw new IllegalStateException("Kernels with an even number of rows cannot be flipped");
+    }
+    float[][] rows = new float[this.kHeight][];
+    for (int i = 0; i < this.kHeight; i++) {
+      rows[i] = this.kernel[this.kHeight - i - 1];
+    }
+    return new ConvolutionEngine(rows, this.border, this.isFixedPoint());
+  }
+
+  /**
+   * Convolves the whole of the given image into a newly allocated image, splitting its rows
+   * across the given executor. The source image is not modified.
+   * @param image the image to convolve.
+   * @param executor the executor to run the rows of the image on.
+   * @return the convolved image.
+   * @throws IllegalArgumentException if either argument is null.
+   */
+  public PackedImage apply(PackedImage image, RowExecutor executor)
+      throws IllegalArgumentException {
+    if (image == null || executor == null) {
+      throw new IllegalArgumentException("Image and executor must not be null");
+    }
+    int width = image.getWidth();
+    int[] dst = new int[width * image.getHeight()];
+
+    executor.forEachBand(image.getHeight(), width, (fromRow, toRow) -> {
+      try (Cursor cursor = this.open(image)) {
+        for (int row = fromRow; row < toRow; row++) {
+          cursor.filterRow(row, dst, row * width);
+        }
+      }
+    });
+    return new PackedImage(width, image.getHeight(), dst);
+  }
+
+  /**
+   * Opens a cursor to produce output rows from the given source on the calling thread. The
+   * cursor must be closed once it is no longer needed so that its ring buffer can be reused.
+   * @param source the source to read input rows from.
+   * @return a new cursor over the source.
+   * @throws IllegalArgumentException if the source is null.
+   */
+  public Cursor open(RowSource source) throws IllegalArgumentException {
+    if (source == null) {
+      throw new IllegalArgumentException("Source must not be null");
+    }
+    return new Cursor(source);
+  }
+
+  /**
+   * Produces output rows of a convolution from a source. A cursor is meant for a single thread,
+   * and is cheapest when asked for output rows in increasing order, as each step then only
+   * reads one new input row.
+   */
+  public class Cursor implements AutoCloseable {
+    private final RowSource source;
+    private final int width;
+    private final int height;
+    private final int left;
+    private final int paddedWidth;
+    private final Scratch scratch;
+
+    private Cursor(RowSource source) {
+      this.source = source;
+      this.width = source.getWidth();
+      this.height = source.getHeight();
+      this.left = kWidth / 2;
+      this.paddedWidth = this.width + kWidth - 1;
+
+      ArrayDeque<Scratch> pool = SCRATCH_POOL.get();
+      Scratch pooled = pool.poll();
+      if (pooled == null
+          || !pooled.fits(kHeight, this.width, this.paddedWidth, isSeparable(), isFixedPoint())) {
+        pooled = new Scratch(kHeight, this.width, this.paddedWidth, isSeparable(), isFixedPoint());
+      }
+      this.scratch = pooled;
+      this.scratch.reset();
+    }
+
+    /**
+     * Computes one output row and writes its packed pixels into the destination.
+     * @param row the row to compute.
+     * @param dst the array to write the row into.
+     * @param offset the index in the destination of the first pixel of the row.
+     */
+    public void filterRow(int row, int[] dst, int offset) {
+      if (isFixedPoint()) {
+        if (isSeparable()) {
+          this.filterFixedSeparableRow(row, dst, offset);
+        } else {
+          this.filterFixedDirectRow(row, dst, offset);
+        }
+      } else if (isSeparable()) {
+        this.filterSeparableRow(row, dst, offset);
+      } else {
+        this.filterDirectRow(row, dst, offset);
+      }
+    }
+
+    /**
+     * Makes sure the ring holds the given input row, reading it from the source if it does not.
+     * Rows outside of the source are keyed by their own index so that every row of a window
+     * gets its own slot, even when the border mode maps two of them to the same source row.
+     * @param virtualRow the input row, which may be outside of the source.
+     * @param srcRow the row of the source the input row maps to.
+     * @return the ring slot holding the row.
+     */
+    private int slotFor(int virtualRow, int srcRow) {
+      int slot = Math.floorMod(virtualRow, kHeight);
+      if (this.scratch.rows[slot] != virtualRow) {
+        this.source.readRow(srcRow, this.scratch.packed);
+        if (isSeparable()) {
+          this.unpack(0);
+          if (isFixedPoint()) {
+            this.fixedHorizontalPass(slot);
+          } else {
+            this.horizontalPass(slot);
+          }
+        } else {
+          this.unpack(slot);
+        }
+        this.scratch.rows[slot] = virtualRow;
+      }
+      return slot;
+    }
+
+    /**
+     * Unpacks the last read row into the given padded planes and fills their padding columns
+     * according to the border mode. Column col of the row is stored at index left + col.
+     * @param plane the index of the planes to unpack into.
+     */
+    private void unpack(int plane) {
+      int[] packed = this.scratch.packed;
+      int[] r = this.scratch.red[plane];
+      int[] g = this.scratch.green[plane];
+      int[] b = this.scratch.blue[plane];
+      for (int col = 0; col < this.width; col++) {
+        r[this.left + col] = PackedImage.red(packed[col]);
+        g[this.left + col] = PackedImage.green(packed[col]);
+        b[this.left + col] = PackedImage.blue(packed[col]);
+      }
+
+      for (int p = 0; p < this.left; p++) {
+        this.pad(r, g, b, p);
+      }
+      for (int p = this.left + this.width; p < this.paddedWidth; p++) {
+        this.pad(r, g, b, p);
+      }
+    }
+
+    private void pad(int[] r, int[] g, int[] b, int p) {
+      int col = border.map(p - this.left, this.width);
+      if (col < 0) {
+        r[p] = 0;
+        g[p] = 0;
+        b[p] = 0;
+      } else {
+        r[p] = r[this.left + col];
+        g[p] = g[this.left + col];
+        b[p] = b[this.left + col];
+      }
+    }
+
+    private void horizontalPass(int slot) {
+      int[] srcR = this.scratch.red[0];
+      int[] srcG = this.scratch.green[0];
+      int[] srcB = this.scratch.blue[0];
+      double[] outR = this.scratch.passR[slot];
+      double[] outG = this.scratch.passG[slot];
+      double[] outB = this.scratch.passB[slot];
+      Arrays.fill(outR, 0, this.width, 0);
+      Arrays.fill(outG, 0, this.width, 0);
+      Arrays.fill(outB, 0, this.width, 0);
+
+      for (int j = 0; j < kWidth; j++) {
+        float weight = rowKernel[j];
+        for (int col = 0; col < this.width; col++) {
+          outR[col] += weight * srcR[col + j];
+          outG[col] += weight * srcG[col + j];
+          outB[col] += weight * srcB[col + j];
+        }
+      }
+    }
+
+    private void fixedHorizontalPass(int slot) {
+      int[] srcR = this.scratch.red[0];
+      int[] srcG = this.scratch.green[0];
+      int[] srcB = this.scratch.blue[0];
+      int[] outR = this.scratch.fixedPassR[slot];
+      int[] outG = this.scratch.fixedPassG[slot];
+      int[] outB = this.scratch.fixedPassB[slot];
+      Arrays.fill(outR, 0, this.width, 0);
+      Arrays.fill(outG, 0, this.width, 0);
+      Arrays.fill(outB, 0, this.width, 0);
+
+      for (int j = 0; j < kWidth; j++) {
+        int weight = fixedRowKernel[j];
+        for (int col = 0; col < this.width; col++) {
+          outR[col] += weight * srcR[col + j];
+          outG[col] += weight * srcG[col + j];
+          outB[col] += weight * srcB[col + j];
+        }
+      }
+    }
+
+    private void filterSeparableRow(int row, int[] dst, int offset) {
+      double[] r = this.scratch.sumR;
+      double[] g = this.scratch.sumG;
+      double[] b = this.scratch.sumB;
+      Arrays.fill(r, 0, this.width, 0);
+      Arrays.fill(g, 0, this.width, 0);
+      Arrays.fill(b, 0, this.width, 0);
+
+      for (int i = 0; i < kHeight; i++) {
+        int virtualRow = row + i - kHeight / 2;
+        int srcRow = border.map(virtualRow, this.height);
+        if (srcRow < 0) {
+          continue;
+        }
+        int slot = this.slotFor(virtualRow, srcRow);
+        double weight = colKernel[i];
+        double[] passR = this.scratch.passR[slot];
+        double[] passG = this.scratch.passG[slot];
+        double[] passB = this.scratch.passB[slot];
+        for (int col = 0; col < this.width; col++) {
+          r[col] += weight * passR[col];
+          g[col] += weight * passG[col];
+          b[col] += weight * passB[col];
+        }
+      }
+
+      this.store(dst, offset);
+    }
+
+    private void filterDirectRow(int row, int[] dst, int offset) {
+      double[] r = this.scratch.sumR;
+      double[] g = this.scratch.sumG;
+      double[] b = this.scratch.sumB;
+      Arrays.fill(r, 0, this.width, 0);
+      Arrays.fill(g, 0, this.width, 0);
+      Arrays.fill(b, 0, this.width, 0);
+
+      for (int i = 0; i < kHeight; i++) {
+        int virtualRow = row + i - kHeight / 2;
+        int srcRow = border.map(virtualRow, this.height);
+        if (srcRow < 0) {
+          continue;
+        }
+        int slot = this.slotFor(virtualRow, srcRow);
+        int[] srcR = this.scratch.red[slot];
+        int[] srcG = this.scratch.green[slot];
+        int[] srcB = this.scratch.blue[slot];
+        for (int j = 0; j < kWidth; j++) {
+          float weight = kernel[i][j];
+          for (int col = 0; col < this.width; col++) {
+            r[col] += weight * srcR[col + j];
+            g[col] += weight * srcG[col + j];
+            b[col] += weight * srcB[col + j];
+          }
+        }
+      }
+
+      this.store(dst, offset);
+    }
+
+    private void filterFixedSeparableRow(int row, int[] dst, int offset) {
+      int[] r = this.scratch.fixedSumR;
+      int[] g = this.scratch.fixedSumG;
+      int[] b = this.scratch.fixedSumB;
+      Arrays.fill(r, 0, this.width, 0);
+      Arrays.fill(g, 0, this.width, 0);
+      Arrays.fill(b, 0, this.width, 0);
+
+      for (int i = 0; i < kHeight; i++) {
+        int virtualRow = row + i - kHeight / 2;
+        int srcRow = border.map(virtualRow, this.height);
+        if (srcRow < 0) {
+          continue;
+        }
+        int slot = this.slotFor(virtualRow, srcRow);
+        int weight = fixedColKernel[i];
+        int[] passR = this.scratch.fixedPassR[slot];
+        int[] passG = this.scratch.fixedPassG[slot];
+        int[] passB = this.scratch.fixedPassB[slot];
+        for (int col = 0; col < this.width; col++) {
+          r[col] += weight * passR[col];
+          g[col] += weight * passG[col];
+          b[col] += weight * passB[col];
+        }
+      }
+
+      this.storeFixed(dst, offset);
+    }
+
+    private void filterFixedDirectRow(int row, int[] dst, int offset) {
+      int[] r = this.scratch.fixedSumR;
+      int[] g = this.scratch.fixedSumG;
+      int[] b = this.scratch.fixedSumB;
+      Arrays.fill(r, 0, this.width, 0);
+      Arrays.fill(g, 0, this.width, 0);
+      Arrays.fill(b, 0, this.width, 0);
+
+      for (int i = 0; i < kHeight; i++) {
+        int virtualRow = row + i - kHeight / 2;
+        int srcRow = border.map(virtualRow, this.height);
+        if (srcRow < 0) {
+          continue;
+        }
+        int slot = this.slotFor(virtualRow, srcRow);
+        int[] srcR = this.scratch.red[slot];
+        int[] srcG = this.scratch.green[slot];
+        int[] srcB = this.scratch.blue[slot];
+        for (int j = 0; j < kWidth; j++) {
+          int weight = fixedKernel[i][j];
+          for (int col = 0; col < this.width; col++) {
+            r[col] += weight * srcR[col + j];
+            g[col] += weight * srcG[col + j];
+            b[col] += weight * srcB[col + j];
+          }
+        }
+      }
+
+      this.storeFixed(dst, offset);
+    }
+
+    /**
+     * Rounds the fixed point sums half up, as Math.round does, by adding half of the scale and
+     * shifting, then writes them into the destination.
+     */
+    private void storeFixed(int[] dst, int offset) {
+      int[] r = this.scratch.fixedSumR;
+      int[] g = this.scratch.fixedSumG;
+      int[] b = this.scratch.fixedSumB;
+      int half = fixedShift == 0 ? 0 : 1 << (fixedShift - 1);
+      for (int col = 0; col < this.width; col++) {
+        dst[offset + col] = PackedImage.pack(PackedImage.clamp((r[col] + half) >> fixedShift),
+            PackedImage.clamp((g[col] + half) >> fixedShift),
+            PackedImage.clamp((b[col] + half) >> fixedShift));
+      }
+    }
+
+    private void store(int[] dst, int offset) {
+      double[] r = this.scratch.sumR;
+      double[] g = this.scratch.sumG;
+      double[] b = this.scratch.sumB;
+      for (int col = 0; col < this.width; col++) {
+        dst[offset + col] = PackedImage.pack(PackedImage.clamp((int) Math.round(r[col])),
+            PackedImage.clamp((int) Math.round(g[col])),
+            PackedImage.clamp((int) Math.round(b[col])));
+      }
+    }
+
+    /**
+     * Returns this cursor's ring buffer to the pool of the calling thread.
+     */
+    @Override
+    public void close() {
+      SCRATCH_POOL.get().push(this.scratch);
+    }
+  }
+
+  /**
+   * Holds the ring buffer and row accumulators of a cursor, so they can be reused by later
+   * cursors on the same thread.
+   */
+  private static class Scratch {
+    private final int[] rows;
+    private final int[] packed;
+    private final int[][] red;
+    private final int[][] green;
+    private final int[][] blue;
+    private final double[][] passR;
+    private final double[][] passG;
+    private final double[][] passB;
+    private final double[] sumR;
+    private final double[] sumG;
+    private final double[] sumB;
+    private final int[][] fixedPassR;
+    private final int[][] fixedPassG;
+    private final int[][] fixedPassB;
+    private final int[] fixedSumR;
+    private final int[] fixedSumG;
+    private final int[] fixedSumB;
+    private final boolean separable;
+    private final boolean fixed;
+
+    private Scratch(int ringSize, int width, int paddedWidth, boolean separable, boolean fixed) {
+      this.separable = separable;
+      this.fixed = fixed;
+      this.rows = new int[ringSize];
+      this.packed = new int[width];
+      // The direct path keeps a ring of padded input rows, the separable path a single padded
+      // row to run the horizontal pass over and a ring of passed rows
+      int planes = separable ? 1 : ringSize;
+      int passWidth = separable && !fixed ? width : 0;
+      int fixedPassWidth = separable && fixed ? width : 0;
+      this.red = new int[planes][paddedWidth];
+      this.green = new int[planes][paddedWidth];
+      this.blue = new int[planes][paddedWidth];
+      this.passR = new double[ringSize][passWidth];
+      this.passG = new double[ringSize][passWidth];
+      this.passB = new double[ringSize][passWidth];
+      this.fixedPassR = new int[ringSize][fixedPassWidth];
+      this.fixedPassG = new int[ringSize][fixedPassWidth];
+      this.fixedPassB = new int[ringSize][fixedPassWidth];
+      this.sumR = new double[fixed ? 0 : width];
+      this.sumG = new double[fixed ? 0 : width];
+      this.sumB = new double[fixed ? 0 : width];
+      this.fixedSumR = new int[fixed ? width : 0];
+      this.fixedSumG = new int[fixed ? width : 0];
+      this.fixedSumB = new int[fixed ? width : 0];
+    }
+
+    private boolean fits(int ringSize, int width, int paddedWidth, boolean separable,
+                         boolean fixed) {
+      return this.separable == separable && this.fixed == fixed
+          && this.rows.length == ringSize && this.red[0].length >= paddedWidth
+          && this.packed.length >= width;
+    }
+
+    private void reset() {
+      Arrays.fill(this.rows, Integer.MIN_VALUE);
+    }
+  }
+}
@@ -1,15 +1,24 @@
 package model.filters;
 
-import model.Pixel;
+import model.PackedImage;
+import model.parallel.RowExecutor;
 
 /**
  * Represents an image filter to be used on a given image's pixels.
  */
 public interface Filter {
   /**
-   * Filters the given array of Pixels for an image and returns a new array of Pixels that has
-   * been filtered.
-   * @return an array of Pixels which have been filtered
+   * Filters the given image and returns a new image that has been filtered, using the default
+   * row executor.
+   * @return a new image which has been filtered
    */
-  Pixel[][] filter();
+  PackedImage filter();
+
+  /**
+   * Filters the given image and returns a new image that has been filtered, running the work
+   * on the given row executor.
+   * @param executor the executor to run the rows of the image on.
+   * @return a new image which has been filtered
+   */
+  PackedImage filter(RowExecutor executor);
 }
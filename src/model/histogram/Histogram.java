@@ -2,7 +2,7 @@ package model.histogram;
 
 import java.util.ArrayList;
 
-import model.Pixel;
+import model.PackedImage;
 
 /**
  * Represents a model of a Histogram graph for representing the components of an image.
@@ -14,7 +14,7 @@ public interface Histogram {
    * being represented by the histogram.
    * @param image the image to change the view to represent.
    */
-  void setImage(Pixel[][] image);
+  void setImage(PackedImage image);
 
   /**
    * Returns the ArrayList of red component pixels within the given image in order to conduct
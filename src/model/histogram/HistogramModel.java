@@ -2,7 +2,7 @@ package model.histogram;
 
 import java.util.ArrayList;
 
-import model.Pixel;
+import model.PackedImage;
 import model.SimpleEditorModel;
 
 /**
@@ -13,7 +13,7 @@ public class HistogramModel extends SimpleEditorModel implements Histogram {
   private final ArrayList<Integer> greenFrequency;
   private final ArrayList<Integer> blueFrequency;
   private final ArrayList<Integer> intensityFrequency;
-  private Pixel[][] image;
+  private PackedImage image;
 
   /**
    * Constructs a histogram model and instantiates the fields above. Allows the program to store
@@ -35,7 +35,7 @@ public class HistogramModel extends SimpleEditorModel implements Histogram {
   }
 
   @Override
-  public void setImage(Pixel[][] image) {
+  public void setImage(PackedImage image) {
     this.image = image;
     this.fillFrequencies();
   }
@@ -45,16 +45,16 @@ public class HistogramModel extends SimpleEditorModel implements Histogram {
     if (image == null) {
       return;
     }
-    for (int i = 0; i < this.image.length; i++) {
-      for (int j = 0; j < this.image[i].length; j++) {
-        Pixel p = this.image[i][j];
-        double avg = (p.getRed() + p.getGreen() + p.getBlue()) / 3.0;
-        int newAvg = (int) Math.round(avg);
-        this.redFrequency.set(p.getRed(), this.redFrequency.get(p.getRed()) + 1);
-        this.greenFrequency.set(p.getGreen(), this.greenFrequency.get(p.getGreen()) + 1);
-        this.blueFrequency.set(p.getBlue(), this.blueFrequency.get(p.getBlue()) + 1);
-        this.intensityFrequency.set(newAvg, this.intensityFrequency.get(newAvg) + 1);
-      }
+    for (int rgb : this.image.getData()) {
+      int red = PackedImage.red(rgb);
+      int green = PackedImage.green(rgb);
+      int blue = PackedImage.blue(rgb);
+      double avg = (red + green + blue) / 3.0;
+      int newAvg = (int) Math.round(avg);
+      this.redFrequency.set(red, this.redFrequency.get(red) + 1);
+      this.greenFrequency.set(green, this.greenFrequency.get(green) + 1);
+      this.blueFrequency.set(blue, this.blueFrequency.get(blue) + 1);
+      this.intensityFrequency.set(newAvg, this.intensityFrequency.get(newAvg) + 1);
     }
   }
 
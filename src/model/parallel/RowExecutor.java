@@ -0,0 +1,206 @@
+package model.parallel;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs row tasks over an image by splitting its rows into bands and running the bands on a
+ * ForkJoinPool. Each band is processed exactly as the serial loop would process it, so results
+ * do not depend on the parallelism level. Small images are processed on the calling thread, as
+ * splitting them costs more than it saves.
+ *
+ * <p>The default executor used by the model is sized by the "imageeditor.parallelism" system
+ * property, and otherwise uses one thread per available processor. A parallelism of one runs
+ * every task on the calling thread.
+ *
+ * <p>An executor that offloads runs every task on its pool instead, however small, so that the
+ * threads calling it never do pixel work themselves. This suits callers that are many and mostly
+ * wait on files, such as the jobs of a server, as the pool then bounds the threads using the
+ * processors. Every executor counts its tasks in its {@link StageMetrics}.
+ */
+public class RowExecutor {
+  public static final String PARALLELISM_PROPERTY = "imageeditor.parallelism";
+
+  // Below this many pixels a task is run on the calling thread instead of being split
+  private static final int MIN_PIXELS_PER_BAND = 1 << 14;
+  // Bands per thread, so that uneven bands still keep every thread busy
+  private static final int BANDS_PER_THREAD = 4;
+
+  private static RowExecutor defaultExecutor;
+
+  private final int parallelism;
+  private final boolean offload;
+  private final ForkJoinPool pool;
+  private final StageMetrics metrics;
+
+  /**
+   * Constructs a new executor running bands on its own pool of the given number of threads. The
+   * threads are daemon threads, so an unused executor does not keep the program alive.
+   * @param parallelism the number of threads to run bands on.
+   * @throws IllegalArgumentException if the parallelism is not positive.
+   */
+  public RowExecutor(int parallelism) throws IllegalArgumentException {
+    this(parallelism, false);
+  }
+
+  /**
+   * Constructs a new executor running bands on its own pool of the given number of threads,
+   * which may run every task on that pool rather than running small ones on the calling thread.
+   * @param parallelism the number of threads to run bands on.
+   * @param offload whether every task runs on the pool.
+   * @throws IllegalArgumentException if the parallelism is not positive.
+   */
+  public RowExecutor(int parallelism, boolean offload) throws IllegalArgumentException {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("Parallelism must be positive.");
+    }
+    this.parallelism = parallelism;
+    this.offload = offload;
+    this.pool = parallelism == 1 && !offload ? null : new ForkJoinPool(parallelism);
+    this.metrics = new StageMetrics("cpu");
+  }
+
+  /**
+   * Returns the executor used when no other executor is given. It is created on first use from
+   * the "imageeditor.parallelism" system property.
+   * @return the default executor.
+   */
+  public static synchronized RowExecutor getDefault() {
+    if (defaultExecutor == null) {
+      defaultExecutor = new RowExecutor(parallelismFromProperty());
+    }
+    return defaultExecutor;
+  }
+
+  /**
+   * Replaces the executor used when no other executor is given.
+   * @param executor the new default executor.
+   * @throws IllegalArgumentException if the executor is null.
+   */
+  public static synchronized void setDefault(RowExecutor executor)
+      throws IllegalArgumentException {
+    if (executor == null) {
+      throw new IllegalArgumentException("Executor may not be null.");
+    }
+    defaultExecutor = executor;
+  }
+
+  /**
+   * Reads the parallelism level from the system property, falling back to the number of
+   * available processors if it is missing or not a positive integer.
+   * @return the parallelism level to use.
+   */
+  private static int parallelismFromProperty() {
+    String value = System.getProperty(PARALLELISM_PROPERTY);
+    if (value != null) {
+      try {
+        int parsed = Integer.parseInt(value.trim());
+        if (parsed > 0) {
+          return parsed;
+        }
+      } catch (NumberFormatException e) {
+        // Falls through to the number of processors
+      }
+    }
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Returns the number of threads this executor runs bands on.
+   * @return the parallelism level.
+   */
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
+  /**
+   * Returns whether this executor runs every task on its pool.
+   * @return true if the calling thread never runs tasks.
+   */
+  public boolean isOffloading() {
+    return this.offload;
+  }
+
+  /**
+   * Returns the counts of the tasks run by this executor, each call of
+   * {@link #forEachBand(int, int, RowTask)} being one task.
+   * @return the metrics of this executor.
+   */
+  public StageMetrics getMetrics() {
+    return this.metrics;
+  }
+
+  /**
+   * Runs the given task over every row of an image, in bands, and returns once every band has
+   * finished.
+   * @param rows the number of rows of the image.
+   * @param width the number of pixels in each row, used to decide how finely to split.
+   * @param task the task to run over each band.
+   * @throws IllegalArgumentException if the task is null.
+   */
+  public void forEachBand(int rows, int width, RowTask task) throws IllegalArgumentException {
+    if (task == null) {
+      throw new IllegalArgumentException("Task may not be null.");
+    }
+    if (rows <= 0) {
+      return;
+    }
+
+    long enqueuedAt = this.metrics.enqueued();
+    long pixels = (long) rows * Math.max(width, 1);
+    boolean small = pixels < 2L * MIN_PIXELS_PER_BAND;
+    if (this.pool == null || small && !this.offload) {
+      long startedAt = this.metrics.started(enqueuedAt);
+      try {
+        task.run(0, rows);
+      } finally {
+        this.metrics.finished(startedAt);
+      }
+      return;
+    }
+
+    int minRows = Math.max(1, MIN_PIXELS_PER_BAND / Math.max(width, 1));
+    int grain = small ? rows : Math.max(minRows, rows / (this.parallelism * BANDS_PER_THREAD));
+    this.pool.invoke(ForkJoinTask.adapt(() -> {
+      long startedAt = this.metrics.started(enqueuedAt);
+      try {
+        new Band(task, 0, rows, grain).invoke();
+      } finally {
+        this.metrics.finished(startedAt);
+      }
+    }));
+  }
+
+  /**
+   * Splits a range of rows in half until it is no larger than the grain size, then runs the task
+   * over it.
+   */
+  private static class Band extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    // Bands are never serialized, and the task they run is not serializable
+    private final transient RowTask task;
+    private final int fromRow;
+    private final int toRow;
+    private final int grain;
+
+    private Band(RowTask task, int fromRow, int toRow, int grain) {
+      this.task = task;
+      this.fromRow = fromRow;
+      this.toRow = toRow;
+      this.grain = grain;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.toRow - this.fromRow <= this.grain) {
+        this.task.run(this.fromRow, this.toRow);
+        return;
+      }
+      int middle = (this.fromRow + this.toRow) >>> 1;
+      invokeAll(new Band(this.task, this.fromRow, middle, this.grain),
+          new Band(this.task, middle, this.toRow, this.grain));
+    }
+  }
+}
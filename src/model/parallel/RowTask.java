@@ -0,0 +1,14 @@
+package model.parallel;
+
+/**
+ * Represents a piece of work over a band of rows of an image. Bands given to a task never
+ * overlap, so a task may write to the rows of its band without synchronization.
+ */
+public interface RowTask {
+  /**
+   * Runs this task over the given band of rows.
+   * @param fromRow the first row of the band, inclusive.
+   * @param toRow the last row of the band, exclusive.
+   */
+  void run(int fromRow, int toRow);
+}
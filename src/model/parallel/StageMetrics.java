@@ -0,0 +1,135 @@
+package model.parallel;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the tasks passing through one stage of processing: how many are waiting to start, how
+ * many are running, how many are done, and how long they waited and ran on average. A task is
+ * reported with {@link #enqueued()} when it is handed to the stage, {@link #started(long)} when
+ * it starts, and {@link #finished(long)} when it is done. Every method may be called from any
+ * thread.
+ */
+public class StageMetrics {
+  private final String name;
+  private final AtomicInteger queued = new AtomicInteger();
+  private final AtomicInteger active = new AtomicInteger();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder waitNanos = new LongAdder();
+  private final LongAdder runNanos = new LongAdder();
+
+  /**
+   * Constructs the metrics of a stage with no tasks yet.
+   * @param name the name of the stage.
+   * @throws IllegalArgumentException if the name is null.
+   */
+  public StageMetrics(String name) throws IllegalArgumentException {
+    if (name == null) {
+      throw new IllegalArgumentException("Name must not be null.");
+    }
+    this.name = name;
+  }
+
+  /**
+   * Reports that a task was handed to the stage.
+   * @return the time it was handed over, to give to {@link #started(long)}.
+   */
+  public long enqueued() {
+    this.queued.incrementAndGet();
+    return System.nanoTime();
+  }
+
+  /**
+   * Reports that a task handed to the stage has started.
+   * @param enqueuedAt the time returned by {@link #enqueued()} for the task.
+   * @return the time it started, to give to {@link #finished(long)}.
+   */
+  public long started(long enqueuedAt) {
+    long now = System.nanoTime();
+    this.queued.decrementAndGet();
+    this.active.incrementAndGet();
+    this.waitNanos.add(now - enqueuedAt);
+    return now;
+  }
+
+  /**
+   * Reports that a task handed to the stage left it without starting, such as when it was
+   * cancelled.
+   */
+  public void dequeued() {
+    this.queued.decrementAndGet();
+  }
+
+  /**
+   * Reports that a task that started has finished, whether or not it succeeded.
+   * @param startedAt the time returned by {@link #started(long)} for the task.
+   */
+  public void finished(long startedAt) {
+    this.runNanos.add(System.nanoTime() - startedAt);
+    this.active.decrementAndGet();
+    this.completed.increment();
+  }
+
+  /**
+   * Returns the name of the stage.
+   * @return the name.
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Returns the number of tasks handed to the stage that have not started.
+   * @return the queue depth.
+   */
+  public int getQueueDepth() {
+    return this.queued.get();
+  }
+
+  /**
+   * Returns the number of tasks that have started and not finished.
+   * @return the number of running tasks.
+   */
+  public int getActive() {
+    return this.active.get();
+  }
+
+  /**
+   * Returns the number of tasks that have finished.
+   * @return the number of finished tasks.
+   */
+  public long getCompleted() {
+    return this.completed.sum();
+  }
+
+  /**
+   * Returns how long the tasks that have started waited to start, on average.
+   * @return the mean wait in nanoseconds, or 0 if no task has started.
+   */
+  public long getMeanWaitNanos() {
+    long started = this.completed.sum() + this.active.get();
+    return started == 0 ? 0 : this.waitNanos.sum() / started;
+  }
+
+  /**
+   * Returns how long the finished tasks ran, on average.
+   * @return the mean run time in nanoseconds, or 0 if no task has finished.
+   */
+  public long getMeanRunNanos() {
+    long done = this.completed.sum();
+    return done == 0 ? 0 : this.runNanos.sum() / done;
+  }
+
+  /**
+   * Returns a one line summary of the stage.
+   * @return the summary.
+   */
+  @Override
+  public String toString() {
+    return String.format(Locale.ROOT,
+        "%s: %d queued, %d running, %d done, %.2f ms mean wait, %.2f ms mean run", this.name,
+        this.getQueueDepth(), this.getActive(), this.getCompleted(),
+        this.getMeanWaitNanos() / 1e6, this.getMeanRunNanos() / 1e6);
+  }
+}
@@ -0,0 +1,171 @@
+package model.pointop;
+
+import java.util.function.IntUnaryOperator;
+
+import model.PackedImage;
+
+/**
+ * Represents a point operation that maps each channel of a pixel through its own 256 entry
+ * lookup table. Brighten, gamma, levels, contrast, inversion, and thresholding are all lookup
+ * tables, computed once per operation rather than once per pixel. Two lookup tables in a row are
+ * combined into one, so any number of them in a row cost a single table lookup per channel.
+ */
+public class ChannelLut implements PointOp {
+  private final int[] red;
+  private final int[] green;
+  private final int[] blue;
+
+  /**
+   * Constructs a lookup table operation that maps every channel through the same table.
+   * @param table the new value of each channel value, indexed by the old value.
+   * @throws IllegalArgumentException if the table is null, does not have 256 entries, or holds
+   *         a value outside of 0 to 255.
+   */
+  public ChannelLut(int[] table) throws IllegalArgumentException {
+    this(table, table, table);
+  }
+
+  /**
+   * Constructs a lookup table operation with a table for each channel.
+   * @param red the new value of each red value, indexed by the old value.
+   * @param green the new value of each green value, indexed by the old value.
+   * @param blue the new value of each blue value, indexed by the old value.
+   * @throws IllegalArgumentException if a table is null, does not have 256 entries, or holds a
+   *         value outside of 0 to 255.
+   */
+  public ChannelLut(int[] red, int[] green, int[] blue) throws IllegalArgumentException {
+    this.red = checkTable(red);
+    this.green = red == green ? this.red : checkTable(green);
+    this.blue = red == blue ? this.red : checkTable(blue);
+  }
+
+  private static int[] checkTable(int[] table) {
+    if (table == null || table.length != 256) {
+      throw new IllegalArgumentException("Lookup tables must have 256 entries");
+    }
+    for (int value : table) {
+      if (value < 0 || value > 255) {
+        throw new IllegalArgumentException("Lookup table values must be between 0 and 255");
+      }
+    }
+    return table.clone();
+  }
+
+  /**
+   * Creates the lookup table operation that adds the given value to every channel, capping the
+   * result between 0 and 255.
+   * @param value the value to add, which is negative to darken.
+   * @return the brighten operation.
+   */
+  public static ChannelLut brighten(int value) {
+    return table(v -> v + value);
+  }
+
+  /**
+   * Creates the lookup table operation that applies gamma correction to every channel. A value v
+   * becomes 255 * (v / 255)^(1 / gamma), so a gamma above one brightens the mid tones and a
+   * gamma below one darkens them, while black and white stay as they are.
+   * @param gamma the gamma to correct by.
+   * @return the gamma operation.
+   * @throws IllegalArgumentException if the gamma is not a positive number.
+   */
+  public static ChannelLut gamma(double gamma) throws IllegalArgumentException {
+    if (!(gamma > 0) || Double.isInfinite(gamma)) {
+      throw new IllegalArgumentException("Gamma must be a positive number");
+    }
+    return table(v -> (int) Math.round(255 * Math.pow(v / 255.0, 1 / gamma)));
+  }
+
+  /**
+   * Creates the lookup table operation that stretches the given range of values to the full
+   * range of every channel. Values at or below black become 0, values at or above white become
+   * 255, and values in between are scaled linearly.
+   * @param black the value that becomes 0.
+   * @param white the value that becomes 255.
+   * @return the levels operation.
+   * @throws IllegalArgumentException if black is not below white, or either is outside of 0 to
+   *         255.
+   */
+  public static ChannelLut levels(int black, int white) throws IllegalArgumentException {
+    if (black < 0 || white > 255 || black >= white) {
+      throw new IllegalArgumentException("Levels must satisfy 0 <= black < white <= 255");
+    }
+    return table(v -> (int) Math.round((v - black) * 255.0 / (white - black)));
+  }
+
+  /**
+   * Creates the lookup table operation that scales the distance of every channel from the
+   * middle value 128 by the given factor. A factor above one increases contrast, and a factor
+   * below one decreases it.
+   * @param factor the factor to scale by.
+   * @return the contrast operation.
+   * @throws IllegalArgumentException if the factor is negative or not a number.
+   */
+  public static ChannelLut contrast(double factor) throws IllegalArgumentException {
+    if (!(factor >= 0) || Double.isInfinite(factor)) {
+      throw new IllegalArgumentException("Contrast factor must be a non-negative number");
+    }
+    return table(v -> (int) Math.round((v - 128) * factor + 128));
+  }
+
+  /**
+   * Creates the lookup table operation that inverts every channel, turning v into 255 - v.
+   * @return the invert operation.
+   */
+  public static ChannelLut invert() {
+    return table(v -> 255 - v);
+  }
+
+  /**
+   * Creates the lookup table operation that turns every channel value at or above the given
+   * level into 255 and every other value into 0.
+   * @param level the lowest value that becomes 255.
+   * @return the threshold operation.
+   * @throws IllegalArgumentException if the level is outside of 0 to 255.
+   */
+  public static ChannelLut threshold(int level) throws IllegalArgumentException {
+    if (level < 0 || level > 255) {
+      throw new IllegalArgumentException("Threshold level must be between 0 and 255");
+    }
+    return table(v -> v >= level ? 255 : 0);
+  }
+
+  /**
+   * Creates a lookup table operation that maps every channel through the given function, capping
+   * its results between 0 and 255.
+   */
+  private static ChannelLut table(IntUnaryOperator function) {
+    int[] table = new int[256];
+    for (int i = 0; i < 256; i++) {
+      table[i] = PackedImage.clamp(function.applyAsInt(i));
+    }
+    return new ChannelLut(table);
+  }
+
+  /**
+   * Combines this operation with one applied after it into a single lookup table operation.
+   * @param next the operation to apply after this one.
+   * @return an operation giving the same pixels as this one followed by the next one.
+   */
+  public ChannelLut then(ChannelLut next) {
+    int[] r = new int[256];
+    int[] g = new int[256];
+    int[] b = new int[256];
+    for (int i = 0; i < 256; i++) {
+      r[i] = next.red[this.red[i]];
+      g[i] = next.green[this.green[i]];
+      b[i] = next.blue[this.blue[i]];
+    }
+    return new ChannelLut(r, g, b);
+  }
+
+  @Override
+  public void apply(int[] src, int[] dst, int from, int to) {
+    for (int i = from; i < to; i++) {
+      int rgb = src[i];
+      dst[i] = PackedImage.pack(this.red[PackedImage.red(rgb)],
+          this.green[PackedImage.green(rgb)],
+          this.blue[PackedImage.blue(rgb)]);
+    }
+  }
+}
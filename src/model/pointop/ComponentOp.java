@@ -0,0 +1,78 @@
+package model.pointop;
+
+import model.Component;
+import model.PackedImage;
+import model.colortransform.Greyscale;
+
+/**
+ * Represents a point operation that writes one component of each pixel into all three of its
+ * channels.
+ */
+public class ComponentOp implements PointOp {
+  private static final MatrixOp LUMA = new MatrixOp(Greyscale.MATRIX);
+
+  private final Component type;
+
+  /**
+   * Constructs a component operation.
+   * @param type the component type to visualize.
+   * @throws IllegalArgumentException if the type is null.
+   */
+  public ComponentOp(Component type) throws IllegalArgumentException {
+    if (type == null) {
+      throw new IllegalArgumentException("Component type must not be null");
+    }
+    this.type = type;
+  }
+
+  @Override
+  public void apply(int[] src, int[] dst, int from, int to) {
+    // The type is switched on once per range, leaving a branch-free loop for each type
+    switch (this.type) {
+      case RED:
+        for (int i = from; i < to; i++) {
+          dst[i] = grey(PackedImage.red(src[i]));
+        }
+        break;
+      case GREEN:
+        for (int i = from; i < to; i++) {
+          dst[i] = grey(PackedImage.green(src[i]));
+        }
+        break;
+      case BLUE:
+        for (int i = from; i < to; i++) {
+          dst[i] = grey(PackedImage.blue(src[i]));
+        }
+        break;
+      case VALUE:
+        for (int i = from; i < to; i++) {
+          int rgb = src[i];
+          dst[i] = grey(Math.max(Math.max(PackedImage.red(rgb), PackedImage.green(rgb)),
+              PackedImage.blue(rgb)));
+        }
+        break;
+      case INTENSITY:
+        for (int i = from; i < to; i++) {
+          int rgb = src[i];
+          double avg = (PackedImage.red(rgb) + PackedImage.green(rgb) + PackedImage.blue(rgb))
+              / 3.0;
+          dst[i] = grey((int) Math.round(avg));
+        }
+        break;
+      case LUMA:
+        LUMA.apply(src, dst, from, to);
+        break;
+      default:
+        /*
+         * No action is intended when no other case applies. The switch statement switches on
+         * the model.Component ENUM, and all the options are specified above, so the program
+         * will never hit the default case.
+         */
+        break;
+    }
+  }
+
+  private static int grey(int component) {
+    return PackedImage.pack(component, component, component);
+  }
+}
@@ -0,0 +1,34 @@
+package model.pointop;
+
+import model.colortransform.AColorTransform;
+
+/**
+ * Represents a point operation that transforms colors by a 3x3 matrix, giving the same pixels
+ * as the color transformation with that matrix.
+ */
+public class MatrixOp implements PointOp {
+  private final float[][] matrix;
+
+  /**
+   * Constructs a matrix operation.
+   * @param matrix the 3x3 matrix to transform colors by, indexed by row then column.
+   * @throws IllegalArgumentException if the matrix is null or not 3x3.
+   */
+  public MatrixOp(float[][] matrix) throws IllegalArgumentException {
+    if (matrix == null || matrix.length != 3) {
+      throw new IllegalArgumentException("Matrix must be 3x3");
+    }
+    this.matrix = new float[3][];
+    for (int i = 0; i < 3; i++) {
+      if (matrix[i] == null || matrix[i].length != 3) {
+        throw new IllegalArgumentException("Matrix must be 3x3");
+      }
+      this.matrix[i] = matrix[i].clone();
+    }
+  }
+
+  @Override
+  public void apply(int[] src, int[] dst, int from, int to) {
+    AColorTransform.applyMatrix(this.matrix, src, dst, from, to);
+  }
+}
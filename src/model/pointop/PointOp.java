@@ -0,0 +1,19 @@
+package model.pointop;
+
+/**
+ * Represents an operation that computes each pixel of an image from the pixel at the same
+ * location alone, such as brightening or a color transformation. Point operations can be run
+ * one after another over a small block of pixels, so a chain of them takes a single pass over
+ * the image.
+ */
+public interface PointOp {
+  /**
+   * Applies this operation to the packed pixels in the given range of the source array, writing
+   * the results into the same range of the destination array. The two arrays may be the same.
+   * @param src the packed pixels to read.
+   * @param dst the packed pixels to write.
+   * @param from the first index to convert, inclusive.
+   * @param to the last index to convert, exclusive.
+   */
+  void apply(int[] src, int[] dst, int from, int to);
+}
@@ -0,0 +1,108 @@
+package model.pointop;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import model.PackedImage;
+import model.parallel.RowExecutor;
+
+/**
+ * Represents a sequence of point operations applied to an image in a single pass. The pixels
+ * are walked in blocks small enough to stay in cache, and every operation of the chain is
+ * applied to a block before moving to the next, so the image is read once and the result
+ * written once however long the chain is. Each operation still rounds and caps its own results,
+ * so the pixels are exactly those of applying the operations one image at a time. Lookup table
+ * operations in a row are combined into one when they are added to the chain.
+ *
+ * <p>Chains are immutable: adding an operation returns a new chain. A chain is itself a point
+ * operation, so it can be applied to any range of pixels.
+ */
+public class PointOpChain implements PointOp {
+  // Pixels per block, small enough for a block to stay in the first levels of cache
+  private static final int BLOCK = 4096;
+
+  private final List<PointOp> ops;
+
+  private PointOpChain(List<PointOp> ops) {
+    this.ops = Collections.unmodifiableList(ops);
+  }
+
+  /**
+   * Creates a chain holding a single operation.
+   * @param op the operation.
+   * @return the new chain.
+   * @throws IllegalArgumentException if the operation is null.
+   */
+  public static PointOpChain of(PointOp op) throws IllegalArgumentException {
+    if (op == null) {
+      throw new IllegalArgumentException("Operation must not be null");
+    }
+    List<PointOp> ops = new ArrayList<>();
+    ops.add(op);
+    return new PointOpChain(ops);
+  }
+
+  /**
+   * Creates a chain that applies the given operation after the operations of this chain.
+   * @param op the operation to add.
+   * @return the new chain.
+   * @throws IllegalArgumentException if the operation is null.
+   */
+  public PointOpChain then(PointOp op) throws IllegalArgumentException {
+    if (op == null) {
+      throw new IllegalArgumentException("Operation must not be null");
+    }
+    List<PointOp> ops = new ArrayList<>(this.ops);
+    PointOp last = ops.get(ops.size() - 1);
+    if (last instanceof ChannelLut && op instanceof ChannelLut) {
+      ops.set(ops.size() - 1, ((ChannelLut) last).then((ChannelLut) op));
+    } else {
+      ops.add(op);
+    }
+    return new PointOpChain(ops);
+  }
+
+  /**
+   * Returns the number of passes over each block this chain takes, after combining lookup
+   * tables.
+   * @return the number of operations in the chain.
+   */
+  public int size() {
+    return this.ops.size();
+  }
+
+  /**
+   * Applies every operation of this chain to the given image, splitting its rows across the
+   * given executor. The source image is not modified.
+   * @param image the image to apply the chain to.
+   * @param executor the executor to run the rows of the image on.
+   * @return a new image holding the result.
+   * @throws IllegalArgumentException if either argument is null.
+   */
+  public PackedImage apply(PackedImage image, RowExecutor executor)
+      throws IllegalArgumentException {
+    if (image == null || executor == null) {
+      throw new IllegalArgumentException("Image and executor must not be null");
+    }
+    int width = image.getWidth();
+    int[] src = image.getData();
+    int[] dst = new int[src.length];
+
+    executor.forEachBand(image.getHeight(), width,
+        (fromRow, toRow) -> this.apply(src, dst, fromRow * width, toRow * width));
+    return new PackedImage(width, image.getHeight(), dst);
+  }
+
+  @Override
+  public void apply(int[] src, int[] dst, int from, int to) {
+    PointOp[] steps = this.ops.toArray(new PointOp[0]);
+    for (int start = from; start < to; start += BLOCK) {
+      int end = Math.min(start + BLOCK, to);
+      steps[0].apply(src, dst, start, end);
+      for (int k = 1; k < steps.length; k++) {
+        steps[k].apply(dst, dst, start, end);
+      }
+    }
+  }
+}
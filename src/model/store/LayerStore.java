@@ -0,0 +1,394 @@
+package model.store;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import model.PackedImage;
+
+/**
+ * Holds the named layers of an editor within a budget of bytes. Layers are kept in memory in
+ * least recently used order, and once the layers in memory take more than the budget, the least
+ * recently used ones are written to a spill file and dropped from memory. Reading a spilled
+ * layer maps its part of the spill file back into memory and rebuilds the image from it, which
+ * may in turn spill other layers. A single layer larger than the whole budget is kept in memory,
+ * as it cannot be used without being there.
+ *
+ * <p>Spilled layers take three bytes per pixel. The space of a layer read back from the spill
+ * file is reused by later spills, so the file only grows to the largest amount of spilled data
+ * at once. The file is created on the first spill and deleted when the store is closed or the
+ * program exits.
+ *
+ * <p>The store counts hits (layers read from memory), misses (layers read back from the spill
+ * file) and spills (layers written to the spill file), so that the budget can be sized for a
+ * host. The default budget is read from the {@value #BUDGET_PROPERTY} system property, in
+ * megabytes, and is otherwise half of the maximum heap size.
+ */
+public class LayerStore implements Closeable {
+  public static final String BUDGET_PROPERTY = "imageeditor.layers.budget";
+
+  // Largest number of bytes mapped at once, so that layers of any size can be mapped in pieces
+  private static final int MAX_MAPPED_BYTES = 1 << 26;
+  // Pixels converted to or from bytes at a time
+  private static final int CHUNK = 1 << 16;
+
+  private final long budget;
+  private final Map<String, PackedImage> resident;
+  private final Map<String, Spilled> spilled;
+  private final TreeMap<Long, Long> free;
+  private long residentBytes;
+  private long fileLength;
+  private File file;
+  private FileChannel channel;
+  private long hits;
+  private long misses;
+  private long spills;
+
+  /**
+   * Constructs a store with the budget given by the {@value #BUDGET_PROPERTY} system property,
+   * or half of the maximum heap size if it is missing or not a positive number.
+   */
+  public LayerStore() {
+    this(budgetFromProperty());
+  }
+
+  /**
+   * Constructs a store that keeps at most the given number of bytes of layers in memory.
+   * @param budget the budget in bytes.
+   * @throws IllegalArgumentException if the budget is negative.
+   */
+  public LayerStore(long budget) throws IllegalArgumentException {
+    if (budget < 0) {
+      throw new IllegalArgumentException("Budget must not be negative.");
+    }
+    this.budget = budget;
+    this.resident = new LinkedHashMap<>(16, 0.75f, true);
+    this.spilled = new HashMap<>();
+    this.free = new TreeMap<>();
+  }
+
+  private static long budgetFromProperty() {
+    String value = System.getProperty(BUDGET_PROPERTY);
+    if (value != null) {
+      try {
+        long parsed = Long.parseLong(value.trim());
+        if (parsed > 0) {
+          return parsed << 20;
+        }
+      } catch (NumberFormatException e) {
+        // Falls back to the heap size below
+      }
+    }
+    return Runtime.getRuntime().maxMemory() / 2;
+  }
+
+  private static long sizeOf(PackedImage image) {
+    return 4L * image.getWidth() * image.getHeight();
+  }
+
+  /**
+   * Stores the image under the given name, replacing any layer already stored under it. Other
+   * layers are spilled if the layers in memory go over the budget.
+   * @param name the name of the layer.
+   * @param image the image of the layer.
+   * @throws IllegalArgumentException if either argument is null.
+   * @throws IllegalStateException if a layer cannot be written to the spill file.
+   */
+  public synchronized void put(String name, PackedImage image)
+      throws IllegalArgumentException, IllegalStateException {
+    if (name == null || image == null) {
+      throw new IllegalArgumentException("Name and image must not be null.");
+    }
+    this.remove(name);
+    this.resident.put(name, image);
+    this.residentBytes += sizeOf(image);
+    this.evict(name);
+  }
+
+  /**
+   * Returns the image stored under the given name, reading it back from the spill file if it
+   * was spilled.
+   * @param name the name of the layer.
+   * @return the image, or null if there is no layer with the name.
+   * @throws IllegalStateException if the layer cannot be read back from the spill file, or
+   *         another layer cannot be written to it.
+   */
+  public synchronized PackedImage get(String name) throws IllegalStateException {
+    PackedImage image = this.resident.get(name);
+    if (image != null) {
+      this.hits++;
+      return image;
+    }
+    Spilled entry = this.spilled.remove(name);
+    if (entry == null) {
+      return null;
+    }
+    this.misses++;
+    image = this.load(entry);
+    this.release(entry.offset, entry.length);
+    this.resident.put(name, image);
+    this.residentBytes += sizeOf(image);
+    this.evict(name);
+    return image;
+  }
+
+  /**
+   * Removes the layer stored under the given name, if there is one.
+   * @param name the name of the layer.
+   */
+  public synchronized void remove(String name) {
+    PackedImage image = this.resident.remove(name);
+    if (image != null) {
+      this.residentBytes -= sizeOf(image);
+    }
+    Spilled entry = this.spilled.remove(name);
+    if (entry != null) {
+      this.release(entry.offset, entry.length);
+    }
+  }
+
+  /**
+   * Returns whether a layer is stored under the given name, in memory or spilled.
+   * @param name the name of the layer.
+   * @return true if there is a layer with the name.
+   */
+  public synchronized boolean contains(String name) {
+    return this.resident.containsKey(name) || this.spilled.containsKey(name);
+  }
+
+  /**
+   * Returns the names of every layer, in memory or spilled.
+   * @return a new set of the names.
+   */
+  public synchronized Set<String> names() {
+    Set<String> names = new LinkedHashSet<>(this.resident.keySet());
+    names.addAll(this.spilled.keySet());
+    return names;
+  }
+
+  /**
+   * Spills the least recently used layers until the layers in memory fit in the budget, or only
+   * the given layer is left in memory.
+   * @param keep the layer that must stay in memory.
+   */
+  private void evict(String keep) throws IllegalStateException {
+    Iterator<Map.Entry<String, PackedImage>> oldest = this.resident.entrySet().iterator();
+    while (this.residentBytes > this.budget && oldest.hasNext()) {
+      Map.Entry<String, PackedImage> entry = oldest.next();
+      if (entry.getKey().equals(keep)) {
+        continue;
+      }
+      PackedImage image = entry.getValue();
+      this.spilled.put(entry.getKey(), this.spill(image));
+      oldest.remove();
+      this.residentBytes -= sizeOf(image);
+      this.spills++;
+    }
+  }
+
+  /**
+   * Writes the image into free space of the spill file, three bytes per pixel.
+   * @return where the image was written.
+   */
+  private Spilled spill(PackedImage image) throws IllegalStateException {
+    long length = 3L * image.getWidth() * image.getHeight();
+    long offset = this.allocate(length);
+    int[] data = image.getData();
+    byte[] bytes = new byte[3 * CHUNK];
+    try {
+      int pixel = 0;
+      for (long done = 0; done < length; ) {
+        long size = Math.min(length - done, MAX_MAPPED_BYTES - MAX_MAPPED_BYTES % (3 * CHUNK));
+        MappedByteBuffer mapped = this.channel().map(FileChannel.MapMode.READ_WRITE,
+            offset + done, size);
+        for (long put = 0; put < size; ) {
+          int count = (int) Math.min(CHUNK, (size - put) / 3);
+          for (int i = 0, b = 0; i < count; i++, b += 3) {
+            int rgb = data[pixel++];
+            bytes[b] = (byte) (rgb >> 16);
+            bytes[b + 1] = (byte) (rgb >> 8);
+            bytes[b + 2] = (byte) rgb;
+          }
+          mapped.put(bytes, 0, 3 * count);
+          put += 3L * count;
+        }
+        done += size;
+      }
+    } catch (IOException e) {
+      this.release(offset, length);
+      throw new IllegalStateException("Could not write layer to spill file.");
+    }
+    return new Spilled(offset, length, image.getWidth(), image.getHeight());
+  }
+
+  /**
+   * Maps the part of the spill file holding the layer and rebuilds its image.
+   */
+  private PackedImage load(Spilled entry) throws IllegalStateException {
+    PackedImage image = new PackedImage(entry.width, entry.height);
+    int[] data = image.getData();
+    byte[] bytes = new byte[3 * CHUNK];
+    try {
+      int pixel = 0;
+      for (long done = 0; done < entry.length; ) {
+        long size = Math.min(entry.length - done,
+            MAX_MAPPED_BYTES - MAX_MAPPED_BYTES % (3 * CHUNK));
+        MappedByteBuffer mapped = this.channel().map(FileChannel.MapMode.READ_ONLY,
+            entry.offset + done, size);
+        for (long got = 0; got < size; ) {
+          int count = (int) Math.min(CHUNK, (size - got) / 3);
+          mapped.get(bytes, 0, 3 * count);
+          for (int i = 0, b = 0; i < count; i++, b += 3) {
+            data[pixel++] = ((bytes[b] & 0xFF) << 16) | ((bytes[b + 1] & 0xFF) << 8)
+                | (bytes[b + 2] & 0xFF);
+          }
+          got += 3L * count;
+        }
+        done += size;
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not read layer from spill file.");
+    }
+    return image;
+  }
+
+  /**
+   * Finds the first free range of the spill file that can hold the given number of bytes, or
+   * the end of the file if none can.
+   * @return the offset of the allocated range.
+   */
+  private long allocate(long length) {
+    for (Map.Entry<Long, Long> range : this.free.entrySet()) {
+      long offset = range.getKey();
+      long available = range.getValue();
+      if (available >= length) {
+        this.free.remove(offset);
+        if (available > length) {
+          this.free.put(offset + length, available - length);
+        }
+        return offset;
+      }
+    }
+    long offset = this.fileLength;
+    this.fileLength += length;
+    return offset;
+  }
+
+  /**
+   * Returns a range of the spill file to the free ranges, merging it with its neighbours.
+   */
+  private void release(long offset, long length) {
+    Map.Entry<Long, Long> before = this.free.floorEntry(offset);
+    if (before != null && before.getKey() + before.getValue() == offset) {
+      offset = before.getKey();
+      length += before.getValue();
+      this.free.remove(offset);
+    }
+    Long after = this.free.remove(offset + length);
+    if (after != null) {
+      length += after;
+    }
+    if (offset + length == this.fileLength) {
+      this.fileLength = offset;
+    } else {
+      this.free.put(offset, length);
+    }
+  }
+
+  private FileChannel channel() throws IOException {
+    if (this.channel == null) {
+      this.file = Files.createTempFile("layers", ".spill").toFile();
+      this.file.deleteOnExit();
+      this.channel = FileChannel.open(this.file.toPath(), StandardOpenOption.READ,
+          StandardOpenOption.WRITE);
+    }
+    return this.channel;
+  }
+
+  /**
+   * Returns the budget of this store.
+   * @return the number of bytes of layers kept in memory before spilling.
+   */
+  public long getBudget() {
+    return this.budget;
+  }
+
+  /**
+   * Returns the number of bytes taken by the layers in memory.
+   * @return the bytes in memory.
+   */
+  public synchronized long getResidentBytes() {
+    return this.residentBytes;
+  }
+
+  /**
+   * Returns the number of layers read from memory.
+   * @return the number of hits.
+   */
+  public synchronized long getHits() {
+    return this.hits;
+  }
+
+  /**
+   * Returns the number of layers read back from the spill file.
+   * @return the number of misses.
+   */
+  public synchronized long getMisses() {
+    return this.misses;
+  }
+
+  /**
+   * Returns the number of layers written to the spill file.
+   * @return the number of spills.
+   */
+  public synchronized long getSpills() {
+    return this.spills;
+  }
+
+  /**
+   * Closes and deletes the spill file. Spilled layers are lost, and the store must not be used
+   * afterwards.
+   */
+  @Override
+  public synchronized void close() {
+    if (this.channel != null) {
+      try {
+        this.channel.close();
+      } catch (IOException e) {
+        // Nothing more can be done with a channel that cannot be closed
+      }
+      this.file.delete();
+      this.channel = null;
+    }
+    this.spilled.clear();
+    this.free.clear();
+  }
+
+  /**
+   * Represents where a spilled layer is held in the spill file.
+   */
+  private static class Spilled {
+    private final long offset;
+    private final long length;
+    private final int width;
+    private final int height;
+
+    private Spilled(long offset, long length, int width, int height) {
+      this.offset = offset;
+      this.length = length;
+      this.width = width;
+      this.height = height;
+    }
+  }
+}
@@ -0,0 +1,64 @@
+package model.stream;
+
+import model.filters.BorderMode;
+import model.filters.ConvolutionEngine;
+
+/**
+ * Represents a convolution of a stream, such as a blur or a sharpen. The input is read through
+ * a window of kernel height rows, and the output rows come from a single cursor of the engine,
+ * so the stage holds a few rows of input and scratch no matter how tall the image is. Zero,
+ * clamped and mirrored borders only ever reach back within the window; wrapped borders need the
+ * rows on the far side of the image and are not supported.
+ */
+public class ConvolutionStage implements RowStage {
+  private final ConvolutionEngine engine;
+
+  /**
+   * Constructs a stage applying the given convolution engine.
+   * @param engine the engine to convolve the stream with.
+   * @throws IllegalArgumentException if the engine is null or uses wrapped borders.
+   */
+  public ConvolutionStage(ConvolutionEngine engine) throws IllegalArgumentException {
+    if (engine == null) {
+      throw new IllegalArgumentException("Engine must not be null");
+    }
+    if (engine.getBorderMode() == BorderMode.WRAP) {
+      throw new IllegalArgumentException("Wrapped borders cannot be streamed");
+    }
+    this.engine = engine;
+  }
+
+  /**
+   * Returns a stage convolving with the kernel of this stage turned upside down.
+   * @return the mirrored stage.
+   * @throws UnsupportedOperationException if the kernel has an even number of rows, so that it
+   *         is not centred on the row it computes.
+   */
+  @Override
+  public RowStage mirrored() throws UnsupportedOperationException {
+    try {
+      return new ConvolutionStage(this.engine.flipped());
+    } catch (IllegalStateException e) {
+      throw new UnsupportedOperationException(e.getMessage());
+    }
+  }
+
+  @Override
+  public RowReader open(RowReader upstream) throws IllegalArgumentException {
+    return new FilteredReader(upstream) {
+      private final ConvolutionEngine.Cursor cursor =
+          engine.open(new WindowedSource(upstream, engine.getKernelHeight()));
+
+      @Override
+      public void readRow(int row, int[] dst) throws IllegalStateException {
+        this.cursor.filterRow(row, dst, 0);
+      }
+
+      @Override
+      public void close() {
+        this.cursor.close();
+        super.close();
+      }
+    };
+  }
+}
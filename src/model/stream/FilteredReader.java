@@ -0,0 +1,31 @@
+package model.stream;
+
+/**
+ * Represents a reader whose rows are computed from the rows of another reader with the same
+ * dimensions. Closing it closes the reader it reads from.
+ */
+abstract class FilteredReader implements RowReader {
+  protected final RowReader upstream;
+
+  protected FilteredReader(RowReader upstream) throws IllegalArgumentException {
+    if (upstream == null) {
+      throw new IllegalArgumentException("Upstream reader must not be null");
+    }
+    this.upstream = upstream;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.upstream.getWidth();
+  }
+
+  @Override
+  public int getHeight() {
+    return this.upstream.getHeight();
+  }
+
+  @Override
+  public void close() {
+    this.upstream.close();
+  }
+}
@@ -0,0 +1,27 @@
+package model.stream;
+
+/**
+ * Represents a horizontal flip of a stream, which reverses each row on its own.
+ */
+public class HorizontalFlipStage implements RowStage {
+  @Override
+  public RowStage mirrored() {
+    return this;
+  }
+
+  @Override
+  public RowReader open(RowReader upstream) throws IllegalArgumentException {
+    return new FilteredReader(upstream) {
+      private final int[] buffer = new int[upstream.getWidth()];
+
+      @Override
+      public void readRow(int row, int[] dst) throws IllegalStateException {
+        this.upstream.readRow(row, this.buffer);
+        int width = this.buffer.length;
+        for (int col = 0; col < width; col++) {
+          dst[col] = this.buffer[width - col - 1];
+        }
+      }
+    };
+  }
+}
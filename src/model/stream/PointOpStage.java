@@ -0,0 +1,51 @@
+package model.stream;
+
+import model.pointop.PointOp;
+import model.pointop.PointOpChain;
+
+/**
+ * Represents a chain of point operations applied to each row of a stream as it passes through,
+ * in place and without holding any other row.
+ */
+public class PointOpStage implements RowStage {
+  private final PointOpChain chain;
+
+  /**
+   * Constructs a stage applying the given chain of point operations.
+   * @param chain the operations to apply.
+   * @throws IllegalArgumentException if the chain is null.
+   */
+  public PointOpStage(PointOpChain chain) throws IllegalArgumentException {
+    if (chain == null) {
+      throw new IllegalArgumentException("Chain must not be null");
+    }
+    this.chain = chain;
+  }
+
+  /**
+   * Creates a stage that applies the given operation after the operations of this stage, so
+   * that point operations in a row take a single pass over each row.
+   * @param op the operation to add.
+   * @return the new stage.
+   * @throws IllegalArgumentException if the operation is null.
+   */
+  public PointOpStage then(PointOp op) throws IllegalArgumentException {
+    return new PointOpStage(this.chain.then(op));
+  }
+
+  @Override
+  public RowStage mirrored() {
+    return this;
+  }
+
+  @Override
+  public RowReader open(RowReader upstream) throws IllegalArgumentException {
+    return new FilteredReader(upstream) {
+      @Override
+      public void readRow(int row, int[] dst) throws IllegalStateException {
+        this.upstream.readRow(row, dst);
+        chain.apply(dst, dst, 0, this.getWidth());
+      }
+    };
+  }
+}
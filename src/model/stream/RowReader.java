@@ -0,0 +1,25 @@
+package model.stream;
+
+import model.RowSource;
+
+/**
+ * Represents a source of image rows that holds resources, such as an open file, until it is
+ * closed. Readers in a stream are asked for their rows in increasing order and may refuse to go
+ * back to rows they have already passed, unless they are random access readers, which may be
+ * asked for their rows in any order.
+ */
+public interface RowReader extends RowSource, AutoCloseable {
+  /**
+   * Checks whether this reader may be asked for its rows in any order.
+   * @return true if rows may be read in any order, false if only in increasing order.
+   */
+  default boolean isRandomAccess() {
+    return false;
+  }
+
+  /**
+   * Releases the resources held by this reader and by any reader it reads from.
+   */
+  @Override
+  void close();
+}
@@ -0,0 +1,25 @@
+package model.stream;
+
+/**
+ * Represents one operation of a streamed image, which turns the rows of the image before it
+ * into its own rows while holding only a few rows at a time.
+ */
+public interface RowStage {
+  /**
+   * Opens a reader for the rows of this stage's result, reading its input from the given
+   * reader. Closing the returned reader closes the given one.
+   * @param upstream the reader of the image this stage is applied to.
+   * @return the reader of the result.
+   * @throws IllegalArgumentException if the upstream reader is null.
+   */
+  RowReader open(RowReader upstream) throws IllegalArgumentException;
+
+  /**
+   * Returns the stage that, applied to the input of this stage turned upside down, gives the
+   * result of this stage turned upside down. Stages that treat each row on its own are their
+   * own mirror, which lets a vertical flip be moved in front of them.
+   * @return the mirrored stage.
+   * @throws UnsupportedOperationException if the stage cannot be mirrored.
+   */
+  RowStage mirrored() throws UnsupportedOperationException;
+}
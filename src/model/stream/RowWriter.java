@@ -0,0 +1,29 @@
+package model.stream;
+
+/**
+ * Represents a destination for the rows of an image, written from the top row to the bottom
+ * row, such as an image file being written as its rows are computed.
+ */
+public interface RowWriter extends AutoCloseable {
+  /**
+   * Starts the image, before any row is written.
+   * @param width the width of the image in pixels.
+   * @param height the height of the image in pixels.
+   * @throws IllegalStateException if the image cannot be started.
+   */
+  void begin(int width, int height) throws IllegalStateException;
+
+  /**
+   * Writes the next row of the image.
+   * @param row the packed 0xRRGGBB values of the row, starting at index 0.
+   * @throws IllegalStateException if the row cannot be written.
+   */
+  void writeRow(int[] row) throws IllegalStateException;
+
+  /**
+   * Finishes the image and releases the resources held by this writer.
+   * @throws IllegalStateException if the image cannot be finished.
+   */
+  @Override
+  void close() throws IllegalStateException;
+}
@@ -0,0 +1,430 @@
+package model.stream;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import model.Component;
+import model.Flip;
+import model.ImageEditorModel;
+import model.PackedImage;
+import model.Pixel;
+import model.colortransform.Greyscale;
+import model.colortransform.Sepia;
+import model.filters.Blur;
+import model.filters.ConvolutionEngine;
+import model.filters.Sharpen;
+import model.pointop.ChannelLut;
+import model.pointop.ComponentOp;
+import model.pointop.MatrixOp;
+import model.pointop.PointOp;
+import model.pointop.PointOpChain;
+
+/**
+ * Represents an image editor that never holds a whole image. Each layer is remembered as the
+ * source it was loaded from and the stages of operations leading from it, and a layer's rows are
+ * only computed when the layer is written out, one row at a time from the top down, with every
+ * stage holding just the rows it needs. Images far larger than the heap can be edited this way,
+ * as long as their sources can be read a row at a time, as PPM files can.
+ *
+ * <p>Point operations in a row are combined into one stage, which takes a single pass over each
+ * row. Blur and sharpen hold a window of as many rows as their kernels are tall. Horizontal flips
+ * reverse each row on its own. Vertical flips need the bottom row of an image first, so they are
+ * moved to the source of the layer, which is then read from the bottom up, and the stages after
+ * them are mirrored, with blur and sharpen kernels turned upside down. This needs a source whose
+ * rows can be read in any order, as those of binary PPM files can but those of plain ones can't.
+ */
+public class StreamEditorModel implements ImageEditorModel {
+  private final Map<String, StreamLayer> layers;
+
+  /**
+   * Constructs an editor with no layers.
+   */
+  public StreamEditorModel() {
+    this.layers = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Stores a layer under the given name whose rows are read from the readers the given opener
+   * returns. The opener is called once each time the layer, or a layer made from it, is read.
+   * @param opener opens a new reader of the layer's rows.
+   * @param name the name to store the layer under.
+   * @throws IllegalArgumentException if either argument is null.
+   */
+  public void acceptNewSource(Supplier<RowReader> opener, String name)
+      throws IllegalArgumentException {
+    this.acceptNewSource(opener, null, name);
+  }
+
+  /**
+   * Stores a layer under the given name whose rows are read from the readers the given opener
+   * returns, and which is read from the given source, such as the path of a file. The opener is
+   * called once each time the layer, or a layer made from it, is read, so the source must not
+   * change while any layer is read from it.
+   * @param opener opens a new reader of the layer's rows.
+   * @param source names what the layer is read from, or null if it is read from no source that
+   *        may change.
+   * @param name the name to store the layer under.
+   * @throws IllegalArgumentException if the opener or name is null.
+   */
+  public void acceptNewSource(Supplier<RowReader> opener, String source, String name)
+      throws IllegalArgumentException {
+    if (opener == null || name == null) {
+      throw new IllegalArgumentException("Source or name accepted may not be null");
+    }
+    this.layers.put(name, new StreamLayer(opener, source, Collections.emptyList()));
+  }
+
+  /**
+   * Checks if any layer is read from the given source, so that it would read different rows if
+   * the source changed.
+   * @param source the source.
+   * @return true if a layer, or a layer made from it, is read from the source.
+   * @throws IllegalArgumentException if the source is null.
+   */
+  public boolean isReadFrom(String source) throws IllegalArgumentException {
+    if (source == null) {
+      throw new IllegalArgumentException("Source must not be null");
+    }
+    return this.layers.values().stream().anyMatch(layer -> source.equals(layer.source));
+  }
+
+  /**
+   * Reads every layer that is read from the given source from another source holding the same
+   * rows instead, such as a copy of the file it was read from, so that the first source may
+   * change.
+   * @param source the source to stop reading from.
+   * @param opener opens a new reader of the rows of the other source.
+   * @param replacement names the other source.
+   * @throws IllegalArgumentException if any argument is null.
+   */
+  public void replaceSource(String source, Supplier<RowReader> opener, String replacement)
+      throws IllegalArgumentException {
+    if (source == null || opener == null || replacement == null) {
+      throw new IllegalArgumentException("Sources and opener must not be null");
+    }
+    for (Map.Entry<String, StreamLayer> entry : this.layers.entrySet()) {
+      StreamLayer layer = entry.getValue();
+      if (source.equals(layer.source)) {
+        entry.setValue(new StreamLayer(opener, replacement, layer.stages));
+      }
+    }
+  }
+
+  @Override
+  public void acceptNewImage(PackedImage image, String name) throws IllegalArgumentException {
+    if (image == null || name == null) {
+      throw new IllegalArgumentException("Image or name accepted may not be null");
+    }
+    this.acceptNewSource(() -> new ImageReader(image), name);
+  }
+
+  /**
+   * Opens a reader of the rows of the layer stored under the given name, through every stage
+   * leading to it. The reader must be closed once it is no longer needed.
+   * @param name the name of the layer.
+   * @return a reader of the layer's rows.
+   * @throws IllegalStateException if there is no layer with the name, or its source cannot be
+   *         opened.
+   */
+  public RowReader open(String name) throws IllegalStateException {
+    StreamLayer layer = this.get(name);
+    RowReader reader = layer.opener.get();
+    for (RowStage stage : layer.stages) {
+      reader = stage.open(reader);
+    }
+    return reader;
+  }
+
+  /**
+   * Computes the rows of the layer stored under the given name one at a time and writes each to
+   * the given writer as soon as it is computed. The writer is started but not closed.
+   * @param name the name of the layer.
+   * @param writer the writer to write the rows to.
+   * @throws IllegalArgumentException if the writer is null.
+   * @throws IllegalStateException if there is no layer with the name, or a row cannot be read
+   *         or written.
+   */
+  public void write(String name, RowWriter writer)
+      throws IllegalArgumentException, IllegalStateException {
+    if (writer == null) {
+      throw new IllegalArgumentException("Writer must not be null");
+    }
+    try (RowReader reader = this.open(name)) {
+      writer.begin(reader.getWidth(), reader.getHeight());
+      int[] row = new int[reader.getWidth()];
+      for (int r = 0; r < reader.getHeight(); r++) {
+        reader.readRow(r, row);
+        writer.writeRow(row);
+      }
+    }
+  }
+
+  /**
+   * Computes the whole of the layer stored under the given name into memory.
+   * @param name the name of the layer.
+   * @return the layer's image.
+   * @throws IllegalStateException if there is no layer with the name, it cannot be read, or it
+   *         is too large to be held in memory.
+   */
+  @Override
+  public PackedImage releasePackedImage(String name) throws IllegalStateException {
+    try (RowReader reader = this.open(name)) {
+      PackedImage image;
+      try {
+        image = new PackedImage(reader.getWidth(), reader.getHeight());
+      } catch (IllegalArgumentException e) {
+        throw new IllegalStateException(e.getMessage());
+      }
+      int width = reader.getWidth();
+      int[] row = new int[width];
+      for (int r = 0; r < reader.getHeight(); r++) {
+        reader.readRow(r, row);
+        System.arraycopy(row, 0, image.getData(), r * width, width);
+      }
+      return image;
+    }
+  }
+
+  @Override
+  public Pixel[][] releaseImage(String name) throws IllegalStateException {
+    return this.releasePackedImage(name).toPixels();
+  }
+
+  private StreamLayer get(String name) throws IllegalStateException {
+    StreamLayer layer = this.layers.get(name);
+    if (layer == null) {
+      throw new IllegalStateException("Image \"" + name + "\" not found in saved list.");
+    }
+    return layer;
+  }
+
+  /**
+   * Stores a layer under the to name that applies the given stage to the layer stored under the
+   * from name.
+   * @throws IllegalStateException if there is no layer with the from name.
+   */
+  private void addStage(RowStage stage, String fromImageName, String toImageName)
+      throws IllegalStateException {
+    StreamLayer from = this.get(fromImageName);
+    List<RowStage> stages = new ArrayList<>(from.stages);
+    stages.add(stage);
+    this.layers.put(toImageName, new StreamLayer(from.opener, from.source, stages));
+  }
+
+  /**
+   * Stores a layer under the to name that applies the given point operation to the layer stored
+   * under the from name, extending that layer's last stage if it is a point operation stage.
+   * @throws IllegalStateException if there is no layer with the from name.
+   */
+  private void addPointOp(PointOp op, String fromImageName, String toImageName)
+      throws IllegalStateException {
+    StreamLayer from = this.get(fromImageName);
+    int last = from.stages.size() - 1;
+    if (last >= 0 && from.stages.get(last) instanceof PointOpStage) {
+      List<RowStage> stages = new ArrayList<>(from.stages);
+      stages.set(last, ((PointOpStage) stages.get(last)).then(op));
+      this.layers.put(toImageName, new StreamLayer(from.opener, from.source, stages));
+    } else {
+      this.addStage(new PointOpStage(PointOpChain.of(op)), fromImageName, toImageName);
+    }
+  }
+
+  private static void checkNames(String fromImageName, String toImageName)
+      throws IllegalArgumentException {
+    if (fromImageName == null || toImageName == null) {
+      throw new IllegalArgumentException("The image from and destination names must not be null.");
+    }
+  }
+
+  @Override
+  public void component(Component type, String fromImageName, String toImageName)
+      throws IllegalArgumentException, IllegalStateException {
+    if (type == null) {
+      throw new IllegalArgumentException("Component type and image names must not be null");
+    }
+    checkNames(fromImageName, toImageName);
+    this.addPointOp(new ComponentOp(type), fromImageName, toImageName);
+  }
+
+  /**
+   * Flips the image horizontally or vertically.
+   * @param type the direction of the flip.
+   * @param fromImageName the image to conduct this operation on.
+   * @param toImageName the new image name to save the resulting image to.
+   * @throws IllegalArgumentException if any argument is null.
+   * @throws IllegalStateException if there is no layer with the from name, or its source cannot
+   *         be opened.
+   * @throws UnsupportedOperationException if the flip is vertical and the rows of the layer's
+   *         source cannot be read in any order.
+   */
+  @Override
+  public void flip(Flip type, String fromImageName, String toImageName)
+      throws IllegalArgumentException, IllegalStateException, UnsupportedOperationException {
+    if (type == null) {
+      throw new IllegalArgumentException("Flip type must not be null");
+    }
+    checkNames(fromImageName, toImageName);
+    if (type == Flip.HORIZONTAL) {
+      this.addStage(new HorizontalFlipStage(), fromImageName, toImageName);
+    } else {
+      this.flipVertically(fromImageName, toImageName);
+    }
+  }
+
+  /**
+   * Stores a layer under the to name that flips the layer stored under the from name vertically,
+   * by reading its source from the bottom up and mirroring its stages. A layer whose source is
+   * already read from the bottom up goes back to reading it from the top down.
+   * @throws IllegalStateException if there is no layer with the from name, or its source cannot
+   *         be opened.
+   * @throws UnsupportedOperationException if the source is not random access, or a stage cannot
+   *         be mirrored.
+   */
+  private void flipVertically(String fromImageName, String toImageName)
+      throws IllegalStateException, UnsupportedOperationException {
+    StreamLayer from = this.get(fromImageName);
+    List<RowStage> stages = new ArrayList<>();
+    boolean flipped = !from.stages.isEmpty() && from.stages.get(0) instanceof VerticalFlipStage;
+    if (!flipped) {
+      try (RowReader reader = from.opener.get()) {
+        if (!reader.isRandomAccess()) {
+          throw new UnsupportedOperationException(
+              "Vertical flips cannot be streamed from plain PPM files");
+        }
+      }
+      stages.add(new VerticalFlipStage());
+    }
+    for (RowStage stage : from.stages.subList(flipped ? 1 : 0, from.stages.size())) {
+      stages.add(stage.mirrored());
+    }
+    this.layers.put(toImageName, new StreamLayer(from.opener, from.source, stages));
+  }
+
+  @Override
+  public void brighten(int value, String fromImageName, String toImageName)
+      throws IllegalArgumentException, IllegalStateException {
+    checkNames(fromImageName, toImageName);
+    this.addPointOp(ChannelLut.brighten(value), fromImageName, toImageName);
+  }
+
+  @Override
+  public void blur(String fromImageName, String toImageName) throws IllegalStateException {
+    checkNames(fromImageName, toImageName);
+    this.addStage(new ConvolutionStage(new ConvolutionEngine(Blur.getKernel())), fromImageName,
+        toImageName);
+  }
+
+  @Override
+  public void sharpen(String fromImageName, String toImageName) throws IllegalStateException {
+    checkNames(fromImageName, toImageName);
+    this.addStage(new ConvolutionStage(new ConvolutionEngine(Sharpen.getKernel())), fromImageName,
+        toImageName);
+  }
+
+  @Override
+  public void greyscale(String fromImageName, String toImageName) throws IllegalStateException {
+    checkNames(fromImageName, toImageName);
+    this.addPointOp(new MatrixOp(Greyscale.MATRIX), fromImageName, toImageName);
+  }
+
+  @Override
+  public void sepia(String fromImageName, String toImageName) throws IllegalStateException {
+    checkNames(fromImageName, toImageName);
+    this.addPointOp(new MatrixOp(Sepia.MATRIX), fromImageName, toImageName);
+  }
+
+  @Override
+  public void gamma(double gamma, String fromImageName, String toImageName)
+      throws IllegalArgumentException, IllegalStateException {
+    checkNames(fromImageName, toImageName);
+    this.addPointOp(ChannelLut.gamma(gamma), fromImageName, toImageName);
+  }
+
+  @Override
+  public void levels(int black, int white, String fromImageName, String toImageName)
+      throws IllegalArgumentException, IllegalStateException {
+    checkNames(fromImageName, toImageName);
+    this.addPointOp(ChannelLut.levels(black, white), fromImageName, toImageName);
+  }
+
+  @Override
+  public void contrast(double factor, String fromImageName, String toImageName)
+      throws IllegalArgumentException, IllegalStateException {
+    checkNames(fromImageName, toImageName);
+    this.addPointOp(ChannelLut.contrast(factor), fromImageName, toImageName);
+  }
+
+  @Override
+  public void invert(String fromImageName, String toImageName) throws IllegalStateException {
+    checkNames(fromImageName, toImageName);
+    this.addPointOp(ChannelLut.invert(), fromImageName, toImageName);
+  }
+
+  @Override
+  public void threshold(int level, String fromImageName, String toImageName)
+      throws IllegalArgumentException, IllegalStateException {
+    checkNames(fromImageName, toImageName);
+    this.addPointOp(ChannelLut.threshold(level), fromImageName, toImageName);
+  }
+
+  @Override
+  public String[] getListOfLayers() {
+    return this.layers.keySet().toArray(new String[0]);
+  }
+
+  /**
+   * Represents a layer as the opener of its source, the name of the source if it may change, and
+   * the stages applied to the source's rows, in order.
+   */
+  private static class StreamLayer {
+    private final Supplier<RowReader> opener;
+    private final String source;
+    private final List<RowStage> stages;
+
+    private StreamLayer(Supplier<RowReader> opener, String source, List<RowStage> stages) {
+      this.opener = opener;
+      this.source = source;
+      this.stages = Collections.unmodifiableList(stages);
+    }
+  }
+
+  /**
+   * Reads the rows of an image held in memory.
+   */
+  private static class ImageReader implements RowReader {
+    private final PackedImage image;
+
+    private ImageReader(PackedImage image) {
+      this.image = image;
+    }
+
+    @Override
+    public int getWidth() {
+      return this.image.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+      return this.image.getHeight();
+    }
+
+    @Override
+    public void readRow(int row, int[] dst) throws IllegalStateException {
+      this.image.readRow(row, dst);
+    }
+
+    @Override
+    public boolean isRandomAccess() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+      // Nothing is held but the image itself
+    }
+  }
+}
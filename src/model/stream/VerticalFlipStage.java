@@ -0,0 +1,37 @@
+package model.stream;
+
+/**
+ * Represents a vertical flip of a stream, which reads the rows of its input from the bottom up.
+ * Its input must be a random access reader, such as the reader of a binary PPM file, so a
+ * vertical flip is applied directly to the source of a layer, with the stages after it mirrored.
+ */
+public class VerticalFlipStage implements RowStage {
+  @Override
+  public RowStage mirrored() {
+    return this;
+  }
+
+  /**
+   * Opens a reader for the rows of the given reader in reverse order.
+   * @param upstream the reader of the image to flip.
+   * @return the reader of the flipped image.
+   * @throws IllegalArgumentException if the upstream reader is null or not random access.
+   */
+  @Override
+  public RowReader open(RowReader upstream) throws IllegalArgumentException {
+    if (upstream != null && !upstream.isRandomAccess()) {
+      throw new IllegalArgumentException("Rows to flip vertically must be random access");
+    }
+    return new FilteredReader(upstream) {
+      @Override
+      public void readRow(int row, int[] dst) throws IllegalStateException {
+        this.upstream.readRow(this.getHeight() - row - 1, dst);
+      }
+
+      @Override
+      public boolean isRandomAccess() {
+        return true;
+      }
+    };
+  }
+}
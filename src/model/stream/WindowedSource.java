@@ -0,0 +1,55 @@
+package model.stream;
+
+import model.RowSource;
+
+/**
+ * Keeps the last few rows read from a stream, so that a convolution can read each input row
+ * as many times as its kernel needs while the stream itself is read once, in order. Rows are
+ * pulled from the stream as they are first asked for, and a row can be read again until the
+ * window has moved past it.
+ */
+class WindowedSource implements RowSource {
+  private final RowReader upstream;
+  private final int[][] rows;
+  private final int width;
+  private int next;
+
+  /**
+   * Constructs a window of the given number of rows over the given stream.
+   * @param upstream the stream to read rows from.
+   * @param size the number of rows to keep.
+   */
+  WindowedSource(RowReader upstream, int size) {
+    this.upstream = upstream;
+    this.width = upstream.getWidth();
+    this.rows = new int[size][this.width];
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.upstream.getHeight();
+  }
+
+  /**
+   * Copies the given row of the stream into the array, reading the stream up to it first.
+   * @param row the row to read.
+   * @param dst the array to copy the row into, at least as long as the width.
+   * @throws IllegalStateException if the row has already left the window, or cannot be read.
+   */
+  @Override
+  public void readRow(int row, int[] dst) throws IllegalStateException {
+    if (row < this.next - this.rows.length || row >= this.getHeight()) {
+      throw new IllegalStateException("Row " + row + " is outside of the streamed window.");
+    }
+    while (this.next <= row) {
+      this.upstream.readRow(this.next, this.rows[this.next % this.rows.length]);
+      this.next++;
+    }
+    System.arraycopy(this.rows[row % this.rows.length], 0, dst, 0, this.width);
+  }
+}
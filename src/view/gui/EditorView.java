@@ -20,8 +20,9 @@ import javax.swing.JPanel;
 import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 
+import codec.RasterConverter;
 import model.ImageEditorState;
-import model.Pixel;
+import model.PackedImage;
 import model.histogram.DrawHistogram;
 import model.histogram.Histogram;
 import model.histogram.HistogramModel;
@@ -137,19 +138,11 @@ public class EditorView extends JFrame {
     this.filter.addActionListener(a);
   }
 
-  protected void drawImage(Pixel[][] image) {
+  protected void drawImage(PackedImage image) {
     this.hm.setImage(image);
     this.rightPanel.invalidate();
     this.rightPanel.repaint();
-    BufferedImage img = new BufferedImage(image[0].length, image.length, 1);
-
-    for (int i = 0; i < image.length; i++) {
-      for (int j = 0; j < image[i].length; j++) {
-        Pixel p = image[i][j];
-        int color = (p.getRed() << 16) | (p.getGreen() << 8) | p.getBlue();
-        img.setRGB(j, i, color);
-      }
-    }
+    BufferedImage img = RasterConverter.toBufferedImage(image);
 
     JLabel picLabel = new JLabel(new ImageIcon(img));
     JScrollPane scrollPane = new JScrollPane(picLabel);
@@ -46,6 +46,6 @@ public class SimpleEditorGUIView implements ImageEditorGUIView {
 
   @Override
   public void drawImage(String name) {
-    this.ev.drawImage(this.state.releaseImage(name));
+    this.ev.drawImage(this.state.releasePackedImage(name));
   }
 }
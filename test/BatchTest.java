@@ -0,0 +1,434 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import codec.PPMReader;
+import codec.PPMWriter;
+import codec.ImageIOCodec;
+import controller.jobs.AdmissionController;
+import controller.jobs.BatchRunner;
+import controller.jobs.JobClient;
+import controller.jobs.JobResult;
+import controller.jobs.JobServer;
+import controller.jobs.ScriptJob;
+import controller.jobs.WatchFolder;
+import controller.script.StagedScheduler;
+import model.PackedImage;
+import model.SimpleEditorModel;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the controller.jobs package.
+ */
+public class BatchTest {
+  private static final String TEMPLATE = "load {input} img\nblur img img\n"
+      + "save {outdir}/{name}-blur.{ext} img\n";
+
+  private File in;
+  private File out;
+
+  @Before
+  public void setUp() throws IOException {
+    this.in = Files.createTempDirectory("batch-in").toFile();
+    this.out = new File(Files.createTempDirectory("batch-out").toFile(), "nested");
+  }
+
+  @After
+  public void tearDown() {
+    for (File dir : new File[] {this.in, this.out, this.out.getParentFile()}) {
+      File[] files = dir.listFiles();
+      if (files != null) {
+        for (File file : files) {
+          file.delete();
+        }
+      }
+      dir.delete();
+    }
+  }
+
+  @Test
+  public void testScriptFromTemplate() {
+    ScriptJob job = new ScriptJob("load {input} a\nsave {output} a\nsave {outdir}/{name}.{ext} a",
+        new File("in", "photo.png"), new File("out"));
+    String sep = File.separator;
+    assertEquals("load in" + sep + "photo.png a\nsave out" + sep + "photo.png a\n"
+        + "save out/photo.png a\nq\n", job.getScript());
+    assertEquals("load x a\nq\n", new ScriptJob("load x a\nq\n", new File("x"), new File("y"))
+        .getScript());
+  }
+
+  @Test
+  public void testRunsEveryImage() throws IOException {
+    PackedImage[] images = new PackedImage[5];
+    for (int i = 0; i < images.length; i++) {
+      images[i] = FilterTest.randomImage(30 + i, 20, 120 + i);
+      PPMWriter.writeBinary(images[i], new File(this.in, "img" + i + ".ppm").getPath());
+    }
+    Files.write(new File(this.in, "bad.ppm").toPath(), "P6 2 2 255\n".getBytes());
+    Files.write(new File(this.in, "notes.txt").toPath(), "not an image".getBytes());
+
+    List<ScriptJob> jobs = ScriptJob.forDirectory(TEMPLATE, this.in, this.out);
+    assertEquals(6, jobs.size());
+    // A budget smaller than any image, so the jobs are admitted one at a time
+    BatchRunner runner = new BatchRunner(3, 1);
+    List<JobResult> results = runner.run(jobs);
+    assertEquals(6, runner.getMetrics().get(0).getCompleted());
+    // Loading, blurring and saving each image runs on the workers, except for the one that fails
+    assertTrue(runner.getMetrics().get(1).getCompleted() >= 5);
+
+    assertEquals("bad.ppm", results.get(0).getInput().getName());
+    assertFalse(results.get(0).isSuccess());
+    assertEquals(3, results.get(0).getErrors());
+    assertTrue(results.get(0).toString().startsWith("FAILED"));
+    for (int i = 0; i < images.length; i++) {
+      JobResult result = results.get(i + 1);
+      assertTrue(result.toString(), result.isSuccess());
+      assertTrue(result.getNanos() > 0);
+      SimpleEditorModel model = new SimpleEditorModel();
+      model.acceptNewImage(images[i], "a");
+      model.blur("a", "a");
+      assertArrayEquals(model.releasePackedImage("a").getData(),
+          PPMReader.read(new File(this.out, "img" + i + "-blur.ppm").getPath()).getData());
+    }
+  }
+
+  @Test
+  public void testPipelineMatchesLineByLine() throws IOException {
+    for (int i = 0; i < 4; i++) {
+      ImageIOCodec.write(FilterTest.randomImage(25 + i, 15, 180 + i),
+          new File(this.in, "img" + i + ".png").getPath());
+    }
+    String template = TEMPLATE + "load {outdir}/{name}-blur.png back\nsepia back back\n"
+        + "save {outdir}/{name}-sepia.png back\nsharpen img x\n";
+    List<ScriptJob> jobs = ScriptJob.forDirectory(template, this.in, this.out);
+    BatchRunner runner = new BatchRunner(2, 1L << 30, 8, new StagedScheduler(1, 1, 1));
+    List<JobResult> results = runner.run(jobs);
+    assertEquals(5, runner.getMetrics().size());
+    for (int i = 0; i < jobs.size(); i++) {
+      assertTrue(results.get(i).toString(), results.get(i).isSuccess());
+      PackedImage sepia = ImageIOCodec.read(new File(this.out, "img" + i + "-sepia.png")
+          .getPath());
+      JobResult expected = new BatchRunner(1, 1).runJob(jobs.get(i));
+      assertEquals(expected.getTranscript(), results.get(i).getTranscript());
+      assertArrayEquals(ImageIOCodec.read(new File(this.out, "img" + i + "-sepia.png")
+          .getPath()).getData(), sepia.getData());
+    }
+    // Every job loads, processes and saves once, as its second load waits for its first save
+    assertEquals(4, runner.getMetrics().get(1).getCompleted());
+    assertEquals(4, runner.getMetrics().get(3).getCompleted());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testMissingDirectory() {
+    ScriptJob.forDirectory(TEMPLATE, new File(this.in, "missing"), this.out);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoWorkers() {
+    new BatchRunner(0, 1);
+  }
+
+  @Test
+  public void testServerRunsJobsFromManyClients() throws Exception {
+    PackedImage[] images = new PackedImage[6];
+    for (int i = 0; i < images.length; i++) {
+      images[i] = FilterTest.randomImage(20 + i, 10, 140 + i);
+      PPMWriter.writeBinary(images[i], new File(this.in, "img" + i + ".ppm").getPath());
+    }
+    ExecutorService clients = Executors.newFixedThreadPool(3);
+    BatchRunner runner = new BatchRunner(2, 1L << 30);
+    try (JobServer server = new JobServer(0, runner)) {
+      server.start();
+      List<Future<List<JobResult>>> futures = new ArrayList<>();
+      for (int c = 0; c < 3; c++) {
+        int first = c * 2;
+        futures.add(clients.submit(() -> {
+          List<JobResult> results = new ArrayList<>();
+          try (JobClient client = new JobClient(server.getPort())) {
+            for (int i = first; i < first + 2; i++) {
+              results.add(client.submit(TEMPLATE, new File(this.in, "img" + i + ".ppm"),
+                  this.out));
+            }
+          }
+          return results;
+        }));
+      }
+      for (Future<List<JobResult>> future : futures) {
+        for (JobResult result : future.get()) {
+          assertTrue(result.toString(), result.isSuccess());
+          assertEquals(new BatchRunner().runJob(new ScriptJob(TEMPLATE, result.getInput(),
+              this.out)).getTranscript(), result.getTranscript());
+        }
+      }
+      try (JobClient client = new JobClient(server.getPort())) {
+        List<String> stats = client.stats();
+        assertEquals(3, stats.size());
+        assertTrue(stats.get(0), stats.get(0).startsWith("jobs: 0 queued, 0 running, 6 done"));
+        assertTrue(stats.get(1), stats.get(1).startsWith("cpu: 0 queued, 0 running"));
+        assertEquals("memory: 0.0 of 1073.7 MB in use, 0 of 256 queued, 0 rejected",
+            stats.get(2));
+      }
+    } finally {
+      clients.shutdownNow();
+    }
+    for (int i = 0; i < images.length; i++) {
+      SimpleEditorModel model = new SimpleEditorModel();
+      model.acceptNewImage(images[i], "a");
+      model.blur("a", "a");
+      assertArrayEquals(model.releasePackedImage("a").getData(),
+          PPMReader.read(new File(this.out, "img" + i + "-blur.ppm").getPath()).getData());
+    }
+  }
+
+  @Test
+  public void testServerIsNotHeldUpByIdleClients() throws Exception {
+    PPMWriter.writeBinary(FilterTest.randomImage(12, 8, 146),
+        new File(this.in, "img.ppm").getPath());
+    BatchRunner runner = new BatchRunner(1, 1L << 30);
+    List<JobClient> idle = new ArrayList<>();
+    // A daemon thread, so a client left waiting does not keep the tests from exiting
+    ExecutorService client = Executors.newSingleThreadExecutor(task -> {
+      Thread thread = new Thread(task);
+      thread.setDaemon(true);
+      return thread;
+    });
+    try (JobServer server = new JobServer(0, runner)) {
+      server.start();
+      // More idle connections than there are platform threads for jobs
+      for (int i = 0; i < 8; i++) {
+        idle.add(new JobClient(server.getPort()));
+      }
+      Future<JobResult> result = client.submit(() -> {
+        try (JobClient busy = new JobClient(server.getPort())) {
+          return busy.submit(TEMPLATE, new File(this.in, "img.ppm"), this.out);
+        }
+      });
+      assertTrue(result.get(5, TimeUnit.SECONDS).isSuccess());
+      assertEquals(3, idle.get(0).stats().size());
+    } finally {
+      client.shutdownNow();
+      for (JobClient open : idle) {
+        open.close();
+      }
+    }
+  }
+
+  @Test
+  public void testServerReportsFailedCommands() {
+    try (JobServer server = new JobServer(0, new BatchRunner(1, 1));
+         JobClient client = new JobClient(server.getPort())) {
+      server.start();
+      JobResult result = client.submit(TEMPLATE, new File(this.in, "missing.ppm"), this.out);
+      assertFalse(result.isSuccess());
+      assertEquals(3, result.getErrors());
+      assertTrue(result.getTranscript().contains("not found"));
+    }
+  }
+
+  @Test
+  public void testServerRejectsBadRequest() throws IOException {
+    try (JobServer server = new JobServer(0, new BatchRunner(1, 1));
+         Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+      server.start();
+      socket.getOutputStream().write("blur a b\n".getBytes(StandardCharsets.UTF_8));
+      BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+          StandardCharsets.UTF_8));
+      assertTrue(in.readLine().startsWith(JobServer.ERROR));
+      assertEquals(null, in.readLine());
+    }
+  }
+
+  @Test
+  public void testEstimateFromHeaderAndScript() throws IOException {
+    PackedImage image = FilterTest.randomImage(30, 20, 160);
+    PPMWriter.writeBinary(image, new File(this.in, "a.ppm").getPath());
+    ImageIOCodec.write(image, new File(this.in, "a.png").getPath());
+    for (String name : new String[] {"a.ppm", "a.png"}) {
+      File input = new File(this.in, name);
+      // One layer made by the script and one being computed
+      assertEquals(2 * 4 * 600, AdmissionController.estimateBytes(
+          new ScriptJob(TEMPLATE, input, this.out)));
+      // Three layers made by the script, as a layer made twice is only held once
+      assertEquals(4 * 4 * 600, AdmissionController.estimateBytes(new ScriptJob(
+          "load {input} a\nblur a b\nsepia b c\nblur c b\nsave {output} b", input, this.out)));
+    }
+    // Guessed from the size of the file when its header cannot be read
+    assertEquals(2 * 10, AdmissionController.estimateBytes(
+        new ScriptJob(TEMPLATE, new File(this.in, "missing.ppm"), this.out)));
+  }
+
+  @Test
+  public void testAdmissionQueuesInOrderAndRejectsWhenFull() throws Exception {
+    AdmissionController admission = new AdmissionController(100, 2);
+    admission.admit(60, false);
+    ExecutorService waiters = Executors.newFixedThreadPool(2);
+    try {
+      Future<?> large = waiters.submit(() -> {
+        admission.admit(60, false);
+        return null;
+      });
+      while (admission.getQueueDepth() < 1) {
+        Thread.sleep(1);
+      }
+      // Fits in the budget, but waits for the job that came before it
+      Future<?> small = waiters.submit(() -> {
+        admission.admit(10, false);
+        return null;
+      });
+      while (admission.getQueueDepth() < 2) {
+        Thread.sleep(1);
+      }
+      assertEquals(60, admission.getAdmittedBytes());
+      try {
+        admission.admit(1, false);
+        fail("Queue is full.");
+      } catch (IllegalStateException e) {
+        assertTrue(e.getMessage(), e.getMessage().startsWith("Job rejected: 2 jobs"));
+      }
+      assertEquals(1, admission.getRejected());
+
+      admission.release(60);
+      large.get(10, TimeUnit.SECONDS);
+      small.get(10, TimeUnit.SECONDS);
+      assertEquals(70, admission.getAdmittedBytes());
+      assertEquals(0, admission.getQueueDepth());
+    } finally {
+      waiters.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testServerRejectsJobsWhenQueueIsFull() throws IOException {
+    PPMWriter.writeBinary(FilterTest.randomImage(10, 10, 170),
+        new File(this.in, "a.ppm").getPath());
+    BatchRunner runner = new BatchRunner(1, 1, 0);
+    try (JobServer server = new JobServer(0, runner);
+         JobClient client = new JobClient(server.getPort())) {
+      server.start();
+      // Takes the whole budget, so a job would have to wait, and no job may wait
+      runner.getAdmission().admit(1, false);
+      JobResult rejected = client.submit(TEMPLATE, new File(this.in, "a.ppm"), this.out);
+      assertFalse(rejected.isSuccess());
+      assertTrue(rejected.getFailure(), rejected.getFailure().startsWith("Job rejected"));
+      assertFalse(new File(this.out, "a-blur.ppm").exists());
+
+      runner.getAdmission().release(1);
+      assertTrue(client.submit(TEMPLATE, new File(this.in, "a.ppm"), this.out).isSuccess());
+      assertTrue(new File(this.out, "a-blur.ppm").exists());
+    } catch (InterruptedException e) {
+      fail(e.toString());
+    }
+  }
+
+  @Test
+  public void testWatchRunsDroppedImagesOnce() throws Exception {
+    PackedImage before = FilterTest.randomImage(12, 9, 190);
+    PPMWriter.writeBinary(before, new File(this.in, "before.ppm").getPath());
+    BlockingQueue<JobResult> results = new LinkedBlockingQueue<>();
+    WatchFolder watcher = new WatchFolder(this.in, TEMPLATE, this.out, new BatchRunner(1, 1),
+        20, results::add);
+    Thread thread = new Thread(watcher::run);
+    thread.start();
+    try {
+      JobResult first = results.poll(10, TimeUnit.SECONDS);
+      assertEquals("before.ppm", first.getInput().getName());
+      assertTrue(first.toString(), first.isSuccess());
+
+      PackedImage dropped = FilterTest.randomImage(14, 11, 191);
+      PPMWriter.writeBinary(dropped, new File(this.in, "dropped.ppm").getPath());
+      Files.write(new File(this.in, "broken.ppm").toPath(), "P6 2 2 255\n".getBytes());
+      Files.write(new File(this.in, "notes.txt").toPath(), "not an image".getBytes());
+      List<String> names = new ArrayList<>();
+      for (int i = 0; i < 2; i++) {
+        JobResult result = results.poll(10, TimeUnit.SECONDS);
+        names.add(result.getInput().getName());
+        assertEquals(result.toString(), !result.getInput().getName().equals("broken.ppm"),
+            result.isSuccess());
+      }
+      assertTrue(names.containsAll(Arrays.asList("dropped.ppm", "broken.ppm")));
+      assertEquals(null, results.poll(200, TimeUnit.MILLISECONDS));
+
+      SimpleEditorModel model = new SimpleEditorModel();
+      model.acceptNewImage(dropped, "a");
+      model.blur("a", "a");
+      assertArrayEquals(model.releasePackedImage("a").getData(),
+          PPMReader.read(new File(this.out, "dropped-blur.ppm").getPath()).getData());
+      assertTrue(new File(this.in, WatchFolder.DONE_DIR + "/before.ppm").isFile());
+      assertTrue(new File(this.in, WatchFolder.DONE_DIR + "/dropped.ppm").isFile());
+      assertTrue(new File(this.in, WatchFolder.FAILED_DIR + "/broken.ppm").isFile());
+      assertTrue(new File(this.in, "notes.txt").isFile());
+      assertFalse(new File(this.in, "dropped.ppm").exists());
+    } finally {
+      watcher.close();
+      thread.join(10000);
+      this.deleteWatchFolders();
+    }
+    assertFalse(thread.isAlive());
+  }
+
+  @Test
+  public void testWatchDoesNotRerunUnfinishedImages() throws Exception {
+    File image = new File(this.in, "crashed.ppm");
+    PPMWriter.writeBinary(FilterTest.randomImage(12, 9, 192), image.getPath());
+    // Recorded as started by a watcher that stopped before it finished
+    Files.write(new File(this.in, WatchFolder.JOURNAL_FILE).toPath(), ("started\tcrashed.ppm\t"
+        + image.length() + "\t" + image.lastModified() + "\n").getBytes());
+    BlockingQueue<JobResult> results = new LinkedBlockingQueue<>();
+    WatchFolder watcher = new WatchFolder(this.in, TEMPLATE, this.out, new BatchRunner(1, 1),
+        20, results::add);
+    Thread thread = new Thread(watcher::run);
+    thread.start();
+    try {
+      JobResult result = results.poll(10, TimeUnit.SECONDS);
+      assertFalse(result.isSuccess());
+      assertTrue(result.getFailure(), result.getFailure().contains("not run again"));
+      assertFalse(new File(this.out, "crashed-blur.ppm").exists());
+      assertTrue(new File(this.in, WatchFolder.FAILED_DIR + "/crashed.ppm").isFile());
+    } finally {
+      watcher.close();
+      thread.join(10000);
+      this.deleteWatchFolders();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWatchIntoItself() {
+    new WatchFolder(this.in, TEMPLATE, new File(this.in, "."), new BatchRunner(1, 1), 0,
+        result -> { });
+  }
+
+  private void deleteWatchFolders() {
+    for (String name : new String[] {WatchFolder.DONE_DIR, WatchFolder.FAILED_DIR}) {
+      File[] files = new File(this.in, name).listFiles();
+      if (files != null) {
+        for (File file : files) {
+          file.delete();
+        }
+      }
+      new File(this.in, name).delete();
+    }
+  }
+}
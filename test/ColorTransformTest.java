@@ -0,0 +1,97 @@
+import org.junit.Test;
+
+import java.util.Random;
+
+import model.PackedImage;
+import model.colortransform.AColorTransform;
+import model.colortransform.Greyscale;
+import model.colortransform.Luma;
+import model.colortransform.MatrixTransform;
+import model.colortransform.Sepia;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the model.colortransform package. When the tests are run with the
+ * jdk.incubator.vector module and the vector kernel built from src-vector, these check the
+ * vector kernel, otherwise the scalar kernel.
+ */
+public class ColorTransformTest {
+  private static final float[][] GREYSCALE = {{0.2126f, 0.7152f, 0.0722f},
+      {0.2126f, 0.7152f, 0.0722f},
+      {0.2126f, 0.7152f, 0.0722f}};
+
+  /**
+   * Applies the matrix to the image one pixel at a time.
+   */
+  private static PackedImage reference(float[][] m, PackedImage image) {
+    PackedImage result = new PackedImage(image.getWidth(), image.getHeight());
+    for (int i = 0; i < image.getData().length; i++) {
+      int rgb = image.getData()[i];
+      float rX = PackedImage.red(rgb);
+      float gX = PackedImage.green(rgb);
+      float bX = PackedImage.blue(rgb);
+      float r = (m[0][0] * rX) + (m[0][1] * gX) + (m[0][2] * bX);
+      float g = (m[1][0] * rX) + (m[1][1] * gX) + (m[1][2] * bX);
+      float b = (m[2][0] * rX) + (m[2][1] * gX) + (m[2][2] * bX);
+      result.getData()[i] = PackedImage.pack(PackedImage.clamp(Math.round(r)),
+          PackedImage.clamp(Math.round(g)), PackedImage.clamp(Math.round(b)));
+    }
+    return result;
+  }
+
+  @Test
+  public void testKernelMatchesModule() {
+    boolean built = AColorTransform.class.getResource("VectorColorKernel.class") != null;
+    assertEquals(built && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent(),
+        AColorTransform.isVectorized());
+  }
+
+  @Test
+  public void testBuiltInTransforms() {
+    // 37 pixels per row leaves a remainder for any vector length
+    PackedImage image = FilterTest.randomImage(37, 19, 31);
+    assertArrayEquals(reference(GREYSCALE, image).getData(),
+        new Greyscale(image).transform().getData());
+    assertArrayEquals(reference(Sepia.MATRIX, image).getData(),
+        new Sepia(image).transform().getData());
+    assertArrayEquals(new Greyscale(image).transform().getData(),
+        new Luma(image).transform().getData());
+  }
+
+  @Test
+  public void testArbitraryMatrices() {
+    Random random = new Random(41);
+    PackedImage image = FilterTest.randomImage(53, 7, 42);
+    for (int n = 0; n < 50; n++) {
+      float scale = n < 25 ? 2 : 1e6f;
+      float[][] matrix = new float[3][3];
+      for (int i = 0; i < 3; i++) {
+        for (int j = 0; j < 3; j++) {
+          matrix[i][j] = (random.nextFloat() - 0.5f) * scale;
+        }
+      }
+      assertArrayEquals(reference(matrix, image).getData(),
+          new MatrixTransform(matrix, image).transform().getData());
+    }
+  }
+
+  @Test
+  public void testHalvesRoundUp() {
+    PackedImage image = new PackedImage(256, 1);
+    for (int i = 0; i < 256; i++) {
+      image.getData()[i] = PackedImage.pack(i, 255 - i, i);
+    }
+    float[][] matrix = {{0.5f, 0, 0}, {0, 1.5f, 0}, {0, 0, -0.5f}};
+    PackedImage result = new MatrixTransform(matrix, image).transform();
+    assertArrayEquals(reference(matrix, image).getData(), result.getData());
+    assertEquals(PackedImage.pack(1, 255, 0), result.getRGB(0, 1));
+    assertEquals(PackedImage.pack(2, 255, 0), result.getRGB(0, 3));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMatrixNotSquare() {
+    new MatrixTransform(new float[][] {{1, 0, 0}, {0, 1, 0}}, new PackedImage(1, 1));
+  }
+}
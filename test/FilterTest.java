@@ -0,0 +1,209 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import model.PackedImage;
+import model.filters.Blur;
+import model.filters.BorderMode;
+import model.filters.ConvolutionEngine;
+import model.filters.Sharpen;
+import model.parallel.RowExecutor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the model.filters package.
+ */
+public class FilterTest {
+  private static final float[][] BLUR = {{1f / 16f, 1f / 8f, 1f / 16f},
+      {1f / 8f, 1f / 4f, 1f / 8f},
+      {1f / 16f, 1f / 8f, 1f / 16f}};
+
+  static final float[][] SHARPEN = {
+      {-1f / 8f, -1f / 8f, -1f / 8f, -1f / 8f, -1f / 8f},
+      {-1f / 8f, 1f / 4f, 1f / 4f, 1f / 4f, -1f / 8f},
+      {-1f / 8f, 1f / 4f, 1f, 1f / 4f, -1f / 8f},
+      {-1f / 8f, 1f / 4f, 1f / 4f, 1f / 4f, -1f / 8f},
+      {-1f / 8f, -1f / 8f, -1f / 8f, -1f / 8f, -1f / 8f}};
+
+  /**
+   * Creates an image of the given size filled with repeatable pseudo-random colors.
+   */
+  static PackedImage randomImage(int width, int height, long seed) {
+    Random random = new Random(seed);
+    PackedImage image = new PackedImage(width, height);
+    for (int i = 0; i < image.getData().length; i++) {
+      image.getData()[i] = random.nextInt(0x1000000);
+    }
+    return image;
+  }
+
+  /**
+   * Applies the given kernel to the image by visiting every tap of every pixel, skipping taps
+   * outside of the image.
+   */
+  static PackedImage reference(float[][] kernel, PackedImage image) {
+    return reference(kernel, image, BorderMode.ZERO);
+  }
+
+  /**
+   * Applies the given kernel to the image by visiting every tap of every pixel, mapping taps
+   * outside of the image through the given border mode.
+   */
+  static PackedImage reference(float[][] kernel, PackedImage image, BorderMode border) {
+    PackedImage result = new PackedImage(image.getWidth(), image.getHeight());
+    for (int row = 0; row < image.getHeight(); row++) {
+      for (int col = 0; col < image.getWidth(); col++) {
+        double[] sum = new double[3];
+        for (int i = 0; i < kernel.length; i++) {
+          for (int j = 0; j < kernel[i].length; j++) {
+            int y = border.map(row + i - kernel.length / 2, image.getHeight());
+            int x = border.map(col + j - kernel[i].length / 2, image.getWidth());
+            if (y < 0 || x < 0) {
+              continue;
+            }
+            int rgb = image.getRGB(y, x);
+            sum[0] += kernel[i][j] * PackedImage.red(rgb);
+            sum[1] += kernel[i][j] * PackedImage.green(rgb);
+            sum[2] += kernel[i][j] * PackedImage.blue(rgb);
+          }
+        }
+        result.setRGB(row, col, PackedImage.pack(PackedImage.clamp((int) Math.round(sum[0])),
+            PackedImage.clamp((int) Math.round(sum[1])),
+            PackedImage.clamp((int) Math.round(sum[2]))));
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testBlurIsSeparable() {
+    assertTrue(new Blur(new PackedImage(1, 1)).isSeparable());
+    assertFalse(new Sharpen(new PackedImage(1, 1)).isSeparable());
+  }
+
+  @Test
+  public void testSeparableBlurMatchesDirectConvolution() {
+    PackedImage image = randomImage(41, 29, 7);
+    PackedImage expected = reference(BLUR, image);
+    PackedImage actual = new Blur(image).filter();
+    for (int i = 0; i < expected.getData().length; i++) {
+      assertEquals(expected.getData()[i], actual.getData()[i]);
+    }
+  }
+
+  @Test
+  public void testSharpenMatchesDirectConvolution() {
+    PackedImage image = randomImage(23, 37, 5);
+    PackedImage expected = reference(SHARPEN, image);
+    PackedImage actual = new Sharpen(image).filter();
+    for (int i = 0; i < expected.getData().length; i++) {
+      assertEquals(expected.getData()[i], actual.getData()[i]);
+    }
+  }
+
+  @Test
+  public void testKernelsCannotBeChanged() {
+    PackedImage image = randomImage(13, 11, 9);
+    float[][] kernel = Blur.getKernel();
+    assertTrue(Arrays.deepEquals(BLUR, kernel));
+    ConvolutionEngine engine = new ConvolutionEngine(kernel);
+    kernel[1][1] = 5f;
+    Sharpen.getKernel()[2][2] = 5f;
+    assertTrue(Arrays.deepEquals(BLUR, Blur.getKernel()));
+    assertTrue(Arrays.deepEquals(SHARPEN, Sharpen.getKernel()));
+    assertArrayEquals(reference(BLUR, image).getData(),
+        engine.apply(image, new RowExecutor(1)).getData());
+    assertArrayEquals(reference(BLUR, image).getData(),
+        new ConvolutionEngine(Blur.getKernel(), BorderMode.ZERO, false)
+            .apply(image, new RowExecutor(1)).getData());
+  }
+
+  @Test
+  public void testEngineRowsInAnyOrder() {
+    PackedImage image = randomImage(17, 13, 9);
+    ConvolutionEngine engine = new ConvolutionEngine(SHARPEN);
+    PackedImage expected = engine.apply(image, new RowExecutor(1));
+    int[] rows = new int[image.getWidth() * image.getHeight()];
+    try (ConvolutionEngine.Cursor cursor = engine.open(image)) {
+      for (int row = image.getHeight() - 1; row >= 0; row -= 2) {
+        cursor.filterRow(row, rows, row * image.getWidth());
+      }
+      for (int row = image.getHeight() - 2; row >= 0; row -= 2) {
+        cursor.filterRow(row, rows, row * image.getWidth());
+      }
+    }
+    assertArrayEquals(expected.getData(), rows);
+  }
+
+  @Test
+  public void testBlurSinglePixel() {
+    PackedImage image = new PackedImage(1, 1, new int[] {PackedImage.pack(160, 80, 40)});
+    assertEquals(PackedImage.pack(40, 20, 10), new Blur(image).filter().getRGB(0, 0));
+  }
+
+  @Test
+  public void testFilterLeavesSourceUnchanged() {
+    PackedImage image = randomImage(9, 9, 3);
+    PackedImage copy = image.copy();
+    new Blur(image).filter();
+    new Sharpen(image).filter();
+    for (int i = 0; i < copy.getData().length; i++) {
+      assertEquals(copy.getData()[i], image.getData()[i]);
+    }
+  }
+
+  @Test
+  public void testBorderModeMap() {
+    assertEquals(-1, BorderMode.ZERO.map(-1, 5));
+    assertEquals(3, BorderMode.ZERO.map(3, 5));
+    assertEquals(0, BorderMode.CLAMP.map(-2, 5));
+    assertEquals(4, BorderMode.CLAMP.map(6, 5));
+    assertEquals(1, BorderMode.MIRROR.map(-1, 5));
+    assertEquals(2, BorderMode.MIRROR.map(-2, 5));
+    assertEquals(3, BorderMode.MIRROR.map(5, 5));
+    assertEquals(2, BorderMode.MIRROR.map(6, 5));
+    assertEquals(0, BorderMode.MIRROR.map(-3, 1));
+    assertEquals(4, BorderMode.WRAP.map(-1, 5));
+    assertEquals(0, BorderMode.WRAP.map(5, 5));
+  }
+
+  @Test
+  public void testBorderModesMatchReference() {
+    PackedImage[] images = {randomImage(19, 11, 21), randomImage(2, 3, 22),
+        randomImage(1, 7, 23)};
+    for (BorderMode border : BorderMode.values()) {
+      for (PackedImage image : images) {
+        assertArrayEquals(reference(BLUR, image, border).getData(),
+            new Blur(image, border).filter().getData());
+        assertArrayEquals(reference(SHARPEN, image, border).getData(),
+            new Sharpen(image, border).filter().getData());
+      }
+    }
+  }
+
+  @Test
+  public void testClampBlurKeepsFlatImage() {
+    int gray = PackedImage.pack(100, 100, 100);
+    PackedImage image = new PackedImage(6, 4);
+    Arrays.fill(image.getData(), gray);
+    for (int rgb : new Blur(image, BorderMode.CLAMP).filter().getData()) {
+      assertEquals(gray, rgb);
+    }
+    assertEquals(PackedImage.pack(56, 56, 56), new Blur(image).filter().getRGB(0, 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullBorderMode() {
+    new Blur(new PackedImage(1, 1), null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullImage() {
+    new Blur(null);
+  }
+}
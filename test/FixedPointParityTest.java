@@ -0,0 +1,112 @@
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import javax.imageio.ImageIO;
+
+import model.PackedImage;
+import model.filters.BorderMode;
+import model.filters.ConvolutionEngine;
+import model.parallel.RowExecutor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that the fixed point convolution path gives exactly the same pixels as the floating
+ * point path for dyadic kernels.
+ */
+public class FixedPointParityTest {
+  private static final float[][] BLUR = {{1f / 16f, 1f / 8f, 1f / 16f},
+      {1f / 8f, 1f / 4f, 1f / 8f},
+      {1f / 16f, 1f / 8f, 1f / 16f}};
+
+  private static final float[][] SHARPEN = {
+      {-1f / 8f, -1f / 8f, -1f / 8f, -1f / 8f, -1f / 8f},
+      {-1f / 8f, 1f / 4f, 1f / 4f, 1f / 4f, -1f / 8f},
+      {-1f / 8f, 1f / 4f, 1f, 1f / 4f, -1f / 8f},
+      {-1f / 8f, 1f / 4f, 1f / 4f, 1f / 4f, -1f / 8f},
+      {-1f / 8f, -1f / 8f, -1f / 8f, -1f / 8f, -1f / 8f}};
+
+  // Rounds exact halves both up and down, and has an even width
+  private static final float[][] HALVES = {{0.5f, -1.5f}, {2.5f, -0.5f}};
+
+  private static final float[][][] KERNELS = {BLUR, SHARPEN, HALVES, {{0.5f}}};
+
+  /**
+   * Convolves the image with the kernel on both paths and checks that the results match.
+   */
+  private static void assertParity(float[][] kernel, PackedImage image, BorderMode border) {
+    ConvolutionEngine fixed = new ConvolutionEngine(kernel, border, true);
+    ConvolutionEngine floating = new ConvolutionEngine(kernel, border, false);
+    assertTrue(fixed.isFixedPoint());
+    assertFalse(floating.isFixedPoint());
+    RowExecutor executor = new RowExecutor(1);
+    assertArrayEquals(floating.apply(image, executor).getData(),
+        fixed.apply(image, executor).getData());
+  }
+
+  @Test
+  public void testBuiltInKernelsAreFixedPoint() {
+    assertTrue(new ConvolutionEngine(BLUR, BorderMode.ZERO, true).isFixedPoint());
+    assertTrue(new ConvolutionEngine(SHARPEN, BorderMode.ZERO, true).isFixedPoint());
+  }
+
+  @Test
+  public void testOtherKernelsStayFloatingPoint() {
+    float third = 1f / 3f;
+    assertFalse(new ConvolutionEngine(new float[][] {{third, third, third}}, BorderMode.ZERO,
+        true).isFixedPoint());
+    assertFalse(new ConvolutionEngine(new float[][] {{1f / (1 << 20), 1f}}, BorderMode.ZERO,
+        true).isFixedPoint());
+    assertFalse(new ConvolutionEngine(new float[][] {{1 << 20}}, BorderMode.ZERO,
+        true).isFixedPoint());
+  }
+
+  @Test
+  public void testParityOnRandomImages() {
+    PackedImage[] images = {FilterTest.randomImage(37, 23, 11),
+        FilterTest.randomImage(3, 2, 12), FilterTest.randomImage(1, 1, 13)};
+    for (float[][] kernel : KERNELS) {
+      for (BorderMode border : BorderMode.values()) {
+        for (PackedImage image : images) {
+          assertParity(kernel, image, border);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testParityOnExtremeImages() {
+    PackedImage white = new PackedImage(8, 8);
+    PackedImage checkers = new PackedImage(8, 8);
+    for (int row = 0; row < 8; row++) {
+      for (int col = 0; col < 8; col++) {
+        white.setRGB(row, col, 0xFFFFFF);
+        checkers.setRGB(row, col, (row + col) % 2 == 0 ? 0xFFFFFF : 0);
+      }
+    }
+    for (float[][] kernel : KERNELS) {
+      assertParity(kernel, white, BorderMode.ZERO);
+      assertParity(kernel, checkers, BorderMode.ZERO);
+      assertParity(kernel, checkers, BorderMode.MIRROR);
+    }
+  }
+
+  @Test
+  public void testParityOnScreenshot() throws IOException {
+    BufferedImage loaded = ImageIO.read(new File("res/Screenshot.png"));
+    PackedImage image = new PackedImage(loaded.getWidth(), loaded.getHeight());
+    for (int row = 0; row < image.getHeight(); row++) {
+      for (int col = 0; col < image.getWidth(); col++) {
+        image.setRGB(row, col, loaded.getRGB(col, row) & 0xFFFFFF);
+      }
+    }
+    assertParity(BLUR, image, BorderMode.ZERO);
+    assertParity(SHARPEN, image, BorderMode.ZERO);
+    assertParity(SHARPEN, image, BorderMode.CLAMP);
+  }
+}
@@ -0,0 +1,119 @@
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import model.ImageEditorModel;
+import model.PackedImage;
+import model.SimpleEditorModel;
+import model.parallel.RowExecutor;
+import model.store.LayerStore;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the LayerStore class.
+ */
+public class LayerStoreTest {
+  @Test
+  public void testSpillsLeastRecentlyUsed() {
+    // Room for two 10x10 layers of 400 bytes each
+    try (LayerStore store = new LayerStore(800)) {
+      PackedImage a = FilterTest.randomImage(10, 10, 91);
+      PackedImage b = FilterTest.randomImage(10, 10, 92);
+      PackedImage c = FilterTest.randomImage(10, 10, 93);
+      store.put("a", a);
+      store.put("b", b);
+      assertEquals(0, store.getSpills());
+      store.get("a");
+      store.put("c", c);
+      assertEquals(1, store.getSpills());
+      assertEquals(800, store.getResidentBytes());
+
+      assertEquals(1, store.getHits());
+      assertArrayEquals(b.getData(), store.get("b").getData());
+      assertEquals(1, store.getMisses());
+      // Reading b back spilled a, the least recently used of a and c
+      assertEquals(2, store.getSpills());
+      assertTrue(c == store.get("c"));
+      assertArrayEquals(a.getData(), store.get("a").getData());
+      assertEquals(2, store.getMisses());
+      assertEquals(3, store.names().size());
+    }
+  }
+
+  @Test
+  public void testRandomUseMatchesMap() {
+    Random random = new Random(94);
+    Map<String, PackedImage> expected = new HashMap<>();
+    try (LayerStore store = new LayerStore(5000)) {
+      for (int n = 0; n < 300; n++) {
+        String name = "l" + random.nextInt(12);
+        switch (random.nextInt(3)) {
+          case 0:
+            PackedImage image = FilterTest.randomImage(1 + random.nextInt(30),
+                1 + random.nextInt(30), n);
+            store.put(name, image);
+            expected.put(name, image);
+            break;
+          case 1:
+            store.remove(name);
+            expected.remove(name);
+            break;
+          default:
+            PackedImage got = store.get(name);
+            if (expected.containsKey(name)) {
+              assertEquals(expected.get(name).getWidth(), got.getWidth());
+              assertArrayEquals(expected.get(name).getData(), got.getData());
+            } else {
+              assertNull(got);
+            }
+        }
+        assertEquals(expected.keySet(), store.names());
+      }
+      assertTrue(store.getSpills() > 0);
+      assertTrue(store.getMisses() > 0);
+    }
+  }
+
+  @Test
+  public void testLayerLargerThanBudgetStays() {
+    try (LayerStore store = new LayerStore(10)) {
+      PackedImage image = new PackedImage(4, 4);
+      store.put("a", image);
+      assertTrue(image == store.get("a"));
+      store.put("b", new PackedImage(2, 2));
+      assertEquals(1, store.getSpills());
+      assertFalse(store.getResidentBytes() > 16);
+    }
+  }
+
+  @Test
+  public void testModelWithSmallBudget() {
+    PackedImage image = FilterTest.randomImage(20, 20, 95);
+    ImageEditorModel small = new SimpleEditorModel(new RowExecutor(1), new LayerStore(2000));
+    ImageEditorModel large = new SimpleEditorModel(new RowExecutor(1));
+    for (ImageEditorModel model : new ImageEditorModel[] {small, large}) {
+      model.acceptNewImage(image, "a");
+      model.blur("a", "b");
+      model.acceptNewImage(FilterTest.randomImage(20, 20, 96), "e");
+      model.sharpen("b", "c");
+      model.blur("a", "d");
+    }
+    for (String name : new String[] {"c", "b", "a", "d", "e"}) {
+      assertArrayEquals(large.releasePackedImage(name).getData(),
+          small.releasePackedImage(name).getData());
+    }
+    assertTrue(((SimpleEditorModel) small).getLayerStore().getMisses() > 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeBudget() {
+    new LayerStore(-1);
+  }
+}
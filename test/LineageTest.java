@@ -0,0 +1,172 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import model.Flip;
+import model.PackedImage;
+import model.SimpleEditorModel;
+import model.parallel.RowExecutor;
+import model.parallel.RowTask;
+import model.store.LayerStore;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the lineage of the layers of the model, and their recomputation once dropped.
+ */
+public class LineageTest {
+  private static final String[] NAMES = {"b", "c", "d", "e", "f"};
+
+  /**
+   * Counts the operations run on it.
+   */
+  private static class CountingExecutor extends RowExecutor {
+    private int operations;
+
+    private CountingExecutor() {
+      super(1);
+    }
+
+    @Override
+    public void forEachBand(int rows, int width, RowTask task) {
+      this.operations++;
+      super.forEachBand(rows, width, task);
+    }
+  }
+
+  /**
+   * Runs the same operations on a new model holding the given image as "a".
+   */
+  private static SimpleEditorModel edit(PackedImage image, LayerStore store) {
+    return edit(new SimpleEditorModel(new RowExecutor(1), store, false), image);
+  }
+
+  private static SimpleEditorModel edit(SimpleEditorModel model, PackedImage image) {
+    model.acceptNewImage(image, "a");
+    model.brighten(20, "a", "b");
+    model.blur("b", "c");
+    model.greyscale("c", "d");
+    model.invert("d", "d");
+    model.flip(Flip.VERTICAL, "d", "e");
+    model.sharpen("e", "f");
+    return model;
+  }
+
+  @Test
+  public void testLineage() {
+    SimpleEditorModel model = edit(FilterTest.randomImage(6, 5, 101), new LayerStore());
+    assertEquals(Arrays.asList("load", "brighten 20", "blur", "greyscale", "invert",
+        "flip VERTICAL", "sharpen"), model.getLineage("f"));
+    assertEquals(Arrays.asList("load"), model.getLineage("a"));
+  }
+
+  @Test
+  public void testDroppedLayersAreRecomputed() {
+    PackedImage image = FilterTest.randomImage(31, 23, 102);
+    SimpleEditorModel expected = edit(image, new LayerStore());
+    SimpleEditorModel model = edit(image, new LayerStore());
+    model.dropComputedLayers();
+    // Reads the layers out of order, so some are recomputed from layers recomputed before them
+    for (String name : new String[] {"d", "f", "b", "e", "c"}) {
+      assertArrayEquals(expected.releasePackedImage(name).getData(),
+          model.releasePackedImage(name).getData());
+    }
+    model.dropComputedLayers();
+    for (String name : NAMES) {
+      assertArrayEquals(expected.releasePackedImage(name).getData(),
+          model.releasePackedImage(name).getData());
+    }
+  }
+
+  @Test
+  public void testLineageOutlivesReplacedNames() {
+    PackedImage image = FilterTest.randomImage(12, 9, 103);
+    SimpleEditorModel expected = edit(image, new LayerStore());
+    LayerStore store = new LayerStore();
+    SimpleEditorModel model = edit(image, store);
+    // Replaces every layer the others were made from
+    model.acceptNewImage(new PackedImage(2, 2), "a");
+    model.acceptNewImage(new PackedImage(2, 2), "b");
+    model.acceptNewImage(new PackedImage(2, 2), "e");
+    model.dropComputedLayers();
+    assertArrayEquals(expected.releasePackedImage("f").getData(),
+        model.releasePackedImage("f").getData());
+    assertArrayEquals(expected.releasePackedImage("c").getData(),
+        model.releasePackedImage("c").getData());
+    // The original image is still kept for the layers made from it
+    assertEquals(4 * 12 * 9 + 3 * 16, store.getResidentBytes());
+  }
+
+  @Test
+  public void testUnreferencedLineageIsReleased() {
+    LayerStore store = new LayerStore();
+    SimpleEditorModel model = edit(FilterTest.randomImage(10, 10, 104), store);
+    for (String name : NAMES) {
+      model.acceptNewImage(new PackedImage(1, 1), name);
+    }
+    assertEquals(400 + 5 * 4, store.getResidentBytes());
+    model.acceptNewImage(new PackedImage(1, 1), "a");
+    assertEquals(6 * 4, store.getResidentBytes());
+  }
+
+  @Test
+  public void testLazyMatchesEager() {
+    PackedImage image = FilterTest.randomImage(29, 17, 105);
+    SimpleEditorModel eager = edit(image, new LayerStore());
+    SimpleEditorModel lazy = edit(new SimpleEditorModel(new RowExecutor(1), new LayerStore(),
+        true), image);
+    for (String name : new String[] {"e", "b", "f", "c", "d", "a"}) {
+      assertArrayEquals(eager.releasePackedImage(name).getData(),
+          lazy.releasePackedImage(name).getData());
+    }
+  }
+
+  @Test
+  public void testLazyRunsOnlyWhatIsRead() {
+    CountingExecutor executor = new CountingExecutor();
+    SimpleEditorModel model = edit(new SimpleEditorModel(executor, new LayerStore(), true),
+        FilterTest.randomImage(9, 9, 106));
+    model.blur("a", "dead");
+    model.sharpen("dead", "dead");
+    assertEquals(0, executor.operations);
+
+    // Brighten, blur, the fused greyscale and invert, and the flip
+    model.releasePackedImage("e");
+    assertEquals(4, executor.operations);
+    model.releasePackedImage("e");
+    model.releasePackedImage("c");
+    assertEquals(4, executor.operations);
+    model.releasePackedImage("f");
+    assertEquals(5, executor.operations);
+  }
+
+  @Test
+  public void testEagerRunsFiltersStraightAway() {
+    CountingExecutor executor = new CountingExecutor();
+    SimpleEditorModel model = new SimpleEditorModel(executor, new LayerStore(), false);
+    model.acceptNewImage(FilterTest.randomImage(4, 4, 107), "a");
+    model.blur("a", "b");
+    model.flip(Flip.HORIZONTAL, "b", "c");
+    assertEquals(2, executor.operations);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testLazyMissingSource() {
+    new SimpleEditorModel(new RowExecutor(1), new LayerStore(), true).blur("a", "b");
+  }
+
+  @Test
+  public void testLongLazyLineage() {
+    SimpleEditorModel model = new SimpleEditorModel(new RowExecutor(1), new LayerStore(), true);
+    model.acceptNewImage(FilterTest.randomImage(2, 2, 108), "a");
+    for (int i = 0; i < 20000; i++) {
+      model.flip(Flip.HORIZONTAL, "a", "a");
+    }
+    assertEquals(20001, model.getLineage("a").size());
+    model.releasePackedImage("a");
+    // Releases the whole lineage at once
+    model.acceptNewImage(new PackedImage(1, 1), "a");
+    assertEquals(1, model.getLineage("a").size());
+  }
+}
@@ -0,0 +1,211 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import codec.PPMReader;
+import codec.PPMWriter;
+import controller.SimpleEditorController;
+import model.ImageEditorModel;
+import model.PackedImage;
+import model.Pixel;
+import model.SimpleEditorModel;
+import model.colortransform.Greyscale;
+import view.SimpleEditorView;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the codec package.
+ */
+public class PPMCodecTest {
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    this.file = File.createTempFile("codec", ".ppm");
+  }
+
+  @After
+  public void tearDown() {
+    this.file.delete();
+  }
+
+  private String write(String contents) throws IOException {
+    return this.write(contents, new byte[0]);
+  }
+
+  /**
+   * Writes an ASCII header followed by binary pixel data to the test file.
+   */
+  private String write(String header, byte[] data) throws IOException {
+    byte[] head = header.getBytes(StandardCharsets.US_ASCII);
+    byte[] contents = new byte[head.length + data.length];
+    System.arraycopy(head, 0, contents, 0, head.length);
+    System.arraycopy(data, 0, contents, head.length, data.length);
+    Files.write(this.file.toPath(), contents);
+    return this.file.getPath();
+  }
+
+  @Test
+  public void testReadWithComments() throws IOException {
+    String path = this.write("P3\n# a comment line\n2 1 # trailing comment\n255\n"
+        + "1 2 3#inline\n  250\t251\r\n252");
+    PackedImage image = PPMReader.read(path);
+    assertEquals(2, image.getWidth());
+    assertEquals(1, image.getHeight());
+    assertEquals(PackedImage.pack(1, 2, 3), image.getRGB(0, 0));
+    assertEquals(PackedImage.pack(250, 251, 252), image.getRGB(0, 1));
+  }
+
+  @Test
+  public void testMaxValueScaling() throws IOException {
+    PackedImage image = PPMReader.read(this.write("P3 2 1 15 0 15 7 20 1 8"));
+    assertEquals(PackedImage.pack(0, 255, 119), image.getRGB(0, 0));
+    assertEquals(PackedImage.pack(255, 17, 136), image.getRGB(0, 1));
+  }
+
+  @Test
+  public void testLargerThanBuffer() throws IOException {
+    PackedImage expected = FilterTest.randomImage(200, 150, 61);
+    StringBuilder contents = new StringBuilder("P3\n200 150\n255\n");
+    for (int rgb : expected.getData()) {
+      contents.append(PackedImage.red(rgb)).append(' ').append(PackedImage.green(rgb))
+          .append(' ').append(PackedImage.blue(rgb)).append('\n');
+    }
+    assertArrayEquals(expected.getData(), PPMReader.read(this.write(contents.toString()))
+        .getData());
+  }
+
+  @Test
+  public void testImageUtilSharesReader() throws IOException {
+    Pixel[][] pixels = ImageUtil.readPPM(this.write("P3 1 2 255 9 8 7 6 5 4"));
+    assertEquals(2, pixels.length);
+    assertEquals(new Pixel(9, 8, 7).getRed(), pixels[0][0].getRed());
+    assertEquals(4, pixels[1][0].getBlue());
+  }
+
+  @Test
+  public void testReadBinaryColor() throws IOException {
+    // The data starts with a newline byte, which must be read as a sample, not as whitespace
+    PackedImage image = PPMReader.read(this.write("P6\n# comment\n2 1\n255\n",
+        new byte[] {10, 32, (byte) 200, 0, (byte) 255, 35}));
+    assertEquals(PackedImage.pack(10, 32, 200), image.getRGB(0, 0));
+    assertEquals(PackedImage.pack(0, 255, 35), image.getRGB(0, 1));
+  }
+
+  @Test
+  public void testReadBinaryGrey() throws IOException {
+    PackedImage image = PPMReader.read(this.write("P5 1 2 15 ", new byte[] {15, 7}));
+    assertEquals(PackedImage.pack(255, 255, 255), image.getRGB(0, 0));
+    assertEquals(PackedImage.pack(119, 119, 119), image.getRGB(1, 0));
+  }
+
+  @Test
+  public void testReadSixteenBitSamples() throws IOException {
+    PackedImage image = PPMReader.read(this.write("P6 1 1 65535\n",
+        new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0x80, 0x00, 0x00, (byte) 0x80}));
+    assertEquals(PackedImage.pack(255, 128, 0), image.getRGB(0, 0));
+    PackedImage grey = PPMReader.read(this.write("P5 2 1 1000\n",
+        new byte[] {0x03, (byte) 0xE8, 0x7F, 0x7F}));
+    assertEquals(0xFFFFFF, grey.getRGB(0, 0));
+    assertEquals(0xFFFFFF, grey.getRGB(0, 1));
+  }
+
+  @Test
+  public void testBinaryRoundTrip() {
+    PackedImage expected = FilterTest.randomImage(123, 45, 62);
+    PPMWriter.writeBinary(expected, this.file.getPath());
+    assertArrayEquals(expected.getData(), PPMReader.read(this.file.getPath()).getData());
+
+    PPMWriter.writeGrey(expected, this.file.getPath());
+    assertArrayEquals(new Greyscale(expected).transform().getData(),
+        PPMReader.read(this.file.getPath()).getData());
+  }
+
+  @Test
+  public void testPlainRoundTrip() throws IOException {
+    // Large enough to fill the writer's buffer several times
+    PackedImage expected = FilterTest.randomImage(301, 97, 64);
+    PPMWriter.writePlain(expected, this.file.getPath());
+    assertArrayEquals(expected.getData(), PPMReader.read(this.file.getPath()).getData());
+    for (String line : Files.readAllLines(this.file.toPath(), StandardCharsets.US_ASCII)) {
+      assertTrue(line.length() <= 70);
+    }
+  }
+
+  @Test
+  public void testPlainLayout() throws IOException {
+    PackedImage image = new PackedImage(6, 1, new int[] {0, 0xFFFFFF, PackedImage.pack(1, 22, 3),
+        0, 0, PackedImage.pack(9, 10, 100)});
+    PPMWriter.writePlain(image, this.file.getPath());
+    assertEquals("P3\n# Created by SimpleImage program. OOD Assignment 4\n6 1\n255\n"
+        + "0 0 0 255 255 255 1 22 3 0 0 0 0 0 0\n9 10 100\n",
+        new String(Files.readAllBytes(this.file.toPath()), StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  public void testControllerSavesBinaryFiles() throws IOException {
+    PackedImage image = FilterTest.randomImage(5, 4, 63);
+    ImageEditorModel model = new SimpleEditorModel();
+    model.acceptNewImage(image, "a");
+    String pgm = this.file.getPath().replace(".ppm", ".pgm");
+    String script = "save " + pgm + " a\nload " + pgm + " b\n"
+        + "save " + this.file.getPath() + " a\nload " + this.file.getPath() + " c\nq\n";
+    System.setProperty(SimpleEditorController.BINARY_PPM_PROPERTY, "true");
+    try {
+      new SimpleEditorController(model, new SimpleEditorView(new StringBuilder()),
+          new StringReader(script)).start();
+    } finally {
+      System.clearProperty(SimpleEditorController.BINARY_PPM_PROPERTY);
+      new File(pgm).delete();
+    }
+    assertEquals("P6", new String(Files.readAllBytes(this.file.toPath()), 0, 2,
+        StandardCharsets.US_ASCII));
+    assertArrayEquals(image.getData(), model.releasePackedImage("c").getData());
+    assertArrayEquals(new Greyscale(image).transform().getData(),
+        model.releasePackedImage("b").getData());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testBinaryTruncated() throws IOException {
+    PPMReader.read(this.write("P6 2 2 255\n", new byte[11]));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWriteNullImage() {
+    PPMWriter.writeBinary(null, this.file.getPath());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testEmptyFile() throws IOException {
+    PPMReader.read(this.write("# only a comment\n"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testWrongMagic() throws IOException {
+    PPMReader.read(this.write("P7 1 1 255 0 0 0"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testTruncated() throws IOException {
+    PPMReader.read(this.write("P3 2 2 255 1 2 3 4 5"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testNotANumber() throws IOException {
+    PPMReader.read(this.write("P3 1 1 255 1 x 3"));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testMissingFile() {
+    PPMReader.read(this.file.getPath() + ".missing");
+  }
+}
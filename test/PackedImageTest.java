@@ -0,0 +1,76 @@
+import org.junit.Test;
+
+import model.PackedImage;
+import model.Pixel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+/**
+ * Tests for the model.PackedImage class.
+ */
+public class PackedImageTest {
+  @Test
+  public void testPackAndUnpack() {
+    int rgb = PackedImage.pack(12, 34, 56);
+    assertEquals(12, PackedImage.red(rgb));
+    assertEquals(34, PackedImage.green(rgb));
+    assertEquals(56, PackedImage.blue(rgb));
+  }
+
+  @Test
+  public void testGetSetRGB() {
+    PackedImage image = new PackedImage(3, 2);
+    image.setRGB(1, 2, PackedImage.pack(1, 2, 3));
+    assertEquals(PackedImage.pack(1, 2, 3), image.getRGB(1, 2));
+    assertEquals(PackedImage.pack(1, 2, 3), image.getData()[5]);
+    assertEquals(0, image.getRGB(0, 0));
+    assertEquals(24, image.sizeInBytes());
+  }
+
+  @Test
+  public void testPixelRoundTrip() {
+    Pixel[][] pixels = {{new Pixel(1, 2, 3), new Pixel(4, 5, 6)},
+        {new Pixel(7, 8, 9), new Pixel(300, 0, 255)}};
+    PackedImage image = PackedImage.fromPixels(pixels);
+    assertEquals(2, image.getWidth());
+    assertEquals(2, image.getHeight());
+
+    Pixel[][] back = image.toPixels();
+    assertEquals(4, back[0][1].getRed());
+    assertEquals(8, back[1][0].getGreen());
+    assertEquals(255, back[1][1].getRed());
+    assertEquals(255, back[1][1].getBlue());
+  }
+
+  @Test
+  public void testCopy() {
+    PackedImage image = new PackedImage(2, 2);
+    PackedImage copy = image.copy();
+    copy.setRGB(0, 0, 0xFFFFFF);
+    assertNotSame(image.getData(), copy.getData());
+    assertEquals(0, image.getRGB(0, 0));
+  }
+
+  @Test
+  public void testClamp() {
+    assertEquals(0, PackedImage.clamp(-4));
+    assertEquals(255, PackedImage.clamp(256));
+    assertEquals(17, PackedImage.clamp(17));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadDimensions() {
+    new PackedImage(0, 3);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMismatchedData() {
+    new PackedImage(2, 2, new int[3]);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullPixels() {
+    PackedImage.fromPixels(null);
+  }
+}
@@ -0,0 +1,214 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import model.Component;
+import model.ImageEditorModel;
+import model.PackedImage;
+import model.SimpleEditorModel;
+import model.colortransform.Greyscale;
+import model.colortransform.Sepia;
+import model.parallel.RowExecutor;
+import model.pointop.ChannelLut;
+import model.pointop.ComponentOp;
+import model.pointop.MatrixOp;
+import model.pointop.PointOpChain;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the model.pointop package and the deferred point operations of the model.
+ */
+public class PointOpTest {
+  /**
+   * Brightens the image one pixel at a time.
+   */
+  private static PackedImage brighten(PackedImage image, int value) {
+    PackedImage result = new PackedImage(image.getWidth(), image.getHeight());
+    for (int i = 0; i < image.getData().length; i++) {
+      int rgb = image.getData()[i];
+      result.getData()[i] = PackedImage.pack(PackedImage.clamp(PackedImage.red(rgb) + value),
+          PackedImage.clamp(PackedImage.green(rgb) + value),
+          PackedImage.clamp(PackedImage.blue(rgb) + value));
+    }
+    return result;
+  }
+
+  @Test
+  public void testChainMatchesOneOperationAtATime() {
+    // Larger than one block of the chain, so blocks and bands are both exercised
+    PackedImage image = FilterTest.randomImage(97, 61, 51);
+    PointOpChain chain = PointOpChain.of(ChannelLut.brighten(30))
+        .then(new MatrixOp(Sepia.MATRIX))
+        .then(ChannelLut.brighten(-50))
+        .then(new ComponentOp(Component.INTENSITY))
+        .then(new MatrixOp(Greyscale.MATRIX));
+
+    PackedImage expected = brighten(image, 30);
+    expected = new Sepia(expected).transform();
+    expected = brighten(expected, -50);
+    SimpleEditorModel model = new SimpleEditorModel(new RowExecutor(1));
+    model.acceptNewImage(expected, "e");
+    model.component(Component.INTENSITY, "e", "e");
+    expected = new Greyscale(model.releasePackedImage("e")).transform();
+
+    assertArrayEquals(expected.getData(), chain.apply(image, new RowExecutor(4)).getData());
+  }
+
+  @Test
+  public void testLookupTablesCombine() {
+    PointOpChain chain = PointOpChain.of(ChannelLut.brighten(200))
+        .then(ChannelLut.brighten(-100))
+        .then(ChannelLut.brighten(10));
+    assertEquals(1, chain.size());
+
+    // Capping after the first brighten must survive the combination
+    PackedImage image = new PackedImage(1, 1, new int[] {PackedImage.pack(100, 0, 30)});
+    assertEquals(PackedImage.pack(165, 110, 140),
+        chain.apply(image, new RowExecutor(1)).getRGB(0, 0));
+    assertEquals(2, chain.then(new MatrixOp(Sepia.MATRIX)).size());
+  }
+
+  @Test
+  public void testModelChainMatchesEagerResults() {
+    PackedImage image = FilterTest.randomImage(40, 30, 52);
+    ImageEditorModel model = new SimpleEditorModel(new RowExecutor(1));
+    model.acceptNewImage(image, "a");
+    model.brighten(25, "a", "b");
+    model.sepia("b", "c");
+    model.component(Component.RED, "c", "d");
+    model.brighten(-10, "d", "d");
+
+    PackedImage b = brighten(image, 25);
+    PackedImage c = new Sepia(b).transform();
+    PackedImage d = new PackedImage(40, 30);
+    for (int i = 0; i < d.getData().length; i++) {
+      int red = PackedImage.red(c.getData()[i]);
+      d.getData()[i] = PackedImage.pack(red, red, red);
+    }
+    d = brighten(d, -10);
+
+    assertArrayEquals(d.getData(), model.releasePackedImage("d").getData());
+    assertArrayEquals(b.getData(), model.releasePackedImage("b").getData());
+    assertArrayEquals(c.getData(), model.releasePackedImage("c").getData());
+  }
+
+  @Test
+  public void testPendingLayerKeepsItsSource() {
+    PackedImage image = FilterTest.randomImage(8, 8, 53);
+    ImageEditorModel model = new SimpleEditorModel();
+    model.acceptNewImage(image, "a");
+    model.greyscale("a", "b");
+    model.acceptNewImage(new PackedImage(8, 8), "a");
+    model.blur("a", "a");
+
+    assertArrayEquals(new Greyscale(image).transform().getData(),
+        model.releasePackedImage("b").getData());
+    assertEquals(2, model.getListOfLayers().length);
+  }
+
+  @Test
+  public void testFilterOverwritesPendingLayer() {
+    PackedImage image = FilterTest.randomImage(8, 8, 54);
+    ImageEditorModel model = new SimpleEditorModel();
+    model.acceptNewImage(image, "a");
+    model.brighten(40, "a", "b");
+    model.sharpen("a", "b");
+    assertArrayEquals(FilterTest.reference(FilterTest.SHARPEN, image).getData(),
+        model.releasePackedImage("b").getData());
+  }
+
+  @Test
+  public void testLookupTableOperations() {
+    PackedImage image = new PackedImage(256, 1);
+    for (int i = 0; i < 256; i++) {
+      image.getData()[i] = PackedImage.pack(i, i, i);
+    }
+    RowExecutor executor = new RowExecutor(1);
+    assertArrayEquals(image.getData(),
+        PointOpChain.of(ChannelLut.gamma(1)).apply(image, executor).getData());
+    assertArrayEquals(image.getData(),
+        PointOpChain.of(ChannelLut.contrast(1)).apply(image, executor).getData());
+    assertArrayEquals(image.getData(), PointOpChain.of(ChannelLut.invert())
+        .then(ChannelLut.invert()).apply(image, executor).getData());
+
+    PackedImage gamma = PointOpChain.of(ChannelLut.gamma(2)).apply(image, executor);
+    assertEquals(PackedImage.pack(180, 180, 180), gamma.getRGB(0, 127));
+    assertEquals(0xFFFFFF, gamma.getRGB(0, 255));
+    PackedImage levels = PointOpChain.of(ChannelLut.levels(50, 150)).apply(image, executor);
+    assertEquals(0, levels.getRGB(0, 40));
+    assertEquals(PackedImage.pack(128, 128, 128), levels.getRGB(0, 100));
+    assertEquals(0xFFFFFF, levels.getRGB(0, 200));
+    PackedImage contrast = PointOpChain.of(ChannelLut.contrast(0)).apply(image, executor);
+    assertEquals(PackedImage.pack(128, 128, 128), contrast.getRGB(0, 3));
+    PackedImage inverted = PointOpChain.of(ChannelLut.invert()).apply(image, executor);
+    assertEquals(PackedImage.pack(245, 245, 245), inverted.getRGB(0, 10));
+    PackedImage threshold = PointOpChain.of(ChannelLut.threshold(100)).apply(image, executor);
+    assertEquals(0, threshold.getRGB(0, 99));
+    assertEquals(0xFFFFFF, threshold.getRGB(0, 100));
+  }
+
+  @Test
+  public void testModelLookupTableOperations() {
+    PackedImage image = new PackedImage(1, 1, new int[] {PackedImage.pack(10, 100, 200)});
+    ImageEditorModel model = new SimpleEditorModel();
+    model.acceptNewImage(image, "a");
+    model.invert("a", "b");
+    model.threshold(150, "b", "c");
+    model.levels(0, 127, "a", "d");
+    assertEquals(PackedImage.pack(245, 155, 55), model.releasePackedImage("b").getRGB(0, 0));
+    assertEquals(PackedImage.pack(255, 255, 0), model.releasePackedImage("c").getRGB(0, 0));
+    assertEquals(PackedImage.pack(20, 201, 255), model.releasePackedImage("d").getRGB(0, 0));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadGamma() {
+    ChannelLut.gamma(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadLevels() {
+    ChannelLut.levels(200, 100);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadThreshold() {
+    ChannelLut.threshold(256);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testMissingSource() {
+    new SimpleEditorModel().sepia("missing", "b");
+  }
+
+  @Test
+  public void testNullNames() {
+    SimpleEditorModel model = new SimpleEditorModel();
+    model.acceptNewImage(new PackedImage(1, 1), "a");
+    List<Consumer<String[]>> operations = Arrays.asList(
+        names -> model.gamma(2, names[0], names[1]),
+        names -> model.levels(10, 200, names[0], names[1]),
+        names -> model.contrast(1.5, names[0], names[1]),
+        names -> model.invert(names[0], names[1]),
+        names -> model.threshold(128, names[0], names[1]));
+    for (Consumer<String[]> operation : operations) {
+      for (String[] names : new String[][] {{null, "b"}, {"a", null}}) {
+        try {
+          operation.accept(names);
+          fail("Null name " + Arrays.toString(names) + " was accepted.");
+        } catch (IllegalArgumentException e) {
+          assertEquals("The image from and destination names must not be null.", e.getMessage());
+        }
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBadLookupTable() {
+    new ChannelLut(new int[255]);
+  }
+}
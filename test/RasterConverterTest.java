@@ -0,0 +1,85 @@
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+
+import codec.RasterConverter;
+import model.PackedImage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the RasterConverter class, which must give the same pixels as reading a buffered
+ * image one pixel at a time.
+ */
+public class RasterConverterTest {
+  private static final int[] TYPES = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+      BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR,
+      BufferedImage.TYPE_4BYTE_ABGR_PRE, BufferedImage.TYPE_INT_BGR,
+      BufferedImage.TYPE_BYTE_GRAY, BufferedImage.TYPE_USHORT_565_RGB};
+
+  /**
+   * Reads the image one pixel at a time.
+   */
+  private static int[] reference(BufferedImage img) {
+    int[] data = new int[img.getWidth() * img.getHeight()];
+    for (int y = 0; y < img.getHeight(); y++) {
+      for (int x = 0; x < img.getWidth(); x++) {
+        data[y * img.getWidth() + x] = img.getRGB(x, y) & 0xFFFFFF;
+      }
+    }
+    return data;
+  }
+
+  /**
+   * Creates an image of the given type holding random colors with random alpha.
+   */
+  private static BufferedImage randomImage(int type, int width, int height, int seed) {
+    BufferedImage img = new BufferedImage(width, height, type);
+    int[] colors = FilterTest.randomImage(width, height, seed).getData();
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        img.setRGB(x, y, colors[y * width + x] | ((x * 37 + y) % 256) << 24);
+      }
+    }
+    return img;
+  }
+
+  @Test
+  public void testToPackedImageMatchesGetRGB() {
+    for (int type : TYPES) {
+      BufferedImage img = randomImage(type, 13, 7, 71 + type);
+      PackedImage image = RasterConverter.toPackedImage(img);
+      assertEquals(13, image.getWidth());
+      assertEquals(7, image.getHeight());
+      assertArrayEquals(reference(img), image.getData());
+    }
+  }
+
+  @Test
+  public void testSubimages() {
+    for (int type : TYPES) {
+      BufferedImage sub = randomImage(type, 20, 15, 72).getSubimage(3, 4, 9, 6);
+      assertArrayEquals(reference(sub), RasterConverter.toPackedImage(sub).getData());
+    }
+  }
+
+  @Test
+  public void testRoundTrip() {
+    PackedImage image = FilterTest.randomImage(31, 17, 73);
+    BufferedImage img = RasterConverter.toBufferedImage(image);
+    assertEquals(BufferedImage.TYPE_INT_RGB, img.getType());
+    assertArrayEquals(image.getData(), reference(img));
+    assertArrayEquals(image.getData(), RasterConverter.toPackedImage(img).getData());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullBufferedImage() {
+    RasterConverter.toPackedImage(null);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullPackedImage() {
+    RasterConverter.toBufferedImage(null);
+  }
+}
@@ -0,0 +1,114 @@
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import model.Component;
+import model.Flip;
+import model.ImageEditorModel;
+import model.PackedImage;
+import model.SimpleEditorModel;
+import model.parallel.RowExecutor;
+import model.parallel.StageMetrics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the model.parallel.RowExecutor class and the parallel execution of the model.
+ */
+public class RowExecutorTest {
+  @Test
+  public void testEveryRowVisitedOnce() {
+    RowExecutor executor = new RowExecutor(4);
+    int rows = 1000;
+    AtomicIntegerArray visits = new AtomicIntegerArray(rows);
+    executor.forEachBand(rows, 500, (fromRow, toRow) -> {
+      for (int row = fromRow; row < toRow; row++) {
+        visits.incrementAndGet(row);
+      }
+    });
+    for (int row = 0; row < rows; row++) {
+      assertEquals(1, visits.get(row));
+    }
+  }
+
+  @Test
+  public void testSmallImageRunsInline() {
+    RowExecutor executor = new RowExecutor(4);
+    Thread caller = Thread.currentThread();
+    executor.forEachBand(3, 3, (fromRow, toRow) -> {
+      assertEquals(caller, Thread.currentThread());
+      assertEquals(0, fromRow);
+      assertEquals(3, toRow);
+    });
+  }
+
+  @Test
+  public void testOffloadingNeverRunsOnCaller() {
+    RowExecutor executor = new RowExecutor(1, true);
+    Thread caller = Thread.currentThread();
+    AtomicIntegerArray visits = new AtomicIntegerArray(300);
+    for (int rows : new int[] {3, 300}) {
+      executor.forEachBand(rows, 200, (fromRow, toRow) -> {
+        assertTrue(caller != Thread.currentThread());
+        for (int row = fromRow; row < toRow; row++) {
+          visits.incrementAndGet(row);
+        }
+      });
+    }
+    for (int row = 0; row < 300; row++) {
+      assertEquals(row < 3 ? 2 : 1, visits.get(row));
+    }
+  }
+
+  @Test
+  public void testMetricsCountTasks() {
+    RowExecutor executor = new RowExecutor(2);
+    for (int i = 0; i < 5; i++) {
+      executor.forEachBand(i == 0 ? 1000 : 2, 500, (fromRow, toRow) -> { });
+    }
+    StageMetrics metrics = executor.getMetrics();
+    assertEquals(5, metrics.getCompleted());
+    assertEquals(0, metrics.getQueueDepth());
+    assertEquals(0, metrics.getActive());
+    assertTrue(metrics.toString().startsWith("cpu: 0 queued, 0 running, 5 done"));
+  }
+
+  @Test
+  public void testParallelMatchesSerial() {
+    PackedImage image = FilterTest.randomImage(300, 211, 11);
+    ImageEditorModel serial = new SimpleEditorModel(new RowExecutor(1));
+    ImageEditorModel parallel = new SimpleEditorModel(new RowExecutor(4));
+    serial.acceptNewImage(image, "a");
+    parallel.acceptNewImage(image, "a");
+
+    for (ImageEditorModel model : new ImageEditorModel[] {serial, parallel}) {
+      model.brighten(-40, "a", "brighten");
+      model.flip(Flip.HORIZONTAL, "a", "horizontal");
+      model.flip(Flip.VERTICAL, "a", "vertical");
+      for (Component c : Component.values()) {
+        model.component(c, "a", c.toString());
+      }
+      model.blur("a", "blur");
+      model.sharpen("a", "sharpen");
+      model.greyscale("a", "greyscale");
+      model.sepia("a", "sepia");
+    }
+
+    for (String name : serial.getListOfLayers()) {
+      assertArrayEquals(name, serial.releasePackedImage(name).getData(),
+          parallel.releasePackedImage(name).getData());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testZeroParallelism() {
+    new RowExecutor(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNullTask() {
+    new RowExecutor(2).forEachBand(10, 10, null);
+  }
+}
@@ -0,0 +1,292 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import codec.PPMReader;
+import codec.PPMWriter;
+import controller.SimpleEditorController;
+import controller.script.CommandOutput;
+import controller.script.ScriptCommand;
+import controller.script.ScriptScheduler;
+import controller.script.StagedScheduler;
+import model.PackedImage;
+import model.SimpleEditorModel;
+import model.parallel.RowExecutor;
+import model.parallel.StageMetrics;
+import model.store.LayerStore;
+import view.SimpleEditorView;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the controller.script package and scheduled script runs of the controller.
+ */
+public class ScriptSchedulerTest {
+  private File dir;
+
+  @Before
+  public void setUp() throws IOException {
+    this.dir = File.createTempFile("script", "");
+    this.dir.delete();
+    this.dir.mkdir();
+  }
+
+  @After
+  public void tearDown() {
+    for (File file : this.dir.listFiles()) {
+      file.delete();
+    }
+    this.dir.delete();
+  }
+
+  private String path(String name) {
+    return new File(this.dir, name).getPath();
+  }
+
+  private static List<ScriptCommand> parse(String... lines) {
+    List<ScriptCommand> commands = new ArrayList<>();
+    for (String line : lines) {
+      commands.add(ScriptCommand.parse(commands.size(), line));
+    }
+    return commands;
+  }
+
+  @Test
+  public void testReadsAndWrites() {
+    ScriptCommand levels = ScriptCommand.parse(0, "levels 10 200 a b");
+    assertEquals(Collections.singleton("layer:a"), levels.getReads());
+    assertEquals(Collections.singleton("layer:b"), levels.getWrites());
+    ScriptCommand save = ScriptCommand.parse(1, "save out/../x.ppm b");
+    assertEquals(Collections.singleton("layer:b"), save.getReads());
+    assertEquals(ScriptCommand.parse(2, "load x.ppm c").getReads(), save.getWrites());
+    assertTrue(ScriptCommand.parse(3, "blur a").getWrites().isEmpty());
+    assertTrue(ScriptCommand.parse(4, "menu").getReads().isEmpty());
+  }
+
+  @Test
+  public void testSameOutputAndFilesAsSequential() {
+    String[] inputs = {"a.ppm", "b.ppm", "c.ppm"};
+    for (int i = 0; i < inputs.length; i++) {
+      PPMWriter.writeBinary(FilterTest.randomImage(40 + i, 30, 110 + i), this.path(inputs[i]));
+    }
+    StringBuilder script = new StringBuilder();
+    for (String input : inputs) {
+      String name = input.substring(0, 1);
+      script.append("load ").append(this.path(input)).append(' ').append(name).append('\n')
+          .append("blur ").append(name).append(' ').append(name).append("-blur\n")
+          .append("sepia ").append(name).append("-blur ").append(name).append('\n')
+          .append("brighten 20 ").append(name).append(' ').append(name).append("-out\n")
+          .append("save ").append(this.path(name + "-out.ppm")).append(' ').append(name)
+          .append("-out\n");
+    }
+    // Reads back a file written earlier in the script, and hits a missing layer and bad input
+    script.append("load ").append(this.path("a-out.ppm")).append(" again\n")
+        .append("sharpen missing x\nfoo\nblur again\nhorizontal-flip again again\n")
+        .append("save ").append(this.path("again.ppm")).append(" again\nq\n");
+
+    StringBuilder sequential = new StringBuilder();
+    SimpleEditorModel model = new SimpleEditorModel();
+    new SimpleEditorController(model, new SimpleEditorView(sequential),
+        new StringReader(script.toString())).start();
+    PackedImage expected = PPMReader.read(this.path("again.ppm"));
+    new File(this.path("again.ppm")).delete();
+
+    for (ScriptScheduler scheduler : new ScriptScheduler[] {new ScriptScheduler(4),
+        new StagedScheduler(1, 2, 1)}) {
+      StringBuilder scheduled = new StringBuilder();
+      SimpleEditorModel scheduledModel = new SimpleEditorModel();
+      new SimpleEditorController(scheduledModel, new SimpleEditorView(scheduled),
+          new StringReader(script.toString())).start(scheduler);
+      assertEquals(sequential.toString(), scheduled.toString());
+      assertArrayEquals(expected.getData(), PPMReader.read(this.path("again.ppm")).getData());
+      new File(this.path("again.ppm")).delete();
+      for (String name : new String[] {"a", "b-out", "c-blur", "again"}) {
+        assertArrayEquals(model.releasePackedImage(name).getData(),
+            scheduledModel.releasePackedImage(name).getData());
+      }
+    }
+  }
+
+  @Test
+  public void testDependentCommandsKeepTheirOrder() {
+    List<ScriptCommand> commands = parse("load x.ppm a", "brighten 1 a b", "blur b a",
+        "load y.ppm c", "save x.ppm a", "sharpen c b", "blur a d");
+    List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+    new ScriptScheduler(4).run(commands, command -> {
+      try {
+        // The later commands finish faster, so any missing wait would reorder them
+        Thread.sleep(5L * (commands.size() - command.getIndex()));
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      order.add(command.getIndex());
+    }, new CommandOutput(new SimpleEditorView(new StringBuilder())));
+
+    assertEquals(commands.size(), order.size());
+    // Each pair is a command and one it must wait for
+    int[][] waits = {{1, 0}, {2, 1}, {4, 2}, {4, 0}, {5, 1}, {5, 2}, {5, 3}, {6, 2}};
+    for (int[] wait : waits) {
+      assertTrue(Arrays.toString(wait), order.indexOf(wait[0]) > order.indexOf(wait[1]));
+    }
+  }
+
+  @Test
+  public void testIndependentCommandsRunAtOnce() {
+    CyclicBarrier barrier = new CyclicBarrier(2);
+    new ScriptScheduler(2).run(parse("blur a b", "sharpen c d"), command -> {
+      try {
+        barrier.await(10, TimeUnit.SECONDS);
+      } catch (Exception e) {
+        throw new IllegalStateException("Commands did not run at once.");
+      }
+    }, new CommandOutput(new SimpleEditorView(new StringBuilder())));
+  }
+
+  @Test
+  public void testFailureStopsLaterCommands() {
+    StringBuilder out = new StringBuilder();
+    CommandOutput output = new CommandOutput(new SimpleEditorView(out));
+    List<Integer> ran = Collections.synchronizedList(new ArrayList<>());
+    try {
+      new ScriptScheduler(3).run(parse("blur a b", "blur b c", "blur x y", "blur c d"),
+          command -> {
+            ran.add(command.getIndex());
+            output.renderMessage(command.getIndex() + ";");
+            if (command.getIndex() == 1) {
+              throw new IllegalStateException("failed");
+            }
+          }, output);
+      fail("The failure of the command was not thrown.");
+    } catch (IllegalStateException e) {
+      assertEquals("failed", e.getMessage());
+    }
+    assertEquals("0;1;", out.toString());
+    assertFalse(ran.contains(3));
+  }
+
+  @Test
+  public void testPipelineRunsStageByStage() {
+    // Loading y.ppm waits for it to be saved, and so does the blur of what it loads
+    List<ScriptCommand> commands = parse("load x.ppm a", "blur a b", "save y.ppm b",
+        "load y.ppm c", "blur c d", "load z.ppm e");
+    List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+    StagedScheduler pipeline = new StagedScheduler(1, 1, 1);
+    pipeline.run(commands, command -> order.add(command.getIndex()),
+        new CommandOutput(new SimpleEditorView(new StringBuilder())));
+    assertEquals(Arrays.asList(0, 5, 1, 2, 3, 4), order);
+    for (StageMetrics stage : pipeline.getMetrics()) {
+      assertEquals(stage.toString(), 1, stage.getCompleted());
+    }
+  }
+
+  @Test
+  public void testPipelineOverlapsScripts() throws Exception {
+    CyclicBarrier barrier = new CyclicBarrier(2);
+    StagedScheduler pipeline = new StagedScheduler(1, 1, 1);
+    Consumer<ScriptCommand> meet = command -> {
+      try {
+        barrier.await(10, TimeUnit.SECONDS);
+      } catch (Exception e) {
+        throw new IllegalStateException("Stages did not run at once.");
+      }
+    };
+    CommandOutput output = new CommandOutput(new SimpleEditorView(new StringBuilder()));
+    // One script loads while the other processes, each on the one thread of its stage
+    Thread other = new Thread(() -> pipeline.run(parse("load x.ppm a"), meet, output));
+    other.start();
+    pipeline.run(parse("blur a b"), meet, output);
+    other.join(10000);
+    assertFalse(other.isAlive());
+  }
+
+  @Test
+  public void testPipelineFailureRunsEarlierCommandsOnly() {
+    StringBuilder out = new StringBuilder();
+    CommandOutput output = new CommandOutput(new SimpleEditorView(out));
+    List<Integer> ran = Collections.synchronizedList(new ArrayList<>());
+    try {
+      new StagedScheduler(1, 1, 1).run(parse("load x.ppm a", "save y.ppm a", "load z.ppm b",
+          "blur b c", "save w.ppm c"), command -> {
+            ran.add(command.getIndex());
+            output.renderMessage(command.getIndex() + ";");
+            if (command.getIndex() == 2) {
+              throw new IllegalStateException("failed");
+            }
+          }, output);
+      fail("The failure of the command was not thrown.");
+    } catch (IllegalStateException e) {
+      assertEquals("failed", e.getMessage());
+    }
+    // The save before the failed load still runs in its later stage
+    assertEquals(Arrays.asList(0, 2, 1), ran);
+    assertEquals("0;1;2;", out.toString());
+  }
+
+  @Test
+  public void testPipelineComputesSavedLayersWhileProcessing() {
+    List<String> computed = Collections.synchronizedList(new ArrayList<>());
+    StagedScheduler pipeline = new StagedScheduler(1, 1, 1);
+    pipeline.run(parse("load x.ppm a", "greyscale a b", "sepia b c", "brighten 5 c d",
+        "save y.ppm d", "invert d d", "save z.ppm d"), command -> { }, name -> {
+          assertEquals("pipeline-process", Thread.currentThread().getName());
+          computed.add(name);
+          try {
+            // Stands in for the point operations left to run once the layer is read
+            Thread.sleep(200);
+          } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+        }, new CommandOutput(new SimpleEditorView(new StringBuilder())));
+    // The invert waits for the first save, so its layer is computed by the second save
+    assertEquals(Collections.singletonList("d"), computed);
+    List<StageMetrics> stages = pipeline.getMetrics();
+    assertTrue(stages.get(1).toString(), stages.get(1).getMeanRunNanos() >= 200_000_000L);
+    assertTrue(stages.get(2).toString(), stages.get(2).getMeanRunNanos() < 200_000_000L);
+  }
+
+  @Test
+  public void testPipelineRunsPointOperationsWhileProcessing() {
+    PPMWriter.writeBinary(FilterTest.randomImage(30, 20, 115), this.path("in.ppm"));
+    List<String> computedOn = Collections.synchronizedList(new ArrayList<>());
+    // A lazy model, which leaves filters as well as point operations until a layer is read
+    SimpleEditorModel model = new SimpleEditorModel(new RowExecutor(1), new LayerStore(),
+        true) {
+      @Override
+      public PackedImage releasePackedImage(String name) {
+        computedOn.add(name + " " + Thread.currentThread().getName());
+        return super.releasePackedImage(name);
+      }
+    };
+    new SimpleEditorController(model, new SimpleEditorView(new StringBuilder()),
+        new StringReader("load " + this.path("in.ppm") + " a\ngreyscale a b\nblur b c\n"
+            + "brighten 10 c d\nsave " + this.path("out.ppm") + " d\nq\n"))
+        .start(new StagedScheduler(1, 1, 1));
+    assertEquals(Arrays.asList("d pipeline-process", "d pipeline-save"), computedOn);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testMissingQuit() {
+    new SimpleEditorController(new SimpleEditorModel(), new SimpleEditorView(new StringBuilder()),
+        new StringReader("menu\n")).start(new ScriptScheduler(2));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoThreads() {
+    new ScriptScheduler(0);
+  }
+}
@@ -82,7 +82,12 @@ public class SimpleImageControllerTest {
                                     + "blur name-21 name-22\n"
                                     + "sharpen name-23 name-24\n"
                                     + "greyscale name-25 name-26\n"
-                                    + "sepia name-27 name-28\nq");
+                                    + "sepia name-27 name-28\n"
+                                    + "gamma 2.2 name-29 name-30\n"
+                                    + "levels 10 240 name-31 name-32\n"
+                                    + "contrast 1.5 name-33 name-34\n"
+                                    + "invert name-35 name-36\n"
+                                    + "threshold 128 name-37 name-38\nq");
     ImageEditorController controller = new SimpleEditorController(ci, view, in);
     controller.start();
 
@@ -98,7 +103,12 @@ public class SimpleImageControllerTest {
                        + "BLUR name-21 name-22\n"
                        + "SHARPEN name-23 name-24\n"
                        + "GREYSCALE name-25 name-26\n"
-                       + "SEPIA name-27 name-28\n";
+                       + "SEPIA name-27 name-28\n"
+                       + "GAMMA 2.2 name-29 name-30\n"
+                       + "LEVELS 10 240 name-31 name-32\n"
+                       + "CONTRAST 1.5 name-33 name-34\n"
+                       + "INVERT name-35 name-36\n"
+                       + "THRESHOLD 128 name-37 name-38\n";
 
     assertEquals(expectedLog, log.toString());
   }
@@ -142,9 +152,19 @@ public class SimpleImageControllerTest {
         "sepia", outs[14]);
     assertEquals("- greyscale <image-name> <save-image> - Color transforms the image to " +
         "greyscale", outs[15]);
-    assertEquals("- menu - Shows this screen again.", outs[16]);
-    assertEquals("Type \"q\" if you would like to quit the program.", outs[17]);
-    assertEquals("Enter a command: Goodbye.", outs[18]);
+    assertEquals("- gamma <value> <image-name> <save-name> - Gamma corrects the image "
+        + "(above 1 brightens, below 1 darkens)", outs[16]);
+    assertEquals("- levels <black> <white> <image-name> <save-name> - Stretches the values "
+        + "from black to white to the full range", outs[17]);
+    assertEquals("- contrast <factor> <image-name> <save-name> - Scales the contrast of the "
+        + "image by the factor", outs[18]);
+    assertEquals("- invert <image-name> <save-name> - Inverts the colors of the image",
+        outs[19]);
+    assertEquals("- threshold <level> <image-name> <save-name> - Turns values at or above the "
+        + "level white and the rest black", outs[20]);
+    assertEquals("- menu - Shows this screen again.", outs[21]);
+    assertEquals("Type \"q\" if you would like to quit the program.", outs[22]);
+    assertEquals("Enter a command: Goodbye.", outs[23]);
   }
 
   @Test
@@ -160,9 +180,9 @@ public class SimpleImageControllerTest {
     String[] outs = out.toString().split("\n");
 
     assertEquals("Enter a command: Loading...Successfully loaded image with name "
-        + "\"small\".", outs[18]);
+        + "\"small\".", outs[23]);
     assertEquals("Enter a command: Loading...The was an error loading the provided file "
-        + "path. Not found or empty.", outs[19]);
+        + "path. Not found or empty.", outs[24]);
   }
 
   @Test
@@ -179,20 +199,20 @@ public class SimpleImageControllerTest {
     String[] outs = out.toString().split("\n");
 
     assertEquals("Enter a command: Brightening...ERROR: The provided image name was not "
-        + "found.", outs[18]);
+        + "found.", outs[23]);
     assertEquals("Enter a command: Rendering flip VERTICAL...ERROR: The provided image name "
-        + "was not found.", outs[19]);
+        + "was not found.", outs[24]);
     assertEquals("Enter a command: Rendering flip HORIZONTAL...ERROR: The provided image name "
-        + "was not found.", outs[20]);
+        + "was not found.", outs[25]);
     assertEquals("Enter a command: Rendering component RED...ERROR: The provided image "
-        + "name was not found.", outs[21]);
+        + "name was not found.", outs[26]);
     assertEquals("Enter a command: Blurring image...ERROR: The provided image "
-        + "name was not found.", outs[22]);
+        + "name was not found.", outs[27]);
     assertEquals("Enter a command: Sharpening image...ERROR: The provided image "
-        + "name was not found.", outs[23]);
+        + "name was not found.", outs[28]);
     assertEquals("Enter a command: Transforming image to greyscale...ERROR: The provided image "
-        + "name was not found.", outs[24]);
+        + "name was not found.", outs[29]);
     assertEquals("Enter a command: Transforming image to sepia...ERROR: The provided image "
-        + "name was not found.", outs[25]);
+        + "name was not found.", outs[30]);
   }
 }
\ No newline at end of file
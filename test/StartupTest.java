@@ -0,0 +1,108 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import codec.PPMWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Benchmarks the startup of the script mode of the program in new JVMs, and checks that it
+ * stays headless: it must exit once the script is done, and must not load AWT, Swing or ImageIO
+ * unless the script touches a file that needs them.
+ */
+public class StartupTest {
+  private static final int RUNS = 3;
+
+  private File dir;
+
+  @Before
+  public void setUp() throws IOException {
+    this.dir = Files.createTempDirectory("startup").toFile();
+    PPMWriter.writeBinary(FilterTest.randomImage(16, 16, 130), this.path("in.ppm"));
+  }
+
+  @After
+  public void tearDown() {
+    for (File file : this.dir.listFiles()) {
+      file.delete();
+    }
+    this.dir.delete();
+  }
+
+  private String path(String name) {
+    return new File(this.dir, name).getPath();
+  }
+
+  /**
+   * Runs the program in a new JVM that logs every class it loads, and returns its output.
+   */
+  private static String launch(String... args) throws IOException, InterruptedException {
+    List<String> command = new ArrayList<>(Arrays.asList(
+        System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+        "-Xlog:class+load=info", "-cp", System.getProperty("java.class.path"), "ImageEditor"));
+    command.addAll(Arrays.asList(args));
+    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+    process.getOutputStream().close();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (InputStream in = process.getInputStream()) {
+      byte[] buffer = new byte[8192];
+      for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+        out.write(buffer, 0, read);
+      }
+    }
+    assertTrue("Program did not exit after its script.", process.waitFor(60, TimeUnit.SECONDS));
+    assertEquals(0, process.exitValue());
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  private static boolean loadsDesktopClasses(String log) {
+    return log.contains(" java.awt.") || log.contains(" javax.swing.")
+        || log.contains(" javax.imageio.") || log.contains(" sun.awt.");
+  }
+
+  @Test
+  public void testScriptStartupIsHeadless() throws IOException, InterruptedException {
+    Files.write(new File(this.dir, "script.txt").toPath(), ("load " + this.path("in.ppm")
+        + " a\nblur a a\nsave " + this.path("out.ppm") + " a\n").getBytes());
+
+    List<Long> millis = new ArrayList<>();
+    String log = null;
+    for (int i = 0; i < RUNS; i++) {
+      long start = System.nanoTime();
+      log = launch("-file", this.path("script.txt"));
+      millis.add((System.nanoTime() - start) / 1000000);
+    }
+    Collections.sort(millis);
+    System.out.println("Script mode startup and run: median " + millis.get(RUNS / 2)
+        + " ms of " + millis);
+
+    assertTrue(log.contains("Successfully saved image"));
+    assertTrue(log.contains("Goodbye."));
+    assertFalse(loadsDesktopClasses(log));
+    assertTrue(new File(this.path("out.ppm")).isFile());
+  }
+
+  @Test
+  public void testImageIOLoadedOnlyWhenNeeded() throws IOException, InterruptedException {
+    Files.write(new File(this.dir, "script.txt").toPath(), ("load " + this.path("in.ppm")
+        + " a\nsave " + this.path("out.png") + " a\n").getBytes());
+    String log = launch("-file", this.path("script.txt"));
+    assertTrue(log.contains(" javax.imageio.ImageIO "));
+    assertTrue(new File(this.path("out.png")).isFile());
+  }
+}
@@ -0,0 +1,279 @@
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+
+import codec.PPMReader;
+import codec.PPMFormat;
+import codec.PPMRowReader;
+import codec.PPMRowWriter;
+import codec.PPMWriter;
+import controller.StreamEditorController;
+import model.Component;
+import model.Flip;
+import model.ImageEditorModel;
+import model.PackedImage;
+import model.SimpleEditorModel;
+import model.filters.BorderMode;
+import model.filters.ConvolutionEngine;
+import model.parallel.RowExecutor;
+import model.stream.ConvolutionStage;
+import model.stream.RowReader;
+import model.stream.StreamEditorModel;
+import view.SimpleEditorView;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the model.stream package and the streaming controller.
+ */
+public class StreamTest {
+  /**
+   * Reads the rows of an image, checking that every row is read exactly once and in order.
+   */
+  private static class OrderedReader implements RowReader {
+    private final PackedImage image;
+    private int next;
+    private boolean closed;
+
+    private OrderedReader(PackedImage image) {
+      this.image = image;
+    }
+
+    @Override
+    public int getWidth() {
+      return this.image.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+      return this.image.getHeight();
+    }
+
+    @Override
+    public void readRow(int row, int[] dst) {
+      assertEquals(this.next, row);
+      this.next++;
+      this.image.readRow(row, dst);
+    }
+
+    @Override
+    public void close() {
+      this.closed = true;
+    }
+  }
+
+  /**
+   * Runs the same operations on the given model, starting from the layer named a.
+   */
+  private static void edit(ImageEditorModel model) {
+    model.brighten(20, "a", "b");
+    model.blur("b", "c");
+    model.sepia("c", "d");
+    model.contrast(1.5, "d", "d");
+    model.flip(Flip.HORIZONTAL, "d", "e");
+    model.sharpen("e", "f");
+    model.sharpen("f", "g");
+    model.component(Component.LUMA, "g", "h");
+  }
+
+  @Test
+  public void testMatchesInMemoryModel() {
+    for (PackedImage image : new PackedImage[] {FilterTest.randomImage(41, 29, 81),
+        FilterTest.randomImage(3, 1, 82), FilterTest.randomImage(1, 4, 83)}) {
+      SimpleEditorModel memory = new SimpleEditorModel(new RowExecutor(1));
+      memory.acceptNewImage(image, "a");
+      edit(memory);
+
+      StreamEditorModel stream = new StreamEditorModel();
+      OrderedReader[] reader = new OrderedReader[1];
+      stream.acceptNewSource(() -> reader[0] = new OrderedReader(image), "a");
+      edit(stream);
+
+      assertArrayEquals(memory.releasePackedImage("h").getData(),
+          stream.releasePackedImage("h").getData());
+      assertEquals(image.getHeight(), reader[0].next);
+      assertTrue(reader[0].closed);
+      for (String name : new String[] {"b", "c", "e"}) {
+        assertArrayEquals(memory.releasePackedImage(name).getData(),
+            stream.releasePackedImage(name).getData());
+      }
+    }
+  }
+
+  @Test
+  public void testBorderModesMatchInMemory() {
+    PackedImage image = FilterTest.randomImage(17, 13, 84);
+    float[][] kernel = {{0.1f, 0.2f, 0.1f, 0.3f, 0.1f}, {0.3f, 0.2f, -0.1f, 0.1f, 0.1f},
+        {0.5f, 0.1f, 0.2f, 0.1f, 0.1f}};
+    for (BorderMode border : new BorderMode[] {BorderMode.ZERO, BorderMode.CLAMP,
+        BorderMode.MIRROR}) {
+      ConvolutionEngine engine = new ConvolutionEngine(kernel, border);
+      int[] streamed = new int[image.getData().length];
+      try (RowReader reader = new ConvolutionStage(engine).open(new OrderedReader(image))) {
+        int[] row = new int[17];
+        for (int r = 0; r < 13; r++) {
+          reader.readRow(r, row);
+          System.arraycopy(row, 0, streamed, r * 17, 17);
+        }
+      }
+      assertArrayEquals(engine.apply(image, new RowExecutor(1)).getData(), streamed);
+    }
+  }
+
+  @Test
+  public void testControllerStreamsFiles() throws IOException {
+    File in = File.createTempFile("stream", ".ppm");
+    File out = File.createTempFile("stream", ".ppm");
+    File grey = new File(out.getPath().replace(".ppm", ".pgm"));
+    try {
+      PackedImage image = FilterTest.randomImage(23, 19, 85);
+      PPMWriter.writeBinary(image, in.getPath());
+      StringBuilder log = new StringBuilder();
+      String script = "load " + in.getPath() + " a\nblur a b\ninvert b c\nvertical-flip c d\n"
+          + "save " + out.getPath() + " d\nsave " + grey.getPath() + " c\nq\n";
+      StreamEditorController controller = new StreamEditorController(new StreamEditorModel(),
+          new SimpleEditorView(log), new StringReader(script));
+      controller.start();
+
+      ImageEditorModel memory = new SimpleEditorModel();
+      memory.acceptNewImage(image, "a");
+      memory.blur("a", "b");
+      memory.invert("b", "c");
+      memory.flip(Flip.VERTICAL, "c", "d");
+      assertEquals(log.toString(), 0, controller.getErrorCount());
+      assertArrayEquals(memory.releasePackedImage("d").getData(),
+          PPMReader.read(out.getPath()).getData());
+      memory.greyscale("c", "g");
+      assertArrayEquals(memory.releasePackedImage("g").getData(),
+          PPMReader.read(grey.getPath()).getData());
+    } finally {
+      in.delete();
+      out.delete();
+      grey.delete();
+    }
+  }
+
+  @Test
+  public void testWriteRowsWiderThanBuffer() throws IOException {
+    File out = File.createTempFile("stream", ".ppm");
+    try {
+      PackedImage image = FilterTest.randomImage(30001, 3, 90);
+      for (PPMFormat format : new PPMFormat[] {PPMFormat.BINARY, PPMFormat.GREY}) {
+        StreamEditorModel model = new StreamEditorModel();
+        model.acceptNewImage(image, "a");
+        try (PPMRowWriter writer = new PPMRowWriter(out.getPath(), format)) {
+          model.write("a", writer);
+        }
+        PackedImage expected = image;
+        if (format == PPMFormat.GREY) {
+          model.greyscale("a", "g");
+          expected = model.releasePackedImage("g");
+        }
+        assertArrayEquals(expected.getData(), PPMReader.read(out.getPath()).getData());
+      }
+    } finally {
+      out.delete();
+    }
+  }
+
+  @Test
+  public void testSaveOverLoadedFile() throws IOException {
+    File first = File.createTempFile("stream", ".ppm");
+    File second = File.createTempFile("stream", ".ppm");
+    try {
+      PackedImage a = FilterTest.randomImage(31, 17, 86);
+      PackedImage c = FilterTest.randomImage(9, 11, 87);
+      PPMWriter.writeBinary(a, first.getPath());
+      PPMWriter.writeBinary(c, second.getPath());
+      StringBuilder log = new StringBuilder();
+      String script = "load " + first.getPath() + " a\nload " + second.getPath() + " c\n"
+          + "brighten 10 a b\nsave " + first.getPath() + " b\n"
+          + "save " + second.getPath() + " b\nsave " + first.getPath() + " c\nq\n";
+      StreamEditorController controller = new StreamEditorController(new StreamEditorModel(),
+          new SimpleEditorView(log), new StringReader(script));
+      controller.start();
+
+      ImageEditorModel memory = new SimpleEditorModel();
+      memory.acceptNewImage(a, "a");
+      memory.brighten(10, "a", "b");
+      assertEquals(log.toString(), 0, controller.getErrorCount());
+      // The layers read from the files keep the images they were loaded with
+      assertArrayEquals(memory.releasePackedImage("b").getData(),
+          PPMReader.read(second.getPath()).getData());
+      assertArrayEquals(c.getData(), PPMReader.read(first.getPath()).getData());
+      for (File file : first.getParentFile().listFiles()) {
+        assertTrue(file.getName(), !file.getName().startsWith("." + first.getName())
+            && !file.getName().startsWith("." + second.getName()));
+      }
+    } finally {
+      first.delete();
+      second.delete();
+    }
+  }
+
+  @Test
+  public void testVerticalFlipMatchesInMemoryModel() throws IOException {
+    File in = File.createTempFile("stream", ".ppm");
+    try {
+      PackedImage image = FilterTest.randomImage(19, 23, 88);
+      PPMWriter.writeBinary(image, in.getPath());
+      SimpleEditorModel memory = new SimpleEditorModel(new RowExecutor(1));
+      memory.acceptNewImage(image, "a");
+      StreamEditorModel stream = new StreamEditorModel();
+      stream.acceptNewSource(() -> new PPMRowReader(in.getPath()), "a");
+      for (ImageEditorModel model : new ImageEditorModel[] {memory, stream}) {
+        model.flip(Flip.VERTICAL, "a", "b");
+        edit(model);
+        model.flip(Flip.VERTICAL, "h", "i");
+        model.blur("i", "j");
+        model.flip(Flip.VERTICAL, "j", "k");
+      }
+      for (String name : new String[] {"b", "c", "e", "h", "i", "k"}) {
+        assertArrayEquals(name, memory.releasePackedImage(name).getData(),
+            stream.releasePackedImage(name).getData());
+      }
+    } finally {
+      in.delete();
+    }
+  }
+
+  @Test
+  public void testVerticalFlipOfPlainFile() throws IOException {
+    File in = File.createTempFile("stream", ".ppm");
+    try {
+      PPMWriter.writePlain(FilterTest.randomImage(5, 4, 89), in.getPath());
+      StringBuilder log = new StringBuilder();
+      String script = "load " + in.getPath() + " a\nvertical-flip a b\nq\n";
+      StreamEditorController controller = new StreamEditorController(new StreamEditorModel(),
+          new SimpleEditorView(log), new StringReader(script));
+      controller.start();
+      assertEquals(1, controller.getErrorCount());
+      assertTrue(log.toString(), log.toString().contains(
+          "ERROR: Vertical flips cannot be streamed from plain PPM files."));
+    } finally {
+      in.delete();
+    }
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testVerticalFlipOfSequentialSource() {
+    StreamEditorModel model = new StreamEditorModel();
+    PackedImage image = new PackedImage(2, 2);
+    model.acceptNewSource(() -> new OrderedReader(image), "a");
+    model.flip(Flip.VERTICAL, "a", "b");
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testMissingLayer() {
+    new StreamEditorModel().blur("a", "b");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWrappedBorder() {
+    new ConvolutionStage(new ConvolutionEngine(new float[][] {{1}}, BorderMode.WRAP));
+  }
+}
@@ -3,6 +3,7 @@ package mocks;
 import model.Component;
 import model.Flip;
 import model.ImageEditorModel;
+import model.PackedImage;
 import model.Pixel;
 
 /**
@@ -23,10 +24,16 @@ public class ConfirmInputs implements ImageEditorModel {
   }
 
   @Override
-  public void acceptNewImage(Pixel[][] image, String name) throws IllegalArgumentException {
+  public void acceptNewImage(PackedImage image, String name) throws IllegalArgumentException {
     log.append("ACCEPT NEW IMAGE ").append(name).append("\n");
   }
 
+  @Override
+  public PackedImage releasePackedImage(String name) throws IllegalStateException {
+    log.append("RELEASE IMAGE ").append(name).append("\n");
+    return null;
+  }
+
   @Override
   public Pixel[][] releaseImage(String name) throws IllegalStateException {
     log.append("RELEASE IMAGE ").append(name).append("\n");
@@ -74,6 +81,35 @@ public class ConfirmInputs implements ImageEditorModel {
     log.append("SEPIA ").append(fromImageName).append(" ").append(toImageName).append("\n");
   }
 
+  @Override
+  public void gamma(double gamma, String fromImageName, String toImageName) {
+    log.append("GAMMA ").append(gamma).append(" ").append(fromImageName).append(" ")
+        .append(toImageName).append("\n");
+  }
+
+  @Override
+  public void levels(int black, int white, String fromImageName, String toImageName) {
+    log.append("LEVELS ").append(black).append(" ").append(white).append(" ")
+        .append(fromImageName).append(" ").append(toImageName).append("\n");
+  }
+
+  @Override
+  public void contrast(double factor, String fromImageName, String toImageName) {
+    log.append("CONTRAST ").append(factor).append(" ").append(fromImageName).append(" ")
+        .append(toImageName).append("\n");
+  }
+
+  @Override
+  public void invert(String fromImageName, String toImageName) {
+    log.append("INVERT ").append(fromImageName).append(" ").append(toImageName).append("\n");
+  }
+
+  @Override
+  public void threshold(int level, String fromImageName, String toImageName) {
+    log.append("THRESHOLD ").append(level).append(" ").append(fromImageName).append(" ")
+        .append(toImageName).append("\n");
+  }
+
   @Override
   public String[] getListOfLayers() {
     return new String[0];